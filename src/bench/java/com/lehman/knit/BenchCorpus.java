@@ -0,0 +1,146 @@
+/*
+ * Copyright 2021 Roseville Code Inc. (austin@rosevillecode.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.lehman.knit;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Generates synthetic DW sources and parsed models for the benchmarks.
+ */
+public class BenchCorpus {
+    /**
+     * Builds the source text of a documented module with the provided
+     * number of variables and functions.
+     * @param index is an int used to make names unique.
+     * @param variables is an int with the number of variables.
+     * @param functions is an int with the number of functions.
+     * @return A String with the module source.
+     */
+    public static String module(int index, int variables, int functions) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("/**\n");
+        sb.append(" * Module number ").append(index).append(" of the benchmark corpus.\n");
+        sb.append(" * @tbl Field, Source, Description\n");
+        sb.append(" * @row id, data.ID, The id\\\\, of the record.\n");
+        sb.append(" * @row name, data.NAME, The name of the record.\n");
+        sb.append(" */\n\n%dw 2.0\n\nimport * from dw::core::Strings\n\n");
+
+        for (int i = 0; i < variables; i++) {
+            sb.append("/**\n * Variable ").append(i).append(" of module ").append(index).append(".\n */\n");
+            sb.append("var value").append(i).append(" = \"value ").append(i).append("\"\n\n");
+        }
+
+        for (int i = 0; i < functions; i++) {
+            sb.append("/**\n");
+            sb.append(" * Maps the provided record to the result object number ").append(i).append(".\n");
+            sb.append(" * It spans a couple of lines like most real comments do.\n");
+            sb.append(" * @p data is the input record.\n");
+            sb.append(" * @p options is an object with the mapping options.\n");
+            sb.append(" * @r the mapped result.\n");
+            sb.append(" */\n");
+            sb.append("fun mapRecord").append(i).append("(data: Object, options) = {\n");
+            sb.append("    id: data.ID,\n    name: upper(data.NAME default \"\"),\n    index: ").append(i).append("\n}\n\n");
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * Builds a source text that used to be hard on the parser. It has
+     * lots of doc comments that aren't bound to declarations, followed
+     * by an unterminated doc comment and a large block of code.
+     * @param size is an int with the approximate number of chars of trailing code.
+     * @return A String with the source.
+     */
+    public static String pathological(int size) {
+        StringBuilder sb = new StringBuilder(module(0, 10, 50));
+        for (int i = 0; i < 5000; i++) {
+            sb.append("/** note ").append(i).append(" */ var unbound").append(i).append("Value = ").append(i).append(" ++ \"/* text */\"\n");
+            sb.append("/** stray comment ").append(i).append(" */\n(").append(i).append(")\n");
+        }
+        sb.append("/**\n * This comment is never closed.\n");
+        while (sb.length() < size) {
+            sb.append("fun code(data) = data map (item, index) -> { id: item.id, value: item.value }\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Writes the provided text to a temp file.
+     * @param dir is the directory to write to.
+     * @param name is a String with the file name.
+     * @param text is a String with the file contents.
+     * @return A String with the file name and path.
+     * @throws IOException on IO exception.
+     */
+    public static String write(File dir, String name, String text) throws IOException {
+        File f = new File(dir, name);
+        f.getParentFile().mkdirs();
+        Util.write(f.getPath(), text.getBytes(StandardCharsets.UTF_8), false);
+        return f.getPath();
+    }
+
+    /**
+     * Builds a parsed corpus with the provided number of modules.
+     * @param modules is an int with the number of modules.
+     * @return A List of DwFile objects.
+     * @throws IOException on IO exception.
+     */
+    public static List<DwFile> files(int modules) throws IOException {
+        File dir = tempDir();
+        KnitParser parser = new KnitParser();
+        List<DwFile> ret = new ArrayList<DwFile>();
+        for (int i = 0; i < modules; i++) {
+            String fileName = write(dir, "m" + (i % 100) + "/module" + i + ".dwl", module(i, 2, 5));
+            ret.add(parser.parseFile(dir.getPath(), fileName, "dwl"));
+        }
+        delete(dir);
+        return ret;
+    }
+
+    /**
+     * Creates a temp directory.
+     * @return A File with the temp directory.
+     * @throws IOException on IO exception.
+     */
+    public static File tempDir() throws IOException {
+        File dir = File.createTempFile("knit-bench", "");
+        dir.delete();
+        dir.mkdirs();
+        return dir;
+    }
+
+    /**
+     * Deletes the provided file or directory tree.
+     * @param f is the File to delete.
+     */
+    public static void delete(File f) {
+        File[] children = f.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        f.delete();
+    }
+}
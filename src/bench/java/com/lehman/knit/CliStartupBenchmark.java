@@ -0,0 +1,85 @@
+/*
+ * Copyright 2021 Roseville Code Inc. (austin@rosevillecode.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.lehman.knit;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the wall clock time of a full command line run, JVM startup
+ * included, by launching Main in a new process for each shot. The
+ * markdown and html cases show the startup cost without iText and the pdf case
+ * the cost once iText has to be loaded.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 10)
+@Fork(1)
+public class CliStartupBenchmark {
+    /**
+     * The output format to generate.
+     */
+    @Param({"markdown", "html", "pdf"})
+    public String format;
+
+    private File dir;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        this.dir = BenchCorpus.tempDir();
+        for (int i = 0; i < 10; i++) {
+            BenchCorpus.write(this.dir, "dw/module" + i + ".dwl", BenchCorpus.module(i, 5, 10));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchCorpus.delete(this.dir);
+    }
+
+    @Benchmark
+    public int run() throws IOException, InterruptedException {
+        List<String> cmd = Arrays.asList(
+                System.getProperty("java.home") + "/bin/java",
+                "-cp", System.getProperty("java.class.path"),
+                "com.lehman.knit.Main",
+                "--directories", "dw",
+                "--outputFormat", this.format,
+                "--outputFile", "target/knit-doc." + this.format,
+                "--parseCache=false",
+                "--upToDateCheck=false"
+        );
+        Process proc = new ProcessBuilder(cmd)
+                .directory(this.dir)
+                .redirectErrorStream(true)
+                .redirectOutput(new File(this.dir, "run.log"))
+                .start();
+        int ret = proc.waitFor();
+        if (ret != 0) {
+            throw new IllegalStateException("Main exited with " + ret);
+        }
+        return ret;
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2021 Roseville Code Inc. (austin@rosevillecode.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.lehman.knit;
+
+import java.io.OutputStream;
+
+/**
+ * Output stream that discards everything written to it and
+ * only counts the bytes.
+ */
+public class CountingOutputStream extends OutputStream {
+    /**
+     * The number of bytes written.
+     */
+    private long count = 0;
+
+    @Override
+    public void write(int b) {
+        this.count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        this.count += len;
+    }
+
+    /**
+     * Gets the number of bytes written.
+     * @return A long with the byte count.
+     */
+    public long getCount() {
+        return count;
+    }
+}
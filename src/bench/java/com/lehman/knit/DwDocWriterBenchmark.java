@@ -0,0 +1,73 @@
+/*
+ * Copyright 2021 Roseville Code Inc. (austin@rosevillecode.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.lehman.knit;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the Markdown, HTML, PDF, JSON and binary writers on synthetic corpora.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class DwDocWriterBenchmark {
+    /**
+     * The output format to write.
+     */
+    @Param({"markdown", "html", "pdf", "json", "binary"})
+    public String format;
+
+    /**
+     * The number of modules in the corpus.
+     */
+    @Param({"10", "1000", "10000"})
+    public int modules;
+
+    private List<DwFile> files;
+    private List<String> moduleNameList;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        this.files = BenchCorpus.files(this.modules);
+
+        // Order a few modules explicitly like a typical configuration does.
+        this.moduleNameList = new ArrayList<String>();
+        for (int i = 0; i < Math.min(10, this.modules); i++) {
+            this.moduleNameList.add("module" + (i * 7 % this.modules));
+        }
+    }
+
+    @Benchmark
+    public long writeDoc() throws IOException {
+        DwDocWriter writer = DwDocWriterRegistry.create(this.format);
+        writer.setOptions(true, "Benchmark header", "Benchmark footer");
+
+        CountingOutputStream out = new CountingOutputStream();
+        writer.writeDoc(this.files, this.moduleNameList, out);
+        return out.getCount();
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2021 Roseville Code Inc. (austin@rosevillecode.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.lehman.knit;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks KnitParser.parseFile on small, medium and pathological inputs.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KnitParserBenchmark {
+    /**
+     * The input to parse.
+     */
+    @Param({"small", "medium", "pathological"})
+    public String input;
+
+    private File dir;
+    private String fileName;
+    private KnitParser parser;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        String text;
+        if (this.input.equals("small")) {
+            text = BenchCorpus.module(0, 2, 5);
+        } else if (this.input.equals("medium")) {
+            text = BenchCorpus.module(0, 50, 200);
+        } else {
+            text = BenchCorpus.pathological(2 * 1024 * 1024);
+        }
+        this.dir = BenchCorpus.tempDir();
+        this.fileName = BenchCorpus.write(this.dir, "bench.dwl", text);
+        this.parser = new KnitParser();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchCorpus.delete(this.dir);
+    }
+
+    @Benchmark
+    public DwFile parseFile() throws IOException {
+        return this.parser.parseFile(this.dir.getPath(), this.fileName, "dwl");
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2021 Roseville Code Inc. (austin@rosevillecode.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.lehman.knit;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the cost of parsing a single documented declaration. Each
+ * invocation parses a module with DECLARATIONS doc commented variables
+ * and functions, and the score is reported per declaration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class KnitParserDeclarationBenchmark {
+    /**
+     * The number of declarations in the parsed module.
+     */
+    private static final int DECLARATIONS = 1000;
+
+    private File dir;
+    private String fileName;
+    private KnitParser parser;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        this.dir = BenchCorpus.tempDir();
+        this.fileName = BenchCorpus.write(this.dir, "bench.dwl", BenchCorpus.module(0, DECLARATIONS / 4, DECLARATIONS * 3 / 4));
+        this.parser = new KnitParser();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchCorpus.delete(this.dir);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(DECLARATIONS)
+    public DwFile parseDeclaration() throws IOException {
+        return this.parser.parseFile(this.dir.getPath(), this.fileName, "dwl");
+    }
+}
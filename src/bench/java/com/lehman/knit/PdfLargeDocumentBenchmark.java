@@ -0,0 +1,140 @@
+/*
+ * Copyright 2021 Roseville Code Inc. (austin@rosevillecode.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.lehman.knit;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import org.openjdk.jmh.annotations.*;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+import javax.management.openmbean.CompositeData;
+import java.io.IOException;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the PDF writer with and without the largeDocument option on
+ * large libraries. Along with the time of each document it reports the
+ * size of the PDF (fileBytes) and the peak heap still in use after a
+ * garbage collection while writing (peakHeapBytes). The parsed corpus is
+ * part of the peak heap in both cases. JMH sums these counters over the
+ * measurement iterations, so there's a single one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 1)
+@Fork(1)
+public class PdfLargeDocumentBenchmark {
+    /**
+     * The largeDocument writer option.
+     */
+    @Param({"false", "true"})
+    public boolean largeDocument;
+
+    /**
+     * The number of modules in the corpus.
+     */
+    @Param({"1000", "5000"})
+    public int modules;
+
+    private List<DwFile> files;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        this.files = BenchCorpus.files(this.modules);
+    }
+
+    @Benchmark
+    public long writeDoc(Stats stats) throws IOException {
+        PdfDwDocWriterOptions options = new PdfDwDocWriterOptions();
+        options.setWriteHeaderTable(true);
+        options.setOutputHeaderText("Benchmark header");
+        options.setOutputFooterText("Benchmark footer");
+        options.setLargeDocument(this.largeDocument);
+        DwDocWriter writer = new PdfDwDocWriterImpl();
+        writer.setOptions(options);
+
+        CountingOutputStream out = new CountingOutputStream();
+        stats.start();
+        try {
+            writer.writeDoc(this.files, new ArrayList<String>(), out);
+        } finally {
+            stats.stop();
+        }
+        stats.fileBytes = out.getCount();
+        return out.getCount();
+    }
+
+    /**
+     * Extra results of each document. The peak heap is the largest heap
+     * in use right after any garbage collection during the write.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Stats implements NotificationListener {
+        public long fileBytes;
+        public long peakHeapBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            this.fileBytes = 0;
+            this.peakHeapBytes = 0;
+        }
+
+        /**
+         * Starts listening to garbage collections.
+         */
+        void start() {
+            System.gc();
+            this.peakHeapBytes = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                ((NotificationEmitter) gc).addNotificationListener(this, null, null);
+            }
+        }
+
+        /**
+         * Stops listening to garbage collections.
+         */
+        void stop() {
+            for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+                try {
+                    ((NotificationEmitter) gc).removeNotificationListener(this);
+                } catch (Exception e) { }
+            }
+        }
+
+        @Override
+        public synchronized void handleNotification(Notification notification, Object handback) {
+            if (notification.getType().equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) {
+                GarbageCollectionNotificationInfo info = GarbageCollectionNotificationInfo.from((CompositeData) notification.getUserData());
+                long used = 0;
+                for (MemoryUsage usage : info.getGcInfo().getMemoryUsageAfterGc().values()) {
+                    used += usage.getUsed();
+                }
+                this.peakHeapBytes = Math.max(this.peakHeapBytes, used);
+            }
+        }
+    }
+}
@@ -17,13 +17,16 @@
 
 package com.lehman.knit;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 
 /**
  * Class that models a DW comment annotation table.
  */
-public class AnnotationTable {
+public class AnnotationTable implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     /**
      * The column names for the table.
      */
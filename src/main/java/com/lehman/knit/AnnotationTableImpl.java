@@ -17,7 +17,11 @@
 
 package com.lehman.knit;
 
-public class AnnotationTableImpl {
+import java.io.Serializable;
+
+public class AnnotationTableImpl implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     /**
      * Annotation table if set.
      */
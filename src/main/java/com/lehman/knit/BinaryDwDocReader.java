@@ -0,0 +1,327 @@
+/*
+ * Copyright 2021 Roseville Code Inc. (austin@rosevillecode.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.lehman.knit;
+
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads documents written by BinaryDwDocWriterImpl. The module index at
+ * the end of the document is read up front and modules are then decoded
+ * on request, so with a memory mapped file only the modules that are
+ * used are read. Modules can be read from multiple threads at once.
+ */
+public class BinaryDwDocReader {
+    /**
+     * The document bytes.
+     */
+    private ByteBuffer buffer;
+
+    /**
+     * The schema version of the document.
+     */
+    private int schemaVersion = 0;
+
+    /**
+     * The header text.
+     */
+    private String headerText = "";
+
+    /**
+     * The footer text.
+     */
+    private String footerText = "";
+
+    /**
+     * The offset of each module record.
+     */
+    private long[] offsets;
+
+    /**
+     * Constructor with the provided document bytes. This reads the
+     * document header and the module index.
+     * @param Buffer is a ByteBuffer with the document from position 0 to its limit.
+     * @throws IOException if it isn't a binary Knit document or its version isn't supported.
+     */
+    public BinaryDwDocReader(ByteBuffer Buffer) throws IOException {
+        this.buffer = Buffer.duplicate();
+        try {
+            ByteBuffer buff = this.buffer.duplicate();
+            if (!this.readMagic(buff, 0) || !this.readMagic(buff, buff.limit() - BinaryDwDocWriterImpl.MAGIC.length)) {
+                throw new IOException("Not a binary Knit document.");
+            }
+
+            ((Buffer) buff).position(BinaryDwDocWriterImpl.MAGIC.length);
+            this.schemaVersion = buff.getInt();
+            if (this.schemaVersion < 1 || this.schemaVersion > BinaryDwDocWriterImpl.SCHEMA_VERSION) {
+                throw new IOException("Binary Knit document schema version " + this.schemaVersion + " isn't supported.");
+            }
+            this.headerText = this.readString(buff);
+            this.footerText = this.readString(buff);
+
+            ((Buffer) buff).position(this.checkOffset(buff.getLong(buff.limit() - BinaryDwDocWriterImpl.MAGIC.length - 8)));
+            int count = buff.getInt();
+            if (count < 0 || count > buff.remaining() / 8) {
+                throw new IndexOutOfBoundsException("Module count " + count + " doesn't fit the document.");
+            }
+            this.offsets = new long[count];
+            for (int i = 0; i < this.offsets.length; i++) {
+                this.offsets[i] = this.checkOffset(buff.getLong());
+            }
+        } catch (RuntimeException e) {
+            // Buffer under flows and bad positions of a truncated document.
+            throw new IOException("Binary Knit document is corrupt.", e);
+        }
+    }
+
+    /**
+     * Opens the provided binary document file. The file is memory mapped.
+     * @param FileName is a String with the file to open.
+     * @return A BinaryDwDocReader object.
+     * @throws IOException on IO exception.
+     */
+    public static BinaryDwDocReader open(String FileName) throws IOException {
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(Paths.get(FileName), StandardOpenOption.READ);
+            return new BinaryDwDocReader(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            if (channel != null) {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Gets the schema version of the document.
+     * @return An int with the schema version.
+     */
+    public int getSchemaVersion() {
+        return schemaVersion;
+    }
+
+    /**
+     * Gets the header text.
+     * @return A String with the header text.
+     */
+    public String getHeaderText() {
+        return headerText;
+    }
+
+    /**
+     * Gets the footer text.
+     * @return A String with the footer text.
+     */
+    public String getFooterText() {
+        return footerText;
+    }
+
+    /**
+     * Gets the number of modules in the document.
+     * @return An int with the number of modules.
+     */
+    public int getModuleCount() {
+        return this.offsets.length;
+    }
+
+    /**
+     * Reads the module at the provided index.
+     * @param index is an int with the module index in document order.
+     * @return A DwFile object.
+     * @throws IOException if the module record is corrupt.
+     */
+    public DwFile readModule(int index) throws IOException {
+        ByteBuffer buff = this.buffer.duplicate();
+        try {
+            ((Buffer) buff).position((int) this.offsets[index]);
+            return this.readModule(buff);
+        } catch (RuntimeException e) {
+            throw new IOException("Binary Knit document module " + index + " is corrupt.", e);
+        }
+    }
+
+    /**
+     * Reads every module in document order.
+     * @return A List of DwFile objects.
+     * @throws IOException if a module record is corrupt.
+     */
+    public List<DwFile> readModules() throws IOException {
+        ArrayList<DwFile> ret = new ArrayList<DwFile>();
+        for (int i = 0; i < this.offsets.length; i++) {
+            ret.add(this.readModule(i));
+        }
+        return ret;
+    }
+
+    /**
+     * Reads a module record.
+     * @param buff is the ByteBuffer positioned at the record.
+     * @return A DwFile object.
+     */
+    private DwFile readModule(ByteBuffer buff) {
+        DwFile file = new DwFile();
+        file.setName(this.readString(buff));
+        file.setFileName(this.readString(buff));
+        file.setModulePath(this.readStrings(buff));
+        file.setComment(this.readComment(buff));
+        file.setTable(this.readTable(buff));
+
+        int count = buff.getInt();
+        for (int i = 0; i < count; i++) {
+            DwVariable var = new DwVariable();
+            var.setName(this.readString(buff));
+            var.setComment(this.readComment(buff));
+            var.setTable(this.readTable(buff));
+            file.getVariables().add(var);
+        }
+
+        count = buff.getInt();
+        for (int i = 0; i < count; i++) {
+            DwFunction fun = new DwFunction();
+            fun.setName(this.readString(buff));
+            int args = buff.getInt();
+            for (int j = 0; j < args; j++) {
+                fun.getArguments().add(new DwArgument(this.readString(buff), this.readString(buff)));
+            }
+            fun.setComment(this.readComment(buff));
+            fun.setTable(this.readTable(buff));
+            file.getFunctions().add(fun);
+        }
+
+        // Imports were added in version 2.
+        if (this.schemaVersion >= 2) {
+            count = buff.getInt();
+            for (int i = 0; i < count; i++) {
+                DwImport imp = new DwImport(this.readString(buff));
+                imp.setNames(this.readStrings(buff));
+                imp.setAlias(this.readString(buff));
+                file.getImports().add(imp);
+            }
+        }
+        return file;
+    }
+
+    /**
+     * Reads a comment record.
+     * @param buff is the ByteBuffer positioned at the record.
+     * @return A DwComment object.
+     */
+    private DwComment readComment(ByteBuffer buff) {
+        DwComment comment = new DwComment();
+        comment.setText(this.readString(buff));
+        int count = buff.getInt();
+        for (int i = 0; i < count; i++) {
+            DwCommentAnnotation ann = new DwCommentAnnotation();
+            ann.setName(this.readString(buff));
+            ann.setKey(this.readString(buff));
+            ann.setValue(this.readString(buff));
+            comment.getAnnotations().add(ann);
+        }
+        return comment;
+    }
+
+    /**
+     * Reads a table record.
+     * @param buff is the ByteBuffer positioned at the record.
+     * @return An AnnotationTable object or null if there's no table.
+     */
+    private AnnotationTable readTable(ByteBuffer buff) {
+        if (buff.get() == 0) {
+            return null;
+        }
+        AnnotationTable table = new AnnotationTable();
+        table.setColumns(this.readStrings(buff));
+        int count = buff.getInt();
+        for (int i = 0; i < count; i++) {
+            AnnotationRow row = new AnnotationRow();
+            row.setFields(this.readStrings(buff));
+            table.getRows().add(row);
+        }
+        return table;
+    }
+
+    /**
+     * Reads a count prefixed list of strings.
+     * @param buff is the ByteBuffer positioned at the list.
+     * @return An ArrayList of Strings.
+     */
+    private ArrayList<String> readStrings(ByteBuffer buff) {
+        int count = buff.getInt();
+        ArrayList<String> ret = new ArrayList<String>(Math.min(count, buff.remaining() / 4));
+        for (int i = 0; i < count; i++) {
+            ret.add(this.readString(buff));
+        }
+        return ret;
+    }
+
+    /**
+     * Reads a length prefixed UTF-8 string.
+     * @param buff is the ByteBuffer positioned at the string.
+     * @return A String or null.
+     */
+    private String readString(ByteBuffer buff) {
+        int len = buff.getInt();
+        if (len < 0) {
+            return null;
+        } else if (len > buff.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        byte[] bytes = new byte[len];
+        buff.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Checks if the magic bytes are at the provided position.
+     * @param buff is the ByteBuffer to check.
+     * @param pos is an int with the position.
+     * @return A boolean with true if the magic bytes are there.
+     */
+    private boolean readMagic(ByteBuffer buff, int pos) {
+        byte[] magic = BinaryDwDocWriterImpl.MAGIC;
+        if (pos < 0 || pos + magic.length > buff.limit()) {
+            return false;
+        }
+        byte[] bytes = new byte[magic.length];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buff.get(pos + i);
+        }
+        return Arrays.equals(bytes, magic);
+    }
+
+    /**
+     * Checks that an offset is within the document.
+     * @param offset is a long with the offset.
+     * @return An int with the offset.
+     */
+    private int checkOffset(long offset) {
+        if (offset < 0 || offset >= this.buffer.limit()) {
+            throw new IndexOutOfBoundsException("Offset " + offset + " is outside of the document.");
+        }
+        return (int) offset;
+    }
+}
@@ -0,0 +1,332 @@
+/*
+ * Copyright 2021 Roseville Code Inc. (austin@rosevillecode.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.lehman.knit;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes the parsed DW model in a compact binary format that's quick
+ * to load with BinaryDwDocReader. Modules are streamed one at a time
+ * and their offsets are written in an index at the end of the file, so
+ * a reader that maps the file can load any module without reading the
+ * ones before it. All numbers are big endian.
+ *
+ * <pre>
+ * file     = "KNIT" int:schemaVersion string:header string:footer module*
+ *            int:moduleCount long:moduleOffset* long:indexOffset "KNIT"
+ * string   = int:byteLength (-1 for null) UTF-8 bytes
+ * module   = string:name string:fileName strings:path comment table
+ *            int:count variable* int:count function* int:count import*
+ * variable = string:name comment table
+ * function = string:name int:count (string:name string:datatype)* comment table
+ * import   = string:module strings:names string:alias
+ * comment  = string:text int:count (string:name string:key string:value)*
+ * table    = byte:0 | byte:1 strings:columns int:count strings:fields*
+ * strings  = int:count string*
+ * </pre>
+ *
+ * Version 2 added the imports. BinaryDwDocReader still reads version 1
+ * documents, their modules have no imports.
+ */
+public class BinaryDwDocWriterImpl implements DwDocWriter {
+    /**
+     * The version of the binary format written.
+     */
+    public static final int SCHEMA_VERSION = 2;
+
+    /**
+     * The bytes the file starts and ends with.
+     */
+    public static final byte[] MAGIC = { 'K', 'N', 'I', 'T' };
+
+    private String outputHeaderText = "";
+    private String outputFooterText = "";
+
+    /**
+     * Sets the provided options for the doc writer. The header table
+     * option doesn't apply to the binary format.
+     * @param Options is the DwDocWriterOptions object to set.
+     */
+    @Override
+    public void setOptions(DwDocWriterOptions Options) {
+        this.outputHeaderText = Options.getOutputHeaderText();
+        this.outputFooterText = Options.getOutputFooterText();
+    }
+
+    /**
+     * Writes a binary document with the provided list of dwFile objects
+     * and returns the result.
+     * @param files is a List of dwFile objects to write.
+     * @return A byte array with the document.
+     */
+    @Override
+    public byte[] writeDoc(List<DwFile> files) {
+        return this.writeDoc(files, new ArrayList<String>());
+    }
+
+    /**
+     * Writes a binary document with the provided dwFile list and moduleNameList.
+     * @param files is a List of dwFile objects to write.
+     * @param moduleNameList is an optional list of module names that can
+     * be provided to specify the order of modules.
+     * @return A byte array with the document.
+     */
+    @Override
+    public byte[] writeDoc(List<DwFile> files, List<String> moduleNameList) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            this.writeDoc(files, moduleNameList, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Writes a binary document with the provided dwFile list and
+     * moduleNameList to the provided output stream one module at a time.
+     * @param files is a List of dwFile objects to write.
+     * @param moduleNameList is an optional list of module names that can
+     * be provided to specify the order of modules.
+     * @param os is the OutputStream to write the document to.
+     * @throws IOException on IO exception.
+     */
+    @Override
+    public void writeDoc(List<DwFile> files, List<String> moduleNameList, OutputStream os) throws IOException {
+        this.writeDoc(os, DwModuleIndex.order(files, moduleNameList), this.outputHeaderText, this.outputFooterText, true);
+    }
+
+    /**
+     * Gets the file extension of the documents this writer produces.
+     * @return A String with the file extension.
+     */
+    @Override
+    public String getFileExtension() {
+        return "knitb";
+    }
+
+    /**
+     * Writes a binary document with just the provided module.
+     * @param file is the dwFile object to write.
+     * @param os is the OutputStream to write the document to.
+     * @throws IOException on IO exception.
+     */
+    @Override
+    public void writeModuleDoc(DwFile file, OutputStream os) throws IOException {
+        ArrayList<DwFile> files = new ArrayList<DwFile>();
+        files.add(file);
+        this.writeDoc(os, files, "", "", true);
+    }
+
+    /**
+     * Writes the binary index document. It has the same format with each
+     * module holding only its name, file name and path. The module
+     * documents are found at the module path with the knitb extension.
+     * @param files is a List of dwFile objects to list.
+     * @param moduleNameList is an optional list of module names that can
+     * be provided to specify the order of modules.
+     * @param os is the OutputStream to write the document to.
+     * @throws IOException on IO exception.
+     */
+    @Override
+    public void writeIndexDoc(List<DwFile> files, List<String> moduleNameList, OutputStream os) throws IOException {
+        this.writeDoc(os, DwModuleIndex.order(files, moduleNameList), this.outputHeaderText, this.outputFooterText, false);
+    }
+
+    /**
+     * Writes a binary document with the provided modules.
+     * @param os is the OutputStream to write the document to.
+     * @param files is a List of dwFile objects in document order.
+     * @param header is a String with the header text.
+     * @param footer is a String with the footer text.
+     * @param declarations is a boolean with true to write the module
+     * comments and declarations and false for just the names.
+     * @throws IOException on IO exception.
+     */
+    private void writeDoc(OutputStream os, List<DwFile> files, String header, String footer, boolean declarations) throws IOException {
+        CountingStream counter = new CountingStream(new BufferedOutputStream(os));
+        DataOutputStream out = new DataOutputStream(counter);
+
+        out.write(MAGIC);
+        out.writeInt(SCHEMA_VERSION);
+        this.writeString(out, header);
+        this.writeString(out, footer);
+
+        long[] offsets = new long[files.size()];
+        for (int i = 0; i < files.size(); i++) {
+            offsets[i] = counter.count;
+            this.writeModule(out, files.get(i), declarations);
+        }
+
+        long indexOffset = counter.count;
+        out.writeInt(offsets.length);
+        for (long offset : offsets) {
+            out.writeLong(offset);
+        }
+        out.writeLong(indexOffset);
+        out.write(MAGIC);
+        out.flush();
+    }
+
+    /**
+     * Writes a module record.
+     * @param out is the DataOutputStream to write to.
+     * @param file is the dwFile object to write.
+     * @param declarations is a boolean with true to write the module
+     * comment and declarations and false to leave them empty.
+     * @throws IOException on IO exception.
+     */
+    private void writeModule(DataOutputStream out, DwFile file, boolean declarations) throws IOException {
+        this.writeString(out, file.getName());
+        this.writeString(out, file.getFileName());
+        this.writeStrings(out, file.getModulePath());
+
+        if (!declarations) {
+            this.writeComment(out, new DwComment());
+            this.writeTable(out, null);
+            out.writeInt(0);
+            out.writeInt(0);
+            out.writeInt(0);
+            return;
+        }
+
+        this.writeComment(out, file.getComment());
+        this.writeTable(out, file.getTable());
+
+        out.writeInt(file.getVariables().size());
+        for (DwVariable var : file.getVariables()) {
+            this.writeString(out, var.getName());
+            this.writeComment(out, var.getComment());
+            this.writeTable(out, var.getTable());
+        }
+
+        out.writeInt(file.getFunctions().size());
+        for (DwFunction fun : file.getFunctions()) {
+            this.writeString(out, fun.getName());
+            out.writeInt(fun.getArguments().size());
+            for (DwArgument arg : fun.getArguments()) {
+                this.writeString(out, arg.getName());
+                this.writeString(out, arg.getDatatype());
+            }
+            this.writeComment(out, fun.getComment());
+            this.writeTable(out, fun.getTable());
+        }
+
+        out.writeInt(file.getImports().size());
+        for (DwImport imp : file.getImports()) {
+            this.writeString(out, imp.getModuleName());
+            this.writeStrings(out, imp.getNames());
+            this.writeString(out, imp.getAlias());
+        }
+    }
+
+    /**
+     * Writes a comment record.
+     * @param out is the DataOutputStream to write to.
+     * @param comment is the DwComment to write.
+     * @throws IOException on IO exception.
+     */
+    private void writeComment(DataOutputStream out, DwComment comment) throws IOException {
+        this.writeString(out, comment.getText());
+        out.writeInt(comment.getAnnotations().size());
+        for (DwCommentAnnotation ann : comment.getAnnotations()) {
+            this.writeString(out, ann.getName());
+            this.writeString(out, ann.getKey());
+            this.writeString(out, ann.getValue());
+        }
+    }
+
+    /**
+     * Writes a table record.
+     * @param out is the DataOutputStream to write to.
+     * @param table is the AnnotationTable to write or null if there isn't one.
+     * @throws IOException on IO exception.
+     */
+    private void writeTable(DataOutputStream out, AnnotationTable table) throws IOException {
+        if (table == null) {
+            out.writeByte(0);
+            return;
+        }
+        out.writeByte(1);
+        this.writeStrings(out, table.getColumns());
+        out.writeInt(table.getRows().size());
+        for (AnnotationRow row : table.getRows()) {
+            this.writeStrings(out, row.getFields());
+        }
+    }
+
+    /**
+     * Writes a count prefixed list of strings.
+     * @param out is the DataOutputStream to write to.
+     * @param strs is a List of Strings to write.
+     * @throws IOException on IO exception.
+     */
+    private void writeStrings(DataOutputStream out, List<String> strs) throws IOException {
+        out.writeInt(strs.size());
+        for (String str : strs) {
+            this.writeString(out, str);
+        }
+    }
+
+    /**
+     * Writes a length prefixed UTF-8 string. Null is written with a length of -1.
+     * @param out is the DataOutputStream to write to.
+     * @param str is the String to write or null.
+     * @throws IOException on IO exception.
+     */
+    private void writeString(DataOutputStream out, String str) throws IOException {
+        if (str == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /**
+     * Output stream that counts the bytes written so module offsets are
+     * known. DataOutputStream's own count stops at Integer.MAX_VALUE.
+     */
+    private static class CountingStream extends FilterOutputStream {
+        private long count = 0;
+
+        /**
+         * Constructor with the stream to write to.
+         * @param Out is the OutputStream to write to.
+         */
+        public CountingStream(OutputStream Out) {
+            super(Out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            this.out.write(b);
+            this.count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            this.out.write(b, off, len);
+            this.count += len;
+        }
+    }
+}
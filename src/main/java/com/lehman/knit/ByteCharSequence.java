@@ -0,0 +1,116 @@
+/*
+ * Copyright 2021 Roseville Code Inc. (austin@rosevillecode.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.lehman.knit;
+
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Read only CharSequence view over a buffer of single byte characters.
+ * This lets the parser scan a memory mapped file directly without
+ * decoding it to a char array first. It must only be used for text
+ * that is known to be plain ASCII.
+ */
+public class ByteCharSequence implements CharSequence {
+    /**
+     * The buffer holding the characters.
+     */
+    private ByteBuffer buffer;
+
+    /**
+     * The offset of the first character within the buffer.
+     */
+    private int offset = 0;
+
+    /**
+     * The number of characters.
+     */
+    private int length = 0;
+
+    /**
+     * Constructor with the provided buffer. The view covers the
+     * buffer from its position to its limit.
+     * @param Buffer is a ByteBuffer with the ASCII text.
+     */
+    public ByteCharSequence(ByteBuffer Buffer) {
+        this(Buffer, Buffer.position(), Buffer.remaining());
+    }
+
+    /**
+     * Constructor with the provided buffer, offset and length.
+     * @param Buffer is a ByteBuffer with the ASCII text.
+     * @param Offset is an int with the offset of the first character.
+     * @param Length is an int with the number of characters.
+     */
+    private ByteCharSequence(ByteBuffer Buffer, int Offset, int Length) {
+        this.buffer = Buffer;
+        this.offset = Offset;
+        this.length = Length;
+    }
+
+    /**
+     * Gets the number of characters.
+     * @return An int with the length.
+     */
+    @Override
+    public int length() {
+        return this.length;
+    }
+
+    /**
+     * Gets the character at the provided index.
+     * @param index is an int with the index.
+     * @return A char with the character.
+     */
+    @Override
+    public char charAt(int index) {
+        if (index < 0 || index >= this.length) {
+            throw new IndexOutOfBoundsException("index " + index + ", length " + this.length);
+        }
+        return (char) (this.buffer.get(this.offset + index) & 0xff);
+    }
+
+    /**
+     * Gets a view of the provided range. The characters aren't copied.
+     * @param start is an int with the start index.
+     * @param end is an int with the end index. (exclusive)
+     * @return A CharSequence with the range.
+     */
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        if (start < 0 || end > this.length || start > end) {
+            throw new IndexOutOfBoundsException("start " + start + ", end " + end + ", length " + this.length);
+        }
+        return new ByteCharSequence(this.buffer, this.offset + start, end - start);
+    }
+
+    /**
+     * Gets the characters as a String.
+     * @return A String with the characters.
+     */
+    @Override
+    public String toString() {
+        byte[] bytes = new byte[this.length];
+        ByteBuffer dup = this.buffer.duplicate();
+        // Through Buffer so the class still runs on Java 8.
+        ((Buffer) dup).position(this.offset);
+        dup.get(bytes);
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright 2021 Roseville Code Inc. (austin@rosevillecode.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.lehman.knit;
+
+/**
+ * CharSequence that wraps another sequence and throws a
+ * KnitParseTimeoutException once a deadline has passed. The clock is
+ * only read every CHECK_INTERVAL chars, so scanning stays cheap and a
+ * runaway scan of any length is stopped close to the deadline.
+ */
+public class DeadlineCharSequence implements CharSequence {
+    /**
+     * The number of chars read between checks of the clock.
+     */
+    private static final int CHECK_INTERVAL = 4096;
+
+    /**
+     * The wrapped text.
+     */
+    private CharSequence text;
+
+    /**
+     * The deadline in System.nanoTime() units.
+     */
+    private long deadline = 0;
+
+    /**
+     * The chars read since the clock was last checked.
+     */
+    private int reads = 0;
+
+    /**
+     * Constructor with the provided text and deadline.
+     * @param Text is the CharSequence to wrap.
+     * @param Deadline is a long with the deadline in System.nanoTime() units.
+     */
+    public DeadlineCharSequence(CharSequence Text, long Deadline) {
+        this.text = Text;
+        this.deadline = Deadline;
+    }
+
+    /**
+     * Checks the deadline and throws if it has passed.
+     * @param offset is an int with the offset reached, it's reported in the exception.
+     * @throws KnitParseTimeoutException if the deadline has passed.
+     */
+    public void check(int offset) {
+        if (System.nanoTime() - this.deadline > 0) {
+            throw new KnitParseTimeoutException(offset);
+        }
+    }
+
+    /**
+     * Gets the number of characters.
+     * @return An int with the length.
+     */
+    @Override
+    public int length() {
+        return this.text.length();
+    }
+
+    /**
+     * Gets the character at the provided index. The deadline is
+     * checked every CHECK_INTERVAL calls.
+     * @param index is an int with the index.
+     * @return A char with the character.
+     */
+    @Override
+    public char charAt(int index) {
+        if (++this.reads >= CHECK_INTERVAL) {
+            this.reads = 0;
+            this.check(index);
+        }
+        return this.text.charAt(index);
+    }
+
+    /**
+     * Gets the provided range of the wrapped text. The range isn't
+     * checked against the deadline.
+     * @param start is an int with the start index.
+     * @param end is an int with the end index. (exclusive)
+     * @return A CharSequence with the range.
+     */
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return this.text.subSequence(start, end);
+    }
+
+    /**
+     * Gets the characters as a String.
+     * @return A String with the characters.
+     */
+    @Override
+    public String toString() {
+        return this.text.toString();
+    }
+}
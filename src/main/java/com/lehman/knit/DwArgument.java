@@ -17,10 +17,14 @@
 
 package com.lehman.knit;
 
+import java.io.Serializable;
+
 /**
  * Class models a function argument.
  */
-public class DwArgument {
+public class DwArgument implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     /**
      * The argument name.
      */
@@ -17,12 +17,15 @@
 
 package com.lehman.knit;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 
 /**
  * Class models a comment.
  */
-public class DwComment {
+public class DwComment implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     /**
      * The text of the comment.
      */
@@ -17,10 +17,14 @@
 
 package com.lehman.knit;
 
+import java.io.Serializable;
+
 /**
  * Class models a comment annotation.
  */
-public class DwCommentAnnotation {
+public class DwCommentAnnotation implements Serializable {
+    private static final long serialVersionUID = 1L;
+
     private String name = "";
     private String key = "";
     private String value = "";
@@ -17,6 +17,8 @@
 
 package com.lehman.knit;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 
 /**
@@ -24,16 +26,40 @@ import java.util.List;
  */
 public interface DwDocWriter {
     /**
-     * Sets the provided options for the doc writer.
+     * Sets the provided options for the doc writer. The options object is
+     * created by the writer's provider, so it may be a subclass with
+     * options specific to the writer.
+     * @param options is the DwDocWriterOptions object to set.
+     */
+    public void setOptions(DwDocWriterOptions options);
+
+    /**
+     * Sets the provided common options for the doc writer.
      * @param writeHeaderTable is a boolean with true to write header table and false for not.
      * @param outputHeaderText is a String with the header text.
      * @param outputFooterText is a String with the footer text.
      */
-    public void setOptions(
+    public default void setOptions(
         boolean writeHeaderTable,
         String outputHeaderText,
         String outputFooterText
-    );
+    ) {
+        DwDocWriterOptions options = new DwDocWriterOptions();
+        options.setWriteHeaderTable(writeHeaderTable);
+        options.setOutputHeaderText(outputHeaderText);
+        options.setOutputFooterText(outputFooterText);
+        this.setOptions(options);
+    }
+
+    /**
+     * Sets the index of all modules being documented. Writers resolve
+     * cross-references with it, which matters when a single module is
+     * written on its own with writeModuleDoc. Writers that aren't given
+     * an index build one from the files passed to writeDoc. Does nothing
+     * by default.
+     * @param index is the DwModuleIndex of all modules.
+     */
+    public default void setModuleIndex(DwModuleIndex index) { }
 
     /**
      * Writes a doc with the provided dwFile list.
@@ -50,4 +76,53 @@ public interface DwDocWriter {
      * @return A byte array with the document.
      */
     public byte[] writeDoc(List<DwFile> files, List<String> moduleNameList);
+
+    /**
+     * Writes a doc with the provided dwFile list and moduleNameList directly
+     * to the provided output stream as it's generated. The stream is
+     * flushed but not closed.
+     * @param files is a List of dwFile objects to write.
+     * @param moduleNameList is an optional list of module names that can
+     * be provided to specify the order of modules.
+     * @param out is the OutputStream to write the document to.
+     * @throws IOException on IO exception.
+     */
+    public void writeDoc(List<DwFile> files, List<String> moduleNameList, OutputStream out) throws IOException;
+
+    /**
+     * Gets the file extension of the documents this writer produces.
+     * @return A String with the file extension. (md)
+     */
+    public String getFileExtension();
+
+    /**
+     * Writes a doc for a single module to the provided output stream. This
+     * is used when writing a file per module. The stream is flushed but not closed.
+     * @param file is the dwFile object to write.
+     * @param out is the OutputStream to write the document to.
+     * @throws IOException on IO exception.
+     */
+    public void writeModuleDoc(DwFile file, OutputStream out) throws IOException;
+
+    /**
+     * Writes the index doc that links to each module file when writing a
+     * file per module. The index holds the header text, a table of modules
+     * and the footer text. The stream is flushed but not closed.
+     * @param files is a List of dwFile objects to list.
+     * @param moduleNameList is an optional list of module names that can
+     * be provided to specify the order of modules.
+     * @param out is the OutputStream to write the document to.
+     * @throws IOException on IO exception.
+     */
+    public void writeIndexDoc(List<DwFile> files, List<String> moduleNameList, OutputStream out) throws IOException;
+
+    /**
+     * Writes any supporting files the documents need, such as a style
+     * sheet, to the directory the documents are written to. This is called
+     * before the documents are written and does nothing by default.
+     * @param files is a List of dwFile objects being written.
+     * @param outputDirName is a String with the output directory.
+     * @throws IOException on IO exception.
+     */
+    public default void writeResources(List<DwFile> files, String outputDirName) throws IOException { }
 }
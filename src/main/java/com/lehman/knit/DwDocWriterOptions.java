@@ -0,0 +1,144 @@
+/*
+ * Copyright 2021 Roseville Code Inc. (austin@rosevillecode.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.lehman.knit;
+
+/**
+ * The options shared by every Knit document writer. A writer provider
+ * creates the options object for its writer, so writers with options of
+ * their own provide a subclass that also accepts those options by name
+ * through setProperty.
+ */
+public class DwDocWriterOptions {
+    private boolean writeHeaderTable = false;
+    private String outputHeaderText = "";
+    private String outputFooterText = "";
+    private boolean singleOutputFile = true;
+    private int parallelism = 1;
+    private boolean gzipOutput = false;
+
+    /**
+     * Gets the write header table flag.
+     * @return A boolean with true to write the header table and false for not.
+     */
+    public boolean isWriteHeaderTable() {
+        return writeHeaderTable;
+    }
+
+    /**
+     * Sets the write header table flag.
+     * @param writeHeaderTable is a boolean with true to write the header table and false for not.
+     */
+    public void setWriteHeaderTable(boolean writeHeaderTable) {
+        this.writeHeaderTable = writeHeaderTable;
+    }
+
+    /**
+     * Gets the header text.
+     * @return A String with the header text.
+     */
+    public String getOutputHeaderText() {
+        return outputHeaderText;
+    }
+
+    /**
+     * Sets the header text.
+     * @param outputHeaderText is a String with the header text.
+     */
+    public void setOutputHeaderText(String outputHeaderText) {
+        this.outputHeaderText = outputHeaderText;
+    }
+
+    /**
+     * Gets the footer text.
+     * @return A String with the footer text.
+     */
+    public String getOutputFooterText() {
+        return outputFooterText;
+    }
+
+    /**
+     * Sets the footer text.
+     * @param outputFooterText is a String with the footer text.
+     */
+    public void setOutputFooterText(String outputFooterText) {
+        this.outputFooterText = outputFooterText;
+    }
+
+    /**
+     * Gets the single output file flag.
+     * @return A boolean with true if a single document is written and false
+     * if a document is written for each module along with an index document.
+     */
+    public boolean isSingleOutputFile() {
+        return singleOutputFile;
+    }
+
+    /**
+     * Sets the single output file flag.
+     * @param singleOutputFile is a boolean with true if a single document is written
+     * and false if a document is written for each module along with an index document.
+     */
+    public void setSingleOutputFile(boolean singleOutputFile) {
+        this.singleOutputFile = singleOutputFile;
+    }
+
+    /**
+     * Gets the number of threads the writer may use to write a document.
+     * @return An int with the number of threads.
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
+    /**
+     * Sets the number of threads the writer may use to write a document.
+     * @param parallelism is an int with the number of threads.
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Gets the gzip output flag.
+     * @return A boolean with true to write a gzip compressed copy of each resource file.
+     */
+    public boolean isGzipOutput() {
+        return gzipOutput;
+    }
+
+    /**
+     * Sets the gzip output flag. Writers that write resource files next to
+     * the document also write a gzip compressed .gz copy of each of them.
+     * @param gzipOutput is a boolean with true to write the compressed copies.
+     */
+    public void setGzipOutput(boolean gzipOutput) {
+        this.gzipOutput = gzipOutput;
+    }
+
+    /**
+     * Sets a writer specific option by name. This is how the writerOptions
+     * configuration values reach the writer. The base options don't have
+     * any named options, subclasses override this to add theirs.
+     * @param name is a String with the option name.
+     * @param value is a String with the option value.
+     * @return A boolean with true if the option is known and false if not.
+     */
+    public boolean setProperty(String name, String value) {
+        return false;
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright 2021 Roseville Code Inc. (austin@rosevillecode.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.lehman.knit;
+
+/**
+ * Interface for a doc writer provider. Providers are registered in
+ * META-INF/services and found with a ServiceLoader, so a provider must
+ * not reference the classes of its writer until create is called.
+ * That keeps large writer dependencies such as iText from loading
+ * unless their format is used.
+ *
+ * Writers outside of Knit are added by putting a jar with a provider and
+ * its META-INF/services/com.lehman.knit.DwDocWriterProvider entry on the
+ * plugin class path. The format name is what's set as outputFormat.
+ */
+public interface DwDocWriterProvider {
+    /**
+     * Gets the name of the output format the provided writer writes.
+     * @return A String with the format name. (markdown)
+     */
+    public String getFormat();
+
+    /**
+     * Creates the options object for the writer. Writers with options of
+     * their own return a subclass of DwDocWriterOptions.
+     * @return A DwDocWriterOptions object.
+     */
+    public default DwDocWriterOptions createOptions() {
+        return new DwDocWriterOptions();
+    }
+
+    /**
+     * Creates a new doc writer.
+     * @return A DwDocWriter object.
+     */
+    public DwDocWriter create();
+}
@@ -0,0 +1,74 @@
+/*
+ * Copyright 2021 Roseville Code Inc. (austin@rosevillecode.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.lehman.knit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.ServiceLoader;
+
+/**
+ * Registry of the available doc writers. The writer providers are found
+ * with a ServiceLoader and a writer is only created, and its classes
+ * loaded, when its format is requested.
+ */
+public class DwDocWriterRegistry {
+    /**
+     * Creates a doc writer for the provided format.
+     * @param format is a String with the output format name.
+     * @return A DwDocWriter object or null if no provider supports the format.
+     */
+    public static DwDocWriter create(String format) {
+        DwDocWriterProvider provider = getProvider(format);
+        return provider != null ? provider.create() : null;
+    }
+
+    /**
+     * Gets the provider for the provided format.
+     * @param format is a String with the output format name to look for.
+     * @return A DwDocWriterProvider object or null if not found.
+     */
+    public static DwDocWriterProvider getProvider(String format) {
+        for (DwDocWriterProvider provider : load()) {
+            if (provider.getFormat().equals(format)) {
+                return provider;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the names of every registered output format.
+     * @return A List of Strings with the format names.
+     */
+    public static List<String> getFormats() {
+        ArrayList<String> ret = new ArrayList<String>();
+        for (DwDocWriterProvider provider : load()) {
+            ret.add(provider.getFormat());
+        }
+        return ret;
+    }
+
+    /**
+     * Loads the registered providers.
+     * @return A ServiceLoader of DwDocWriterProvider objects.
+     */
+    private static ServiceLoader<DwDocWriterProvider> load() {
+        // The plugin class loader, maven doesn't set it as the context class loader.
+        return ServiceLoader.load(DwDocWriterProvider.class, DwDocWriterRegistry.class.getClassLoader());
+    }
+}
@@ -25,6 +25,8 @@ import java.util.regex.Pattern;
  * Class models a dataweave file.
  */
 public class DwFile extends AnnotationTableImpl {
+    private static final long serialVersionUID = 1L;
+
     /**
      * The DW file name. (myModule)
      */
@@ -65,6 +67,11 @@ public class DwFile extends AnnotationTableImpl {
      */
     public ArrayList<DwVariable> variables = new ArrayList<DwVariable>();
 
+    /**
+     * List of module/file imports.
+     */
+    public ArrayList<DwImport> imports = new ArrayList<DwImport>();
+
     /**
      * Default constructor.
      */
@@ -216,6 +223,22 @@ public class DwFile extends AnnotationTableImpl {
         this.variables = variables;
     }
 
+    /**
+     * Gets the list of imports of the module/file.
+     * @return An ArrayList of DwImport objects in source order.
+     */
+    public ArrayList<DwImport> getImports() {
+        return imports;
+    }
+
+    /**
+     * Sets the list of imports of the module/file.
+     * @param imports is an ArrayList of DwImport objects.
+     */
+    public void setImports(ArrayList<DwImport> imports) {
+        this.imports = imports;
+    }
+
     /**
      * Helper toString function.
      * @return A String with the object representation.
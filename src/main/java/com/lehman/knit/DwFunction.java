@@ -23,6 +23,8 @@ import java.util.ArrayList;
  * Class models a dataweave function.
  */
 public class DwFunction extends AnnotationTableImpl {
+    private static final long serialVersionUID = 1L;
+
     /**
      * The comment string.
      */
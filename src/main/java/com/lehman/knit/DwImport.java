@@ -0,0 +1,120 @@
+/*
+ * Copyright 2021 Roseville Code Inc. (austin@rosevillecode.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.lehman.knit;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+
+/**
+ * Class models a module import. (import mapColor from dw::color::color)
+ */
+public class DwImport implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The qualified name of the imported module. (dw::color::color)
+     */
+    private String moduleName = "";
+
+    /**
+     * The imported names. This is * for a wildcard import and empty
+     * when the module itself is imported. (import dw::color::color)
+     */
+    private ArrayList<String> names = new ArrayList<String>();
+
+    /**
+     * The alias of the imported module if set. (import dw::color::color as c)
+     */
+    private String alias = "";
+
+    /**
+     * Default constructor.
+     */
+    public DwImport() { }
+
+    /**
+     * Constructor with the imported module name.
+     * @param ModuleName is a String with the qualified module name.
+     */
+    public DwImport(String ModuleName) { this.moduleName = ModuleName; }
+
+    /**
+     * Gets the qualified name of the imported module.
+     * @return A String with the module name.
+     */
+    public String getModuleName() {
+        return moduleName;
+    }
+
+    /**
+     * Sets the qualified name of the imported module.
+     * @param moduleName is a String with the module name.
+     */
+    public void setModuleName(String moduleName) {
+        this.moduleName = moduleName;
+    }
+
+    /**
+     * Gets the imported names.
+     * @return An ArrayList of Strings with the names, * for all of them.
+     */
+    public ArrayList<String> getNames() {
+        return names;
+    }
+
+    /**
+     * Sets the imported names.
+     * @param names is an ArrayList of Strings with the names.
+     */
+    public void setNames(ArrayList<String> names) {
+        this.names = names;
+    }
+
+    /**
+     * Gets the alias of the imported module.
+     * @return A String with the alias or blank if not set.
+     */
+    public String getAlias() {
+        return alias;
+    }
+
+    /**
+     * Sets the alias of the imported module.
+     * @param alias is a String with the alias.
+     */
+    public void setAlias(String alias) {
+        this.alias = alias;
+    }
+
+    /**
+     * Helper toString function.
+     * @return A String with the object representation.
+     */
+    @Override
+    public String toString() {
+        String rstr = "import ";
+        if (this.names.size() > 0) {
+            rstr += Util.join(", ", this.names) + " from ";
+        }
+        rstr += this.moduleName;
+        if (!this.alias.equals("")) {
+            rstr += " as " + this.alias;
+        }
+        return rstr;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2021 Roseville Code Inc. (austin@rosevillecode.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.lehman.knit;
+
+import java.util.*;
+
+/**
+ * Module dependency graph built from the imports of the parsed modules.
+ * The graph is built in a single pass over the modules. Each distinct
+ * imported module name is resolved against the module index once and
+ * reused for every module that imports it, so building the graph is
+ * linear in the number of imports. Imports of modules that weren't
+ * parsed, such as dw::core::Strings, aren't part of the graph.
+ */
+public class DwModuleGraph {
+    /**
+     * The modules in the order they were provided.
+     */
+    private List<DwFile> files;
+
+    /**
+     * The modules each module imports in import order.
+     */
+    private IdentityHashMap<DwFile, List<DwFile>> imports = new IdentityHashMap<DwFile, List<DwFile>>();
+
+    /**
+     * The modules that import each module in module order.
+     */
+    private IdentityHashMap<DwFile, List<DwFile>> importedBy = new IdentityHashMap<DwFile, List<DwFile>>();
+
+    /**
+     * Constructor that builds the graph of the provided module index.
+     * @param Index is the DwModuleIndex with the modules and the lookup
+     * imported module names are resolved with.
+     */
+    public DwModuleGraph(DwModuleIndex Index) {
+        this.files = Index.getFiles();
+
+        // Imported module names resolved so far, including misses.
+        HashMap<String, DwFile> resolved = new HashMap<String, DwFile>();
+        for (DwFile file : this.files) {
+            List<DwFile> targets = null;
+            for (DwImport imp : file.getImports()) {
+                DwFile target = resolved.get(imp.getModuleName());
+                if (target == null && !resolved.containsKey(imp.getModuleName())) {
+                    target = Index.getModule(imp.getModuleName());
+                    resolved.put(imp.getModuleName(), target);
+                }
+                if (target == null || target == file) {
+                    continue;
+                }
+
+                if (targets == null) {
+                    targets = new ArrayList<DwFile>(file.getImports().size());
+                    this.imports.put(file, targets);
+                }
+                if (!targets.contains(target)) {
+                    targets.add(target);
+                    List<DwFile> importers = this.importedBy.get(target);
+                    if (importers == null) {
+                        importers = new ArrayList<DwFile>(2);
+                        this.importedBy.put(target, importers);
+                    }
+                    importers.add(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Gets the parsed modules the provided module imports.
+     * @param file is the DwFile to get the imports of.
+     * @return A List of DwFile objects in import order, empty if there are none.
+     */
+    public List<DwFile> getImports(DwFile file) {
+        List<DwFile> ret = this.imports.get(file);
+        return ret != null ? ret : Collections.<DwFile>emptyList();
+    }
+
+    /**
+     * Gets the parsed modules that import the provided module.
+     * @param file is the DwFile to get the importers of.
+     * @return A List of DwFile objects in module order, empty if there are none.
+     */
+    public List<DwFile> getImportedBy(DwFile file) {
+        List<DwFile> ret = this.importedBy.get(file);
+        return ret != null ? ret : Collections.<DwFile>emptyList();
+    }
+
+    /**
+     * Gets the modules in dependency order, so every module comes after
+     * the modules it imports. Modules that don't depend on each other keep
+     * the order they were provided in. Import cycles are reported and the
+     * cycle is broken at the import that closes it.
+     * @return A List of DwFile objects in dependency order.
+     */
+    public List<DwFile> sort() {
+        ArrayList<DwFile> ret = new ArrayList<DwFile>(this.files.size());
+        IdentityHashMap<DwFile, Boolean> done = new IdentityHashMap<DwFile, Boolean>();
+
+        // Depth first with an explicit stack so long import chains can't overflow.
+        ArrayDeque<DwFile> stack = new ArrayDeque<DwFile>();
+        ArrayDeque<Integer> next = new ArrayDeque<Integer>();
+        for (DwFile root : this.files) {
+            if (done.containsKey(root)) {
+                continue;
+            }
+            done.put(root, Boolean.FALSE);
+            stack.push(root);
+            next.push(0);
+            while (!stack.isEmpty()) {
+                DwFile file = stack.peek();
+                int i = next.pop();
+                List<DwFile> deps = this.getImports(file);
+                if (i < deps.size()) {
+                    next.push(i + 1);
+                    DwFile dep = deps.get(i);
+                    Boolean state = done.get(dep);
+                    if (state == null) {
+                        done.put(dep, Boolean.FALSE);
+                        stack.push(dep);
+                        next.push(0);
+                    } else if (!state) {
+                        System.err.println("Warning: Modules '" + DwModuleIndex.getQualifiedName(file) + "' and '" + DwModuleIndex.getQualifiedName(dep) + "' are part of an import cycle, '" + DwModuleIndex.getQualifiedName(file) + "' is written first.");
+                    }
+                } else {
+                    stack.pop();
+                    done.put(file, Boolean.TRUE);
+                    ret.add(file);
+                }
+            }
+        }
+        return ret;
+    }
+}
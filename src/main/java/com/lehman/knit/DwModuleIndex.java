@@ -0,0 +1,261 @@
+/*
+ * Copyright 2021 Roseville Code Inc. (austin@rosevillecode.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.lehman.knit;
+
+import java.util.*;
+
+/**
+ * Index of parsed modules by name. Modules are found by their fully
+ * qualified name (dw::color::palette) or by their short name (palette).
+ * Short names can be shared by modules in different packages, so a
+ * short name finds all of them. The index is used to work out the
+ * module order from the moduleList configuration once for all writers
+ * and holds the symbol table that cross-references are resolved with.
+ */
+public class DwModuleIndex {
+    /**
+     * The modules in the order they were provided.
+     */
+    private List<DwFile> files;
+
+    /**
+     * Modules by short name.
+     */
+    private HashMap<String, List<DwFile>> byName = new HashMap<String, List<DwFile>>();
+
+    /**
+     * Modules by fully qualified name.
+     */
+    private HashMap<String, DwFile> byQualifiedName = new HashMap<String, DwFile>();
+
+    /**
+     * Modules, functions and variables by fully qualified name. This is
+     * built the first time a reference is resolved.
+     */
+    private HashMap<String, DwSymbol> symbols = null;
+
+    /**
+     * The import graph of the modules. This is built the first time it's requested.
+     */
+    private DwModuleGraph graph = null;
+
+    /**
+     * Constructor with the modules to index.
+     * @param Files is a List of DwFile objects to index.
+     */
+    public DwModuleIndex(List<DwFile> Files) {
+        this.files = Files;
+        for (DwFile file : Files) {
+            List<DwFile> named = this.byName.get(file.getName());
+            if (named == null) {
+                named = new ArrayList<DwFile>(1);
+                this.byName.put(file.getName(), named);
+            }
+            named.add(file);
+
+            String qualified = getQualifiedName(file);
+            if (!this.byQualifiedName.containsKey(qualified)) {
+                this.byQualifiedName.put(qualified, file);
+            }
+        }
+    }
+
+    /**
+     * Gets the modules in document order. This is the convenience used
+     * by the writers, when there's no module name list the files are
+     * already in order and no index is built.
+     * @param files is a List of DwFile objects to order.
+     * @param moduleNameList is a List of Strings with the module names to put first.
+     * @return A List of DwFile objects in document order.
+     */
+    public static List<DwFile> order(List<DwFile> files, List<String> moduleNameList) {
+        if (moduleNameList == null || moduleNameList.isEmpty()) {
+            return files;
+        }
+        return new DwModuleIndex(files).order(moduleNameList);
+    }
+
+    /**
+     * Gets the fully qualified name of the provided module. (dw::color::palette)
+     * @param file is the DwFile to get the name of.
+     * @return A String with the qualified name, or the module name if there's no module path.
+     */
+    public static String getQualifiedName(DwFile file) {
+        return file.getModulePath().size() > 0 ? Util.join("::", file.getModulePath()) : file.getName();
+    }
+
+    /**
+     * Gets the indexed modules.
+     * @return A List of DwFile objects in the order they were provided.
+     */
+    public List<DwFile> getFiles() {
+        return this.files;
+    }
+
+    /**
+     * Gets the module with the provided fully qualified name.
+     * @param qualifiedName is a String with the qualified module name. (dw::color::color)
+     * @return A DwFile object or null if there's no such module.
+     */
+    public DwFile getModule(String qualifiedName) {
+        return this.byQualifiedName.get(qualifiedName);
+    }
+
+    /**
+     * Gets the import graph of the indexed modules. The graph is built
+     * the first time it's requested and then reused.
+     * @return A DwModuleGraph object.
+     */
+    public synchronized DwModuleGraph getGraph() {
+        if (this.graph == null) {
+            this.graph = new DwModuleGraph(this);
+        }
+        return this.graph;
+    }
+
+    /**
+     * Gets the modules with the provided name. A fully qualified name
+     * finds that module and a short name finds every module with that name.
+     * @param name is a String with the qualified or short module name.
+     * @return A List of DwFile objects in the order they were provided, empty if not found.
+     */
+    public List<DwFile> get(String name) {
+        DwFile file = this.byQualifiedName.get(name);
+        if (file != null) {
+            return Collections.singletonList(file);
+        }
+        List<DwFile> named = this.byName.get(name);
+        return named != null ? named : Collections.<DwFile>emptyList();
+    }
+
+    /**
+     * Gets the modules in document order. The modules named in the provided
+     * module name list come first in that order followed by the rest in the
+     * order they were provided. Each module is in the result once and names
+     * that aren't found are reported.
+     * @param moduleNameList is a List of Strings with the module names to put first.
+     * @return A List of DwFile objects in document order.
+     */
+    public List<DwFile> order(List<String> moduleNameList) {
+        ArrayList<DwFile> ret = new ArrayList<DwFile>(this.files.size());
+        Set<DwFile> placed = Collections.newSetFromMap(new IdentityHashMap<DwFile, Boolean>());
+
+        for (String modName : moduleNameList) {
+            List<DwFile> found = this.get(modName);
+            if (found.isEmpty()) {
+                System.err.println("Warning: Module name '" + modName + "' was supplied in moduleNameList but was not found parsed file list.");
+            }
+            for (DwFile file : found) {
+                if (placed.add(file)) {
+                    ret.add(file);
+                }
+            }
+        }
+
+        for (DwFile file : this.files) {
+            if (!placed.contains(file)) {
+                ret.add(file);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Resolves the provided reference to a module, function or variable.
+     * The reference can be a qualified module name (dw::color::color), a
+     * qualified declaration (dw::color::color::mapColor), a short module
+     * name or short module name and declaration when the short name is
+     * unique (color::mapColor), or a declaration of the provided module.
+     * @param ref is a String with the reference to resolve.
+     * @param from is the DwFile the reference is made from or null.
+     * @return A DwSymbol object or null if the reference doesn't resolve.
+     */
+    public DwSymbol resolve(String ref, DwFile from) {
+        ref = ref.trim();
+        HashMap<String, DwSymbol> symbols = this.getSymbols();
+
+        DwSymbol ret = symbols.get(ref);
+        if (ret != null) {
+            return ret;
+        }
+
+        int sep = ref.lastIndexOf("::");
+        if (sep < 0) {
+            List<DwFile> named = this.byName.get(ref);
+            if (named != null && named.size() == 1) {
+                return symbols.get(getQualifiedName(named.get(0)));
+            }
+            return from != null ? symbols.get(getQualifiedName(from) + "::" + ref) : null;
+        }
+
+        List<DwFile> named = this.byName.get(ref.substring(0, sep));
+        if (named != null && named.size() == 1) {
+            return symbols.get(getQualifiedName(named.get(0)) + ref.substring(sep));
+        }
+        return null;
+    }
+
+    /**
+     * Gets the symbol table, building it the first time. Module files can
+     * be written in parallel, so this is synchronized.
+     * @return A HashMap of DwSymbol objects by qualified name.
+     */
+    private synchronized HashMap<String, DwSymbol> getSymbols() {
+        if (this.symbols == null) {
+            this.symbols = this.buildSymbols();
+        }
+        return this.symbols;
+    }
+
+    /**
+     * Builds the symbol table of the indexed modules and their functions
+     * and variables. Modules take precedence over declarations with the
+     * same qualified name and the first of overloaded functions is used.
+     * @return A HashMap of DwSymbol objects by qualified name.
+     */
+    private HashMap<String, DwSymbol> buildSymbols() {
+        HashMap<String, DwSymbol> ret = new HashMap<String, DwSymbol>();
+        for (Map.Entry<String, DwFile> entry : this.byQualifiedName.entrySet()) {
+            ret.put(entry.getKey(), new DwSymbol(entry.getValue(), "", Util.getModuleAnchor(entry.getValue())));
+        }
+        for (DwFile file : this.byQualifiedName.values()) {
+            String qualified = getQualifiedName(file);
+            for (DwVariable var : file.getVariables()) {
+                this.addSymbol(ret, file, qualified, var.getName());
+            }
+            for (DwFunction fun : file.getFunctions()) {
+                this.addSymbol(ret, file, qualified, fun.getName());
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Adds a declaration symbol unless the qualified name is already taken.
+     * @param symbols is the HashMap of symbols to add to.
+     * @param file is the DwFile the declaration is in.
+     * @param qualified is a String with the qualified module name.
+     * @param name is a String with the declaration name.
+     */
+    private void addSymbol(HashMap<String, DwSymbol> symbols, DwFile file, String qualified, String name) {
+        String key = qualified + "::" + name;
+        if (!symbols.containsKey(key)) {
+            symbols.put(key, new DwSymbol(file, name, Util.getDeclarationAnchor(file, name)));
+        }
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ * Copyright 2021 Roseville Code Inc. (austin@rosevillecode.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.lehman.knit;
+
+/**
+ * Class models a discovered DW source file that is waiting to be parsed.
+ */
+public class DwSourceFile {
+    /**
+     * The root directory the file was found in.
+     */
+    private String rootDirName = "";
+
+    /**
+     * The file name and path to read.
+     */
+    private String fileName = "";
+
+    /**
+     * Constructor with the provided root directory and file name.
+     * @param RootDirName is a String with the root directory of the file.
+     * @param FileName is a String with the file name and path.
+     */
+    public DwSourceFile(String RootDirName, String FileName) {
+        this.rootDirName = RootDirName;
+        this.fileName = FileName;
+    }
+
+    /**
+     * Gets the root directory the file was found in.
+     * @return A String with the root directory.
+     */
+    public String getRootDirName() {
+        return rootDirName;
+    }
+
+    /**
+     * Gets the file name and path.
+     * @return A String with the file name and path.
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+    /**
+     * Helper toString function.
+     * @return A String with the object representation.
+     */
+    @Override
+    public String toString() {
+        return this.fileName;
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2021 Roseville Code Inc. (austin@rosevillecode.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.lehman.knit;
+
+/**
+ * Class models a resolved symbol of the module index. A symbol is either
+ * a module or a function or variable declared in a module, and carries
+ * the anchor writers use to link to it.
+ */
+public class DwSymbol {
+    /**
+     * The module the symbol is in.
+     */
+    private DwFile file = null;
+
+    /**
+     * The declaration name or blank for the module itself.
+     */
+    private String declarationName = "";
+
+    /**
+     * The anchor of the symbol. (dw-color-palette.mapPalette)
+     */
+    private String anchor = "";
+
+    /**
+     * Constructor with the provided module, declaration name and anchor.
+     * @param File is the DwFile the symbol is in.
+     * @param DeclarationName is a String with the declaration name or blank for the module.
+     * @param Anchor is a String with the anchor of the symbol.
+     */
+    public DwSymbol(DwFile File, String DeclarationName, String Anchor) {
+        this.file = File;
+        this.declarationName = DeclarationName;
+        this.anchor = Anchor;
+    }
+
+    /**
+     * Gets the module the symbol is in.
+     * @return A DwFile object.
+     */
+    public DwFile getFile() {
+        return file;
+    }
+
+    /**
+     * Gets the declaration name.
+     * @return A String with the declaration name or blank for the module itself.
+     */
+    public String getDeclarationName() {
+        return declarationName;
+    }
+
+    /**
+     * Gets the anchor of the symbol.
+     * @return A String with the anchor.
+     */
+    public String getAnchor() {
+        return anchor;
+    }
+
+    /**
+     * Gets the fully qualified name of the symbol. (dw::color::palette::mapPalette)
+     * @return A String with the qualified name.
+     */
+    public String getQualifiedName() {
+        String module = DwModuleIndex.getQualifiedName(this.file);
+        return this.declarationName.equals("") ? module : module + "::" + this.declarationName;
+    }
+
+    /**
+     * Gets the link to the symbol from the document of the provided module.
+     * @param from is the DwFile of the document the link is written in.
+     * @param ext is a String with the file extension of the module documents.
+     * @param linkToFiles is a boolean with true when each module is written
+     * to its own file and false for a single document.
+     * @return A String with the link.
+     */
+    public String getLink(DwFile from, String ext, boolean linkToFiles) {
+        if (!linkToFiles || this.file == from) {
+            return "#" + this.anchor;
+        }
+        return Util.getModuleRootPrefix(from) + Util.getModuleFileName(this.file, ext) + "#" + this.anchor;
+    }
+
+    /**
+     * Helper toString function.
+     * @return A String with the object representation.
+     */
+    @Override
+    public String toString() {
+        return this.getQualifiedName();
+    }
+}
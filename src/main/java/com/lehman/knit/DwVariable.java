@@ -21,6 +21,8 @@ package com.lehman.knit;
  * Class models a dataweave variable.
  */
 public class DwVariable extends AnnotationTableImpl {
+    private static final long serialVersionUID = 1L;
+
     private String commentString = "";
     private DwComment comment = new DwComment();
     private String name = "";
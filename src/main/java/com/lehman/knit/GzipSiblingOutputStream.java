@@ -0,0 +1,107 @@
+/*
+ * Copyright 2021 Roseville Code Inc. (austin@rosevillecode.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.lehman.knit;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Output stream that writes a file and a gzip compressed copy of it
+ * next to it with a .gz extension in one pass. The compressed copy
+ * is what static web servers send to clients that accept gzip, so
+ * it's compressed with the best compression level.
+ */
+public class GzipSiblingOutputStream extends OutputStream {
+    /**
+     * The size of the compression buffer.
+     */
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private OutputStream out = null;
+    private GZIPOutputStream gzOut = null;
+
+    /**
+     * Constructor with the file name to write. The compressed copy
+     * is written to the file name with .gz appended.
+     * @param FileName is a String with the file name to write.
+     * @throws IOException on IO exception.
+     */
+    public GzipSiblingOutputStream(String FileName) throws IOException {
+        this.out = new FileOutputStream(FileName);
+        try {
+            this.gzOut = new GZIPOutputStream(new FileOutputStream(FileName + ".gz"), BUFFER_SIZE) {
+                {
+                    this.def.setLevel(Deflater.BEST_COMPRESSION);
+                }
+            };
+        } catch (IOException e) {
+            this.out.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Writes a single byte to the file and the compressed copy.
+     * @param b is an int with the byte to write.
+     * @throws IOException on IO exception.
+     */
+    @Override
+    public void write(int b) throws IOException {
+        this.out.write(b);
+        this.gzOut.write(b);
+    }
+
+    /**
+     * Writes the provided bytes to the file and the compressed copy.
+     * @param b is the byte array to write from.
+     * @param off is an int with the offset of the first byte.
+     * @param len is an int with the number of bytes to write.
+     * @throws IOException on IO exception.
+     */
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        this.out.write(b, off, len);
+        this.gzOut.write(b, off, len);
+    }
+
+    /**
+     * Flushes the file. The compressed copy is only flushed when it's
+     * closed so that flushing doesn't cost compression.
+     * @throws IOException on IO exception.
+     */
+    @Override
+    public void flush() throws IOException {
+        this.out.flush();
+    }
+
+    /**
+     * Finishes the compressed copy and closes both files.
+     * @throws IOException on IO exception.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            this.gzOut.close();
+        } finally {
+            this.out.close();
+        }
+    }
+}
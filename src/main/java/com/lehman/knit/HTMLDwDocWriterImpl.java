@@ -17,18 +17,43 @@
 
 package com.lehman.knit;
 
+import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 public class HTMLDwDocWriterImpl implements DwDocWriter {
+    /**
+     * The directory next to the document the lazy module scripts are written to.
+     */
+    public static final String MODULES_DIR_NAME = "knit-modules";
+
     private String br = "<br/>";
+
+    // Line break between tags, blank when minified.
+    private String nl = System.lineSeparator();
+    private boolean minify = false;
+    private boolean gzipOutput = false;
+
+    // Loads the modules of a single output file on demand.
+    private boolean lazyModules = false;
     private boolean writeHeaderTable = false;
     private String outputHeaderText = "";
     private String outputFooterText = "";
 
     // CSS file name
-    private String cssFileName = "knit-style.css";
+    private String cssFileName = HtmlDwDocWriterOptions.DEFAULT_CSS_FILE_NAME;
+
+    // Writes the default style sheet unless a CSS file was set.
+    private boolean writeDefaultCss = true;
+
+    // Writes the search index and adds the search box.
+    private boolean searchIndex = false;
+    private boolean singleOutputFile = true;
+
+    // Index of all modules for resolving cross-references.
+    private DwModuleIndex moduleIndex = null;
 
     /**
      * Gets the current CSS file name.
@@ -39,24 +64,45 @@ public class HTMLDwDocWriterImpl implements DwDocWriter {
     }
 
     /**
-     * Sets the CSS file name.
+     * Sets the CSS file name. Once set the default style sheet isn't written.
      * @param cssFileName is a String with the CSS file name to set.
      */
     public void setCssFileName(String cssFileName) {
         this.cssFileName = cssFileName;
+        this.writeDefaultCss = false;
     }
 
     /**
      * Sets the provided options for the doc writer.
-     * @param WriteHeaderTable is a boolean with True to write the header table and false to not.
-     * @param OutputHeaderText is a String with the header text.
-     * @param OutputFooterText is a String with the footer text.
+     * @param Options is the DwDocWriterOptions object to set.
+     */
+    @Override
+    public void setOptions(DwDocWriterOptions Options) {
+        this.writeHeaderTable = Options.isWriteHeaderTable();
+        this.outputHeaderText = Options.getOutputHeaderText();
+        this.outputFooterText = Options.getOutputFooterText();
+        this.singleOutputFile = Options.isSingleOutputFile();
+        this.gzipOutput = Options.isGzipOutput();
+        if (Options instanceof HtmlDwDocWriterOptions) {
+            String css = ((HtmlDwDocWriterOptions) Options).getCssFileName();
+            if (!css.equals("")) {
+                this.setCssFileName(css);
+            }
+            this.searchIndex = ((HtmlDwDocWriterOptions) Options).isSearchIndex();
+            this.minify = ((HtmlDwDocWriterOptions) Options).isMinify();
+            this.lazyModules = ((HtmlDwDocWriterOptions) Options).isLazyModules();
+        }
+        this.br = this.minify ? "<br>" : "<br/>";
+        this.nl = this.minify ? "" : System.lineSeparator();
+    }
+
+    /**
+     * Sets the index of all modules being documented.
+     * @param index is the DwModuleIndex of all modules.
      */
     @Override
-    public void setOptions(boolean WriteHeaderTable, String OutputHeaderText, String OutputFooterText) {
-        this.writeHeaderTable = WriteHeaderTable;
-        this.outputHeaderText = OutputHeaderText;
-        this.outputFooterText = OutputFooterText;
+    public void setModuleIndex(DwModuleIndex index) {
+        this.moduleIndex = index;
     }
 
     /**
@@ -79,255 +125,599 @@ public class HTMLDwDocWriterImpl implements DwDocWriter {
      */
     @Override
     public byte[] writeDoc(List<DwFile> files, List<String> moduleNameList) {
-        String ret = "<html>" + System.lineSeparator();
-        ret += "<head>" + System.lineSeparator();
-        ret += "<title>Knit DW Documentation</title>" + System.lineSeparator();
-        ret += "<link rel=\"stylesheet\" href=\"" + this.cssFileName + "\">" + System.lineSeparator();
-        ret += "</head>" + System.lineSeparator();
-        ret += "<body>" + System.lineSeparator();
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            this.writeDoc(files, moduleNameList, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Writes a doc with the provided dwFile list and moduleNameList to the
+     * provided output stream one module at a time. With lazy modules the
+     * header table is always written and each module is a placeholder
+     * that the module loader fills in from the module scripts.
+     * @param files is a List of dwFile objects to write.
+     * @param moduleNameList is an optional list of module names that can
+     * be provided to specify the order of modules.
+     * @param os is the OutputStream to write the document to.
+     * @throws IOException on IO exception.
+     */
+    @Override
+    public void writeDoc(List<DwFile> files, List<String> moduleNameList, OutputStream os) throws IOException {
+        Writer out = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8));
+
+        this.writeHead(out, "Knit DW Documentation", this.cssFileName, "");
+        if (this.lazyModules) {
+            out.write("<script src=\"" + MODULES_DIR_NAME + "/knit-modules.js\" defer></script>" + this.nl);
+        }
 
         // If header text is set.
         if (!this.outputHeaderText.equals("")) {
-            ret += "<div class=\"output-header-section\">" + this.outputHeaderText + "</div>" + this.br + System.lineSeparator();
+            out.write("<div class=\"output-header-section\">" + this.outputHeaderText + "</div>" + this.br + this.nl);
         }
 
-        // If write header table is set.
-        if (this.writeHeaderTable) {
-            ret += "<div class=\"output-header-table-section\">" + this.writeHeaderTable(files, moduleNameList) + "</div>" + this.br;
+        // Modules in moduleNameList order followed by the rest.
+        List<DwFile> modules = DwModuleIndex.order(files, moduleNameList);
+
+        // If write header table is set. Lazy modules are navigated with it.
+        if (this.writeHeaderTable || this.lazyModules) {
+            out.write("<div class=\"output-header-table-section\">");
+            this.writeHeaderTable(out, modules, false);
+            out.write("</div>" + this.br);
         }
 
-        // Go through the module list first and add them in order.
-        for (String modName : moduleNameList) {
-            DwFile modFile = this.getFileByModuleName(files, modName);
-            if (modFile != null) {
-                ret += this.writeDoc(modFile) + this.br + System.lineSeparator();
+        DwModuleIndex index = this.moduleIndex != null ? this.moduleIndex : new DwModuleIndex(files);
+        for (DwFile dwf : modules) {
+            if (this.lazyModules) {
+                this.writeModulePlaceholder(out, dwf);
             } else {
-                System.err.println("Warning: Module name '" + modName + "' was supplied in moduleNameList but was not found parsed file list.");
+                this.writeDoc(out, dwf, index, false);
             }
+            out.write(this.br + this.nl);
         }
 
-        // Iterate the rest.
-        for (DwFile dwf : files) {
-            if (!moduleNameList.contains(dwf.getName())) {
-                ret += this.writeDoc(dwf) + this.br + System.lineSeparator();
-            }
+        // If footer text is set.
+        if (!this.outputFooterText.equals("")) {
+            out.write("<div class=\"output-footer-section\">" + this.outputFooterText + "</div>" + this.br + this.nl);
         }
 
+        out.write("</body>" + this.nl);
+        out.write("</html>" + this.nl);
+        out.flush();
+    }
+
+    /**
+     * Gets the file extension of the documents this writer produces.
+     * @return A String with the file extension.
+     */
+    @Override
+    public String getFileExtension() {
+        return "html";
+    }
+
+    /**
+     * Writes an HTML formatted document for a single module to the provided
+     * output stream. A relative CSS file name is adjusted so that it still
+     * resolves from the module's sub directory.
+     * @param file is the dwFile object to write.
+     * @param os is the OutputStream to write the document to.
+     * @throws IOException on IO exception.
+     */
+    @Override
+    public void writeModuleDoc(DwFile file, OutputStream os) throws IOException {
+        Writer out = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8));
+
+        String rootPrefix = Util.getModuleRootPrefix(file);
+        String cssHref = this.cssFileName;
+        if (!cssHref.startsWith("/") && !cssHref.contains("://")) {
+            cssHref = rootPrefix + cssHref;
+        }
+        this.writeHead(out, file.getName(), cssHref, rootPrefix);
+        DwModuleIndex index = this.moduleIndex != null ? this.moduleIndex : new DwModuleIndex(Collections.singletonList(file));
+        this.writeDoc(out, file, index, true);
+        out.write("</body>" + this.nl);
+        out.write("</html>" + this.nl);
+        out.flush();
+    }
+
+    /**
+     * Writes the HTML formatted index document with the header text,
+     * a table linking to each module file and the footer text.
+     * @param files is a List of dwFile objects to list.
+     * @param moduleNameList is an optional list of module names that can
+     * be provided to specify the order of modules.
+     * @param os is the OutputStream to write the document to.
+     * @throws IOException on IO exception.
+     */
+    @Override
+    public void writeIndexDoc(List<DwFile> files, List<String> moduleNameList, OutputStream os) throws IOException {
+        Writer out = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8));
+
+        this.writeHead(out, "Knit DW Documentation", this.cssFileName, "");
+
+        // If header text is set.
+        if (!this.outputHeaderText.equals("")) {
+            out.write("<div class=\"output-header-section\">" + this.outputHeaderText + "</div>" + this.br + this.nl);
+        }
+
+        out.write("<div class=\"output-header-table-section\">");
+        this.writeHeaderTable(out, DwModuleIndex.order(files, moduleNameList), true);
+        out.write("</div>" + this.br);
+
         // If footer text is set.
         if (!this.outputFooterText.equals("")) {
-            ret += "<div class=\"output-footer-section\">" + this.outputFooterText + "</div>" + this.br + System.lineSeparator();
+            out.write("<div class=\"output-footer-section\">" + this.outputFooterText + "</div>" + this.br + this.nl);
         }
 
-        ret += "</body>" + System.lineSeparator();
-        ret += "</html>" + System.lineSeparator();
-        return ret.getBytes(StandardCharsets.UTF_8);
+        out.write("</body>" + this.nl);
+        out.write("</html>" + this.nl);
+        out.flush();
     }
 
     /**
-     * Writes a Markdown formatted document with the provided dwFile object and
-     * returns a String with the result.
+     * Writes the opening html, the head section and the opening body tag.
+     * When the search index is written this also adds the search script
+     * and the search box.
+     * @param out is the Writer to append to.
+     * @param title is a String with the document title.
+     * @param cssHref is a String with the style sheet link.
+     * @param rootPrefix is a String with the relative path to the output directory.
+     * @throws IOException on IO exception.
+     */
+    private void writeHead(Writer out, String title, String cssHref, String rootPrefix) throws IOException {
+        out.write("<html>" + this.nl);
+        out.write("<head>" + this.nl);
+        out.write("<title>" + title + "</title>" + this.nl);
+        out.write("<link rel=\"stylesheet\" href=\"" + cssHref + "\">" + this.nl);
+        if (this.searchIndex) {
+            out.write("<script src=\"" + rootPrefix + KnitSearchIndex.DIR_NAME + "/knit-search.js\" defer></script>" + this.nl);
+        }
+        out.write("</head>" + this.nl);
+        out.write("<body>" + this.nl);
+        if (this.searchIndex) {
+            out.write("<div class=\"knit-search\"><input type=\"search\" id=\"knit-search-input\" placeholder=\"Search\" autocomplete=\"off\"><div id=\"knit-search-results\"></div></div>" + this.nl);
+        }
+    }
+
+    /**
+     * Writes an HTML formatted module section with the provided dwFile object to
+     * the provided writer.
+     * @param out is the Writer to append to.
      * @param file is a dwFile object to write.
-     * @return A String with the doc contents.
+     * @param index is the DwModuleIndex to resolve cross-references with.
+     * @param linkToFiles is a boolean with true when each module is written
+     * to its own file.
+     * @throws IOException on IO exception.
      */
-    private String writeDoc(DwFile file) {
-        String ret = "<h1 id=\"" + file.name + "\">" + file.name + "</h1>" + System.lineSeparator();
-        ret += "<h3>" + Util.join("::", file.modulePath) + "</h3>" + System.lineSeparator();
+    private void writeDoc(Writer out, DwFile file, DwModuleIndex index, boolean linkToFiles) throws IOException {
+        out.write("<h1 id=\"" + Util.getModuleAnchor(file) + "\">" + file.name + "</h1>" + this.nl);
+        out.write("<h3>" + Util.join("::", file.modulePath) + "</h3>" + this.nl);
         if (!file.getComment().getText().equals("")) {
-            ret += file.getComment().getText() + this.br + System.lineSeparator();
+            out.write(file.getComment().getText() + this.br + this.nl);
             if (file.getTable() != null) {
-                ret += writeAnnotationTable(file.getTable()) + this.br + System.lineSeparator();
+                this.writeAnnotationTable(out, file.getTable());
+                out.write(this.br + this.nl);
             }
         }
-        ret += this.br + System.lineSeparator();
+        this.writeSeeSection(out, file.getComment(), file, index, linkToFiles);
+        out.write(this.br + this.nl);
+
+        this.writeImports(out, file, index, linkToFiles);
 
-        String vars = this.writeVariables(file);
-        if (!vars.equals("")) {
-            ret += "<h3>Variables</h3>" + System.lineSeparator();
-            ret += vars + this.br + System.lineSeparator();
+        if (file.getVariables().size() > 0) {
+            out.write("<h3>Variables</h3>" + this.nl);
+            this.writeVariables(out, file, index, linkToFiles);
+            out.write(this.br + this.nl);
         }
 
-        String functs = this.writeFunctions(file);
-        if (!functs.equals("")) {
-            ret += "<h3>Functions</h3>" + System.lineSeparator();
-            ret += functs + this.br + System.lineSeparator();
+        if (file.getFunctions().size() > 0) {
+            out.write("<h3>Functions</h3>" + this.nl);
+            this.writeFunctions(out, file, index, linkToFiles);
+            out.write(this.br + this.nl);
         }
+    }
 
-        return ret;
+    /**
+     * Writes the placeholder of a lazily loaded module. It's sized from
+     * the number of declarations so that the page is about as long as
+     * it is with every module loaded.
+     * @param out is the Writer to append to.
+     * @param file is the dwFile object to write the placeholder for.
+     * @throws IOException on IO exception.
+     */
+    private void writeModulePlaceholder(Writer out, DwFile file) throws IOException {
+        String anchor = Util.getModuleAnchor(file);
+        int height = 8 + 2 * file.getImports().size() + 6 * file.getVariables().size() + 10 * file.getFunctions().size();
+        out.write("<div class=\"knit-module\" data-anchor=\"" + anchor + "\" data-src=\"" + getModuleScriptName(file) + "\" style=\"min-height:" + height + "em\"></div>");
     }
 
     /**
-     * Writes a header table with the provided dwFile list. This
-     * table will link to each module further down in the document.
-     * @param files is a List of dwFile objects to write.
-     * @return A String with the header table text.
+     * Gets the file name of the lazy module script of the provided module
+     * within the modules directory.
+     * @param file is the DwFile to get the script name for.
+     * @return A String with the script file name.
      */
-    private String writeHeaderTable(List<DwFile> files) {
-        return this.writeHeaderTable(files, new ArrayList());
+    private static String getModuleScriptName(DwFile file) {
+        return "m-" + Util.getModuleAnchor(file) + ".js";
     }
 
     /**
      * Writes a header table with the provided dwFile list. This
      * table will link to each module further down in the document.
-     * @param files is a List of dwFile objects to write.
-     * @param moduleNameList is an optional list of module names that can
-     * be provided to specify the order of modules in the table.
-     * @return A String with the header table text.
+     * @param out is the Writer to append to.
+     * @param files is a List of dwFile objects to write in table order.
+     * @param linkToFiles is a boolean with true to link to the module files
+     * instead of the module sections within the document.
+     * @throws IOException on IO exception.
      */
-    private String writeHeaderTable(List<DwFile> files, List<String> moduleNameList) {
-        String ret = "<table class=\"table-header\">";
-        ret += "<tr class=\"table-header-header-row\"><th class=\"table-header-header-cell\">Module</th><th class=\"table-header-header-cell\">Description</th></tr>" + System.lineSeparator();
-
-        // Go through the module list first and add them in order.
-        for (String modName : moduleNameList) {
-            DwFile modFile = this.getFileByModuleName(files, modName);
-            if (modFile != null) {
-                ret += "<tr class=\"table-header-row\"><td class=\"table-header-cell\"><a href=\"#" + modFile.getName() + "\">" + modFile.getName() + "</a></td><td class=\"table-header-cell\">" + Util.stripNewLines(modFile.getComment().getText()) + "</td></tr>" + System.lineSeparator();
-            } else {
-                System.err.println("Warning: Module name '" + modName + "' was supplied in moduleNameList but was not found parsed file list.");
-            }
-        }
+    private void writeHeaderTable(Writer out, List<DwFile> files, boolean linkToFiles) throws IOException {
+        out.write("<table class=\"table-header\">");
+        out.write("<tr class=\"table-header-header-row\"><th class=\"table-header-header-cell\">Module</th><th class=\"table-header-header-cell\">Description</th></tr>" + this.nl);
 
-        // Iterate the rest.
         for (DwFile dwf : files) {
-            if (!moduleNameList.contains(dwf.getName())) {
-                ret += "<tr class=\"table-header-row\"><td class=\"table-header-cell\"><a href=\"#" + dwf.getName() + "\">" + dwf.getName() + "</a></td><td class=\"table-header-cell\">" + Util.stripNewLines(dwf.getComment().getText()) + "</td></tr>" + System.lineSeparator();
-            }
+            out.write("<tr class=\"table-header-row\"><td class=\"table-header-cell\"><a href=\"" + this.getModuleLink(dwf, linkToFiles) + "\">" + dwf.getName() + "</a></td><td class=\"table-header-cell\">" + Util.stripNewLines(dwf.getComment().getText()) + "</td></tr>" + this.nl);
         }
 
-        ret += "</table>" + System.lineSeparator();
-
+        out.write("</table>" + this.nl);
+    }
 
-        return ret;
+    /**
+     * Gets the link target of the provided module for the header table.
+     * @param file is the DwFile to link to.
+     * @param linkToFiles is a boolean with true to link to the module file.
+     * @return A String with the link target.
+     */
+    private String getModuleLink(DwFile file, boolean linkToFiles) {
+        if (linkToFiles) {
+            return Util.getModuleFileName(file, this.getFileExtension());
+        }
+        return "#" + Util.getModuleAnchor(file);
     }
 
-    private DwFile getFileByModuleName(List<DwFile> files, String name) {
-        DwFile ret = null;
-        for(DwFile dwf : files) {
-            if (dwf.getName().equals(name)) {
-                ret = dwf;
-                break;
+    /**
+     * Writes the imports section and the imported by section of the
+     * provided module. Imported modules that were parsed are linked.
+     * @param out is the Writer to append to.
+     * @param file is the dwFile object to write the sections for.
+     * @param index is the DwModuleIndex of all modules.
+     * @param linkToFiles is a boolean with true when each module is written
+     * to its own file.
+     * @throws IOException on IO exception.
+     */
+    private void writeImports(Writer out, DwFile file, DwModuleIndex index, boolean linkToFiles) throws IOException {
+        if (file.getImports().size() > 0) {
+            out.write("<h3>Imports</h3>" + this.nl);
+            out.write("<div class=\"import-section\">");
+            for (DwImport imp : file.getImports()) {
+                DwFile target = index.getModule(imp.getModuleName());
+                String name = target == null ? imp.getModuleName() : "<a href=\"" + this.getModuleLink(file, target, linkToFiles) + "\">" + imp.getModuleName() + "</a>";
+                out.write("<div class=\"import-line\"><span class=\"import-module\">" + name + "</span>");
+                if (imp.getNames().size() > 0) {
+                    out.write(" <span class=\"import-names\">" + Util.join(", ", imp.getNames()) + "</span>");
+                }
+                if (imp.getAlias() != null && !imp.getAlias().equals("")) {
+                    out.write(" as <span class=\"import-names\">" + imp.getAlias() + "</span>");
+                }
+                out.write("</div>" + this.nl);
+            }
+            out.write("</div>" + this.br + this.nl);
+        }
+
+        List<DwFile> importers = index.getGraph().getImportedBy(file);
+        if (importers.size() > 0) {
+            out.write("<h3>Imported By</h3>" + this.nl);
+            out.write("<div class=\"import-section\">");
+            for (DwFile importer : importers) {
+                out.write("<div class=\"import-line\"><span class=\"import-module\"><a href=\"" + this.getModuleLink(file, importer, linkToFiles) + "\">" + DwModuleIndex.getQualifiedName(importer) + "</a></span></div>" + this.nl);
             }
+            out.write("</div>" + this.br + this.nl);
         }
-        return ret;
+    }
+
+    /**
+     * Gets the link to the provided module from the document of another module.
+     * @param from is the DwFile of the document the link is written in.
+     * @param target is the DwFile to link to.
+     * @param linkToFiles is a boolean with true when each module is written
+     * to its own file.
+     * @return A String with the link.
+     */
+    private String getModuleLink(DwFile from, DwFile target, boolean linkToFiles) {
+        return new DwSymbol(target, "", Util.getModuleAnchor(target)).getLink(from, this.getFileExtension(), linkToFiles);
     }
 
     /**
      * Writes the variables section with the provided dwFile
      * object.
+     * @param out is the Writer to append to.
      * @param file is the dwObject file to write variables for.
-     * @return A String with the variables section.
+     * @param index is the DwModuleIndex to resolve cross-references with.
+     * @param linkToFiles is a boolean with true when each module is written
+     * to its own file.
+     * @throws IOException on IO exception.
      */
-    private String writeVariables(DwFile file) {
-        String ret = "";
-
-        if (file.getVariables().size() > 0) {
-            ret += "<div class=\"variable-section\">";
-            for (DwVariable var : file.getVariables()) {
-                ret += "<div class=\"variable-title-line\"><span class=\"variable-var\">var</span> <span class=\"variable-name\">" + var.getName() + "</span></div>" + this.br + System.lineSeparator();
-                ret += "<div class=\"variable-body-section\">" + this.br + System.lineSeparator();
-                ret += "<div class=\"variable-comment-text\">" + var.getComment().getText().replaceAll(System.lineSeparator(), this.br + System.lineSeparator()) + "</div>" + this.br + System.lineSeparator();
-                if (var.getTable() != null) {
-                    ret += writeAnnotationTable(var.getTable()) + this.br + System.lineSeparator();
-                }
-                ret += "</div>" + this.br + System.lineSeparator();
+    private void writeVariables(Writer out, DwFile file, DwModuleIndex index, boolean linkToFiles) throws IOException {
+        out.write("<div class=\"variable-section\">");
+        List<String> anchors = Util.getVariableAnchors(file);
+        for (int i = 0; i < file.getVariables().size(); i++) {
+            DwVariable var = file.getVariables().get(i);
+            out.write("<div class=\"variable-title-line\" id=\"" + anchors.get(i) + "\"><span class=\"variable-var\">var</span> <span class=\"variable-name\">" + var.getName() + "</span></div>" + this.br + this.nl);
+            out.write("<div class=\"variable-body-section\">" + this.br + this.nl);
+            out.write("<div class=\"variable-comment-text\">" + var.getComment().getText().replace(System.lineSeparator(), this.br + this.nl) + "</div>" + this.br + this.nl);
+            if (var.getTable() != null) {
+                this.writeAnnotationTable(out, var.getTable());
+                out.write(this.br + this.nl);
             }
-            ret += "</div>" + System.lineSeparator();
+            this.writeSeeSection(out, var.getComment(), file, index, linkToFiles);
+            out.write("</div>" + this.br + this.nl);
         }
-
-        return ret;
+        out.write("</div>" + this.nl);
     }
 
     /**
      * Writes teh functions section with the provided dwFile
      * object.
+     * @param out is the Writer to append to.
      * @param file is the dwObject file to write functions for.
-     * @return A String with the functions section.
+     * @param index is the DwModuleIndex to resolve cross-references with.
+     * @param linkToFiles is a boolean with true when each module is written
+     * to its own file.
+     * @throws IOException on IO exception.
      */
-    private String writeFunctions(DwFile file) {
-        String ret = "";
-
-        if (file.getFunctions().size() > 0) {
-            ret += "<div class=\"function-section\">";
-            for (DwFunction fun : file.getFunctions()) {
-                ret += "<div class=\"function-title-line\"><span class=\"function-fun\">fun</span>  <span class=\"function-name\">" + fun.getName() + "</span> (<span class=\"function-args\">" + this.writeFunctArgs(fun) + "</span>)</div>" + this.br + System.lineSeparator();
-                ret += "<div class=\"function-body-section\">" + this.br + System.lineSeparator();
-                ret += this.writeFunctAnnotations(fun) + this.br + System.lineSeparator();
-                ret += "<div class=\"function-comment-text\">" + Util.stripNewLines(fun.getComment().getText()) + "</div>" + this.br + System.lineSeparator();
-                if (fun.getTable() != null) {
-                    ret += writeAnnotationTable(fun.getTable()) + this.br + System.lineSeparator();
-                }
-                ret += "</div>" + this.br + System.lineSeparator();
+    private void writeFunctions(Writer out, DwFile file, DwModuleIndex index, boolean linkToFiles) throws IOException {
+        out.write("<div class=\"function-section\">");
+        List<String> anchors = Util.getFunctionAnchors(file);
+        for (int i = 0; i < file.getFunctions().size(); i++) {
+            DwFunction fun = file.getFunctions().get(i);
+            out.write("<div class=\"function-title-line\" id=\"" + anchors.get(i) + "\"><span class=\"function-fun\">fun</span>  <span class=\"function-name\">" + fun.getName() + "</span> (<span class=\"function-args\">");
+            this.writeFunctArgs(out, fun);
+            out.write("</span>)</div>" + this.br + this.nl);
+            out.write("<div class=\"function-body-section\">" + this.br + this.nl);
+            this.writeFunctAnnotations(out, fun);
+            out.write(this.br + this.nl);
+            out.write("<div class=\"function-comment-text\">" + Util.stripNewLines(fun.getComment().getText()) + "</div>" + this.br + this.nl);
+            if (fun.getTable() != null) {
+                this.writeAnnotationTable(out, fun.getTable());
+                out.write(this.br + this.nl);
             }
-            ret += "</div>" + System.lineSeparator();
+            this.writeSeeSection(out, fun.getComment(), file, index, linkToFiles);
+            out.write("</div>" + this.br + this.nl);
         }
-
-        return ret;
+        out.write("</div>" + this.nl);
     }
 
     /**
      * Writes the function args with the provided dwFunction object.
+     * @param out is the Writer to append to.
      * @param fun is a dwFunction object to write the args for.
-     * @return A String with the function args.
+     * @throws IOException on IO exception.
      */
-    private String writeFunctArgs(DwFunction fun) {
-        String ret = "";
-
+    private void writeFunctArgs(Writer out, DwFunction fun) throws IOException {
         for (int i = 0; i < fun.getArguments().size(); i++) {
-            if (i > 0) ret += ", ";
+            if (i > 0) out.write(", ");
             DwArgument arg = fun.getArguments().get(i);
             if (arg.getDatatype().equals("")) {
                 if (!arg.getName().equals("")) {
-                    ret += "<span class=\"function-arg-name\">" + arg.getName() + "</span>";
+                    out.write("<span class=\"function-arg-name\">" + arg.getName() + "</span>");
                 }
             } else {
-                ret += "<span class=\"function-arg-name\">" + arg.getName() + "</span>:<span class=\"function-arg-datatype\">" + arg.getDatatype() + "</span>";
+                out.write("<span class=\"function-arg-name\">" + arg.getName() + "</span>:<span class=\"function-arg-datatype\">" + arg.getDatatype() + "</span>");
             }
         }
-
-        return ret;
     }
 
     /**
      * Writes the function annotations with the provided dwFunction object.
+     * @param out is the Writer to append to.
      * @param fun is a dwFunction object to write annotations for.
-     * @return A String with the annotations section.
+     * @throws IOException on IO exception.
      */
-    private String writeFunctAnnotations(DwFunction fun) {
-        String ret = "";
+    private void writeFunctAnnotations(Writer out, DwFunction fun) throws IOException {
+        StringBuilder ret = new StringBuilder();
 
         DwCommentAnnotation retAnn = null;
         for (DwCommentAnnotation ann : fun.getComment().getAnnotations()) {
             if (ann.getName().toLowerCase().equals(KnitKeyWord.R.getVal()) || ann.getName().toLowerCase().equals(KnitKeyWord.RETURN.getVal())) {
                 retAnn = ann;
             } else if (ann.getName().toLowerCase().equals(KnitKeyWord.P.getVal()) || ann.getName().toLowerCase().equals(KnitKeyWord.PARAM.getVal())) {
-                ret += "<span class=\"function-ann-param\">param</span> <span class=\"function-ann-key\">" + ann.getKey() + "</span> <span class=\"function-ann-value\">" + Util.stripNewLines(ann.getValue()) + "</span>" + this.br + System.lineSeparator();
+                ret.append("<span class=\"function-ann-param\">param</span> <span class=\"function-ann-key\">" + ann.getKey() + "</span> <span class=\"function-ann-value\">" + Util.stripNewLines(ann.getValue()) + "</span>" + this.br + this.nl);
             }
         }
 
         if (retAnn != null) {
-            ret += "<span class=\"function-ann-return\">return</span> <span class=\"function-ann-return-value\">" + Util.stripNewLines(retAnn.getValue()) + "</span>" + this.br + System.lineSeparator();
+            ret.append("<span class=\"function-ann-return\">return</span> <span class=\"function-ann-return-value\">" + Util.stripNewLines(retAnn.getValue()) + "</span>" + this.br + this.nl);
         }
 
-        String retstr = "";
-        if (!ret.equals("")) {
-            retstr = "<div class=\"function-ann-section\">" + ret + "</div>";
+        if (ret.length() > 0) {
+            out.write("<div class=\"function-ann-section\">");
+            out.append(ret);
+            out.write("</div>");
         }
+    }
 
-        return retstr;
+    /**
+     * Writes the see annotations of the provided comment. References that
+     * resolve to a module, function or variable are linked to it and the
+     * rest are written as they are.
+     * @param out is the Writer to append to.
+     * @param comment is the DwComment with the annotations.
+     * @param file is the DwFile the comment is in.
+     * @param index is the DwModuleIndex to resolve the references with.
+     * @param linkToFiles is a boolean with true when each module is written
+     * to its own file.
+     * @throws IOException on IO exception.
+     */
+    private void writeSeeSection(Writer out, DwComment comment, DwFile file, DwModuleIndex index, boolean linkToFiles) throws IOException {
+        for (DwCommentAnnotation ann : comment.getAnnotations()) {
+            if (ann.getName().toLowerCase().equals(KnitKeyWord.SEE.getVal()) && !ann.getKey().equals("")) {
+                DwSymbol sym = index.resolve(ann.getKey(), file);
+                String ref = sym == null ? ann.getKey() : "<a href=\"" + sym.getLink(file, this.getFileExtension(), linkToFiles) + "\">" + ann.getKey() + "</a>";
+                out.write("<div class=\"see-section\"><span class=\"see-label\">see</span> <span class=\"see-ref\">" + ref + "</span> " + Util.stripNewLines(ann.getValue()) + "</div>" + this.nl);
+            }
+        }
     }
 
     /**
-     * Writes the annotation table to string.
+     * Writes the annotation table.
+     * @param out is the Writer to append to.
      * @param tbl is an annotationTable object to write.
-     * @return A String with the annotation table.
+     * @throws IOException on IO exception.
      */
-    private String writeAnnotationTable(AnnotationTable tbl) {
-        String ret = "<table class=\"table-ann\">";
-        ret += "<tr class=\"table-ann-header-row\"><th class=\"table-ann-header-cell\">" + Util.join("</th><th class=\"table-ann-header-cell\">", tbl.getColumns()) + "</th></tr>" + System.lineSeparator();
+    private void writeAnnotationTable(Writer out, AnnotationTable tbl) throws IOException {
+        out.write("<table class=\"table-ann\">");
+        out.write("<tr class=\"table-ann-header-row\"><th class=\"table-ann-header-cell\">" + Util.join("</th><th class=\"table-ann-header-cell\">", tbl.getColumns()) + "</th></tr>" + this.nl);
         for (AnnotationRow row : tbl.getRows()) {
-            ret += "<tr class=\"table-ann-row\"><td class=\"table-ann-cell\">" + Util.join("</td><td class=\"table-ann-cell\">", row.getFields()) + "</td></tr>" + System.lineSeparator();
+            out.write("<tr class=\"table-ann-row\"><td class=\"table-ann-cell\">" + Util.join("</td><td class=\"table-ann-cell\">", row.getFields()) + "</td></tr>" + this.nl);
+        }
+        out.write("</table>");
+    }
+
+    /**
+     * Writes the default style sheet to the output directory unless a
+     * CSS file was set, and the search index and search script when the
+     * search index is enabled, and the module scripts and module loader
+     * with lazy modules. Each file also gets a gzip compressed copy when
+     * gzip output is set.
+     * @param files is a List of dwFile objects being written.
+     * @param outputDirName is a String with the output directory.
+     * @throws IOException on IO exception.
+     */
+    @Override
+    public void writeResources(List<DwFile> files, String outputDirName) throws IOException {
+        new File(outputDirName).mkdirs();
+        if (this.writeDefaultCss) {
+            String css = this.getResource("/defaultCssFile.css");
+            if (this.minify) {
+                css = minifyCss(css);
+            }
+            Util.writeOutput(outputDirName + "/" + this.cssFileName, css.getBytes(StandardCharsets.UTF_8), this.gzipOutput);
+        }
+
+        if (this.searchIndex) {
+            KnitSearchIndex index = new KnitSearchIndex();
+            for (DwFile file : files) {
+                String href = this.singleOutputFile ? "" : Util.getModuleFileName(file, this.getFileExtension());
+                index.add(file, href, Util.getModuleAnchor(file), Util.getFunctionAnchors(file), Util.getVariableAnchors(file));
+            }
+            index.write(outputDirName, this.gzipOutput);
+            Util.writeOutput(outputDirName + "/" + KnitSearchIndex.DIR_NAME + "/knit-search.js", this.getResource("/knit-search.js").getBytes(StandardCharsets.UTF_8), this.gzipOutput);
+        }
+
+        if (this.lazyModules && this.singleOutputFile) {
+            this.writeModuleScripts(files, outputDirName);
+        }
+    }
+
+    /**
+     * Writes the section of each module to a script in the modules directory
+     * that hands it to the module loader, followed by the module loader.
+     * Module scripts left from a previous run are removed.
+     * @param files is a List of dwFile objects being written.
+     * @param outputDirName is a String with the output directory.
+     * @throws IOException on IO exception.
+     */
+    private void writeModuleScripts(List<DwFile> files, String outputDirName) throws IOException {
+        File dir = new File(outputDirName, MODULES_DIR_NAME);
+        dir.mkdirs();
+        File[] old = dir.listFiles();
+        if (old != null) {
+            for (File f : old) {
+                if (f.getName().startsWith("m-")) {
+                    f.delete();
+                }
+            }
+        }
+
+        DwModuleIndex index = this.moduleIndex != null ? this.moduleIndex : new DwModuleIndex(files);
+        StringWriter section = new StringWriter();
+        for (DwFile file : files) {
+            section.getBuffer().setLength(0);
+            this.writeDoc(section, file, index, false);
+
+            Writer out = new BufferedWriter(new OutputStreamWriter(Util.openOutput(new File(dir, getModuleScriptName(file)).getPath(), this.gzipOutput), StandardCharsets.UTF_8));
+            try {
+                out.write("KnitModules.load(\"" + Util.getModuleAnchor(file) + "\",");
+                new KnitJsonWriter(out, false).value(section.toString());
+                out.write(");\n");
+            } finally {
+                out.close();
+            }
+        }
+        Util.writeOutput(dir.getPath() + "/knit-modules.js", this.getResource("/knit-modules.js").getBytes(StandardCharsets.UTF_8), this.gzipOutput);
+    }
+
+    /**
+     * Minifies the provided style sheet. Comments are removed, whitespace
+     * is collapsed and dropped around braces, semicolons, commas, child
+     * combinators and after colons, and the last semicolon of each rule
+     * is dropped. Quoted strings are kept as they are.
+     * @param css is a String with the style sheet to minify.
+     * @return A String with the minified style sheet.
+     */
+    static String minifyCss(String css) {
+        StringBuilder ret = new StringBuilder(css.length());
+        boolean space = false;
+        int i = 0;
+        while (i < css.length()) {
+            char c = css.charAt(i);
+            if (c == '/' && i + 1 < css.length() && css.charAt(i + 1) == '*') {
+                int end = css.indexOf("*/", i + 2);
+                i = end < 0 ? css.length() : end + 2;
+                continue;
+            }
+            if (Character.isWhitespace(c)) {
+                space = true;
+                i++;
+                continue;
+            }
+
+            char last = ret.length() > 0 ? ret.charAt(ret.length() - 1) : '{';
+            if (space && "{};,>".indexOf(c) < 0 && "{};,>:".indexOf(last) < 0) {
+                ret.append(' ');
+            }
+            space = false;
+
+            if (c == '"' || c == '\'') {
+                int end = i + 1;
+                while (end < css.length() && css.charAt(end) != c) {
+                    end += css.charAt(end) == '\\' ? 2 : 1;
+                }
+                end = Math.min(end + 1, css.length());
+                ret.append(css, i, end);
+                i = end;
+                continue;
+            }
+
+            if (c == '}' && last == ';') {
+                ret.setLength(ret.length() - 1);
+            }
+            ret.append(c);
+            i++;
+        }
+        return ret.toString();
+    }
+
+    /**
+     * Gets the text of the provided class path resource.
+     * @param name is a String with the resource name.
+     * @return A String with the resource text.
+     */
+    private String getResource(String name) {
+        StringBuilder ret = new StringBuilder();
+        try {
+            InputStream is = getClass().getResourceAsStream(name);
+            BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8));
+            String line;
+
+            while((line = reader.readLine()) != null) {
+                ret.append(line).append(System.lineSeparator());
+            }
+        } catch (Exception e) {
+            e.printStackTrace();
         }
-        ret += "</table>";
-        return ret;
+        return ret.toString();
     }
 }
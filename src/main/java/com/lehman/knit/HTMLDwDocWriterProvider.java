@@ -0,0 +1,50 @@
+/*
+ * Copyright 2021 Roseville Code Inc. (austin@rosevillecode.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.lehman.knit;
+
+/**
+ * Provides the HTML doc writer.
+ */
+public class HTMLDwDocWriterProvider implements DwDocWriterProvider {
+    /**
+     * Gets the name of the output format the provided writer writes.
+     * @return A String with the format name.
+     */
+    @Override
+    public String getFormat() {
+        return OutputFormat.HTML.getVal();
+    }
+
+    /**
+     * Creates the HTML writer options.
+     * @return A HtmlDwDocWriterOptions object.
+     */
+    @Override
+    public DwDocWriterOptions createOptions() {
+        return new HtmlDwDocWriterOptions();
+    }
+
+    /**
+     * Creates a new HTML doc writer.
+     * @return A DwDocWriter object.
+     */
+    @Override
+    public DwDocWriter create() {
+        return new HTMLDwDocWriterImpl();
+    }
+}
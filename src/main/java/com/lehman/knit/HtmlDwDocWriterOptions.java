@@ -0,0 +1,126 @@
+/*
+ * Copyright 2021 Roseville Code Inc. (austin@rosevillecode.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.lehman.knit;
+
+/**
+ * The options of the HTML document writer.
+ */
+public class HtmlDwDocWriterOptions extends DwDocWriterOptions {
+    /**
+     * The name of the default style sheet that's written next to the document.
+     */
+    public static final String DEFAULT_CSS_FILE_NAME = "knit-style.css";
+
+    private String cssFileName = "";
+    private boolean searchIndex = false;
+    private boolean minify = false;
+    private boolean lazyModules = false;
+
+    /**
+     * Gets the CSS file name.
+     * @return A String with the CSS file name or a blank string for the default style sheet.
+     */
+    public String getCssFileName() {
+        return cssFileName;
+    }
+
+    /**
+     * Sets a local or remote CSS file to link to instead of the default style sheet.
+     * @param cssFileName is a String with the CSS file name or a blank string for the default.
+     */
+    public void setCssFileName(String cssFileName) {
+        this.cssFileName = cssFileName == null ? "" : cssFileName.trim();
+    }
+
+    /**
+     * Gets the search index flag.
+     * @return A boolean with true to write a search index and search box.
+     */
+    public boolean isSearchIndex() {
+        return searchIndex;
+    }
+
+    /**
+     * Sets the search index flag.
+     * @param searchIndex is a boolean with true to write a search index and search box.
+     */
+    public void setSearchIndex(boolean searchIndex) {
+        this.searchIndex = searchIndex;
+    }
+
+    /**
+     * Gets the minify flag.
+     * @return A boolean with true to write minified HTML and CSS.
+     */
+    public boolean isMinify() {
+        return minify;
+    }
+
+    /**
+     * Sets the minify flag. Minified HTML leaves out the line breaks between
+     * tags and the default style sheet is written without comments and
+     * whitespace.
+     * @param minify is a boolean with true to write minified HTML and CSS.
+     */
+    public void setMinify(boolean minify) {
+        this.minify = minify;
+    }
+
+    /**
+     * Gets the lazy modules flag.
+     * @return A boolean with true to load the modules of a single output file on demand.
+     */
+    public boolean isLazyModules() {
+        return lazyModules;
+    }
+
+    /**
+     * Sets the lazy modules flag. With lazy modules a single output file
+     * only has the header table and a placeholder for each module. Each
+     * module section is written to its own script next to the document
+     * and loaded when it comes near the view or a link points to it.
+     * @param lazyModules is a boolean with true to load the modules on demand.
+     */
+    public void setLazyModules(boolean lazyModules) {
+        this.lazyModules = lazyModules;
+    }
+
+    /**
+     * Sets an HTML option by name. The options are cssFile, searchIndex, minify and lazyModules.
+     * @param name is a String with the option name.
+     * @param value is a String with the option value.
+     * @return A boolean with true if the option is known and false if not.
+     */
+    @Override
+    public boolean setProperty(String name, String value) {
+        if (name.equals("cssFile")) {
+            this.setCssFileName(value);
+            return true;
+        } else if (name.equals("searchIndex")) {
+            this.setSearchIndex(Boolean.parseBoolean(value.trim()));
+            return true;
+        } else if (name.equals("minify")) {
+            this.setMinify(Boolean.parseBoolean(value.trim()));
+            return true;
+        } else if (name.equals("lazyModules")) {
+            this.setLazyModules(Boolean.parseBoolean(value.trim()));
+            return true;
+        }
+        return super.setProperty(name, value);
+    }
+}
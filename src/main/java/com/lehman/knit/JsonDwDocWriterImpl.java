@@ -0,0 +1,307 @@
+/*
+ * Copyright 2021 Roseville Code Inc. (austin@rosevillecode.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.lehman.knit;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Writes the parsed DW model as JSON for other tools to load. The JSON
+ * is streamed one module at a time. The schema is described in the
+ * README and SCHEMA_VERSION is increased whenever it changes in a way
+ * that isn't backwards compatible.
+ */
+public class JsonDwDocWriterImpl implements DwDocWriter {
+    /**
+     * The version of the JSON schema written.
+     */
+    public static final int SCHEMA_VERSION = 1;
+
+    private String outputHeaderText = "";
+    private String outputFooterText = "";
+    private boolean pretty = false;
+
+    /**
+     * Sets the provided options for the doc writer. The header table
+     * option doesn't apply to JSON.
+     * @param Options is the DwDocWriterOptions object to set.
+     */
+    @Override
+    public void setOptions(DwDocWriterOptions Options) {
+        this.outputHeaderText = Options.getOutputHeaderText();
+        this.outputFooterText = Options.getOutputFooterText();
+        if (Options instanceof JsonDwDocWriterOptions) {
+            this.pretty = ((JsonDwDocWriterOptions) Options).isPretty();
+        }
+    }
+
+    /**
+     * Writes a JSON document with the provided list of dwFile objects and
+     * returns the result.
+     * @param files is a List of dwFile objects to write.
+     * @return A byte array with the document.
+     */
+    @Override
+    public byte[] writeDoc(List<DwFile> files) {
+        return this.writeDoc(files, new ArrayList<String>());
+    }
+
+    /**
+     * Writes a JSON document with the provided dwFile list and moduleNameList.
+     * @param files is a List of dwFile objects to write.
+     * @param moduleNameList is an optional list of module names that can
+     * be provided to specify the order of modules.
+     * @return A byte array with the document.
+     */
+    @Override
+    public byte[] writeDoc(List<DwFile> files, List<String> moduleNameList) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            this.writeDoc(files, moduleNameList, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Writes a JSON document with the provided dwFile list and moduleNameList
+     * to the provided output stream one module at a time.
+     * @param files is a List of dwFile objects to write.
+     * @param moduleNameList is an optional list of module names that can
+     * be provided to specify the order of modules.
+     * @param os is the OutputStream to write the document to.
+     * @throws IOException on IO exception.
+     */
+    @Override
+    public void writeDoc(List<DwFile> files, List<String> moduleNameList, OutputStream os) throws IOException {
+        Writer out = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8));
+        KnitJsonWriter json = new KnitJsonWriter(out, this.pretty);
+
+        this.beginDoc(json, this.outputHeaderText, this.outputFooterText);
+        for (DwFile file : DwModuleIndex.order(files, moduleNameList)) {
+            this.writeModule(json, file);
+        }
+        this.endDoc(json, out);
+    }
+
+    /**
+     * Gets the file extension of the documents this writer produces.
+     * @return A String with the file extension.
+     */
+    @Override
+    public String getFileExtension() {
+        return "json";
+    }
+
+    /**
+     * Writes a JSON document with just the provided module. It has the
+     * same schema as the single document.
+     * @param file is the dwFile object to write.
+     * @param os is the OutputStream to write the document to.
+     * @throws IOException on IO exception.
+     */
+    @Override
+    public void writeModuleDoc(DwFile file, OutputStream os) throws IOException {
+        Writer out = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8));
+        KnitJsonWriter json = new KnitJsonWriter(out, this.pretty);
+
+        this.beginDoc(json, "", "");
+        this.writeModule(json, file);
+        this.endDoc(json, out);
+    }
+
+    /**
+     * Writes the JSON index document. Each module has its name, path and
+     * the relative file name of its module document.
+     * @param files is a List of dwFile objects to list.
+     * @param moduleNameList is an optional list of module names that can
+     * be provided to specify the order of modules.
+     * @param os is the OutputStream to write the document to.
+     * @throws IOException on IO exception.
+     */
+    @Override
+    public void writeIndexDoc(List<DwFile> files, List<String> moduleNameList, OutputStream os) throws IOException {
+        Writer out = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8));
+        KnitJsonWriter json = new KnitJsonWriter(out, this.pretty);
+
+        this.beginDoc(json, this.outputHeaderText, this.outputFooterText);
+        for (DwFile file : DwModuleIndex.order(files, moduleNameList)) {
+            json.beginObject();
+            json.name("name").value(file.getName());
+            this.writePath(json, file);
+            json.name("file").value(Util.getModuleFileName(file, this.getFileExtension()));
+            json.endObject();
+        }
+        this.endDoc(json, out);
+    }
+
+    /**
+     * Begins the document object and its modules array.
+     * @param json is the KnitJsonWriter to write to.
+     * @param header is a String with the header text.
+     * @param footer is a String with the footer text.
+     * @throws IOException on IO exception.
+     */
+    private void beginDoc(KnitJsonWriter json, String header, String footer) throws IOException {
+        json.beginObject();
+        json.name("schemaVersion").value(SCHEMA_VERSION);
+        json.name("header").value(header);
+        json.name("footer").value(footer);
+        json.name("modules").beginArray();
+    }
+
+    /**
+     * Ends the modules array and the document object and flushes.
+     * @param json is the KnitJsonWriter to write to.
+     * @param out is the Writer to flush.
+     * @throws IOException on IO exception.
+     */
+    private void endDoc(KnitJsonWriter json, Writer out) throws IOException {
+        json.endArray();
+        json.endObject();
+        out.write(System.lineSeparator());
+        out.flush();
+    }
+
+    /**
+     * Writes a module object.
+     * @param json is the KnitJsonWriter to write to.
+     * @param file is the dwFile object to write.
+     * @throws IOException on IO exception.
+     */
+    private void writeModule(KnitJsonWriter json, DwFile file) throws IOException {
+        json.beginObject();
+        json.name("name").value(file.getName());
+        json.name("fileName").value(file.getFileName());
+        this.writePath(json, file);
+        this.writeComment(json, file.getComment());
+        this.writeTable(json, file.getTable());
+
+        json.name("imports").beginArray();
+        for (DwImport imp : file.getImports()) {
+            json.beginObject();
+            json.name("module").value(imp.getModuleName());
+            json.name("names").beginArray();
+            for (String name : imp.getNames()) {
+                json.value(name);
+            }
+            json.endArray();
+            json.name("alias").value(imp.getAlias());
+            json.endObject();
+        }
+        json.endArray();
+
+        json.name("variables").beginArray();
+        for (DwVariable var : file.getVariables()) {
+            json.beginObject();
+            json.name("name").value(var.getName());
+            this.writeComment(json, var.getComment());
+            this.writeTable(json, var.getTable());
+            json.endObject();
+        }
+        json.endArray();
+
+        json.name("functions").beginArray();
+        for (DwFunction fun : file.getFunctions()) {
+            json.beginObject();
+            json.name("name").value(fun.getName());
+            json.name("arguments").beginArray();
+            for (DwArgument arg : fun.getArguments()) {
+                json.beginObject();
+                json.name("name").value(arg.getName());
+                json.name("datatype").value(arg.getDatatype());
+                json.endObject();
+            }
+            json.endArray();
+            this.writeComment(json, fun.getComment());
+            this.writeTable(json, fun.getTable());
+            json.endObject();
+        }
+        json.endArray();
+
+        json.endObject();
+    }
+
+    /**
+     * Writes the path member with the module path.
+     * @param json is the KnitJsonWriter to write to.
+     * @param file is the dwFile object to write the path of.
+     * @throws IOException on IO exception.
+     */
+    private void writePath(KnitJsonWriter json, DwFile file) throws IOException {
+        json.name("path").beginArray();
+        for (String part : file.getModulePath()) {
+            json.value(part);
+        }
+        json.endArray();
+    }
+
+    /**
+     * Writes the comment member with the comment text and annotations.
+     * @param json is the KnitJsonWriter to write to.
+     * @param comment is the DwComment to write.
+     * @throws IOException on IO exception.
+     */
+    private void writeComment(KnitJsonWriter json, DwComment comment) throws IOException {
+        json.name("comment").beginObject();
+        json.name("text").value(comment.getText());
+        json.name("annotations").beginArray();
+        for (DwCommentAnnotation ann : comment.getAnnotations()) {
+            json.beginObject();
+            json.name("name").value(ann.getName());
+            json.name("key").value(ann.getKey());
+            json.name("value").value(ann.getValue());
+            json.endObject();
+        }
+        json.endArray();
+        json.endObject();
+    }
+
+    /**
+     * Writes the table member with the annotation table or null if there isn't one.
+     * @param json is the KnitJsonWriter to write to.
+     * @param table is the AnnotationTable to write or null.
+     * @throws IOException on IO exception.
+     */
+    private void writeTable(KnitJsonWriter json, AnnotationTable table) throws IOException {
+        json.name("table");
+        if (table == null) {
+            json.nullValue();
+            return;
+        }
+        json.beginObject();
+        json.name("columns").beginArray();
+        for (String col : table.getColumns()) {
+            json.value(col);
+        }
+        json.endArray();
+        json.name("rows").beginArray();
+        for (AnnotationRow row : table.getRows()) {
+            json.beginArray();
+            for (String field : row.getFields()) {
+                json.value(field);
+            }
+            json.endArray();
+        }
+        json.endArray();
+        json.endObject();
+    }
+}
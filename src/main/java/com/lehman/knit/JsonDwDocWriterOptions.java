@@ -0,0 +1,56 @@
+/*
+ * Copyright 2021 Roseville Code Inc. (austin@rosevillecode.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.lehman.knit;
+
+/**
+ * The options of the JSON document writer.
+ */
+public class JsonDwDocWriterOptions extends DwDocWriterOptions {
+    private boolean pretty = false;
+
+    /**
+     * Gets the pretty print flag.
+     * @return A boolean with true to indent the JSON and false for compact JSON.
+     */
+    public boolean isPretty() {
+        return pretty;
+    }
+
+    /**
+     * Sets the pretty print flag.
+     * @param pretty is a boolean with true to indent the JSON and false for compact JSON.
+     */
+    public void setPretty(boolean pretty) {
+        this.pretty = pretty;
+    }
+
+    /**
+     * Sets a JSON option by name. The only option is pretty.
+     * @param name is a String with the option name.
+     * @param value is a String with the option value.
+     * @return A boolean with true if the option is known and false if not.
+     */
+    @Override
+    public boolean setProperty(String name, String value) {
+        if (name.equals("pretty")) {
+            this.setPretty(Boolean.parseBoolean(value.trim()));
+            return true;
+        }
+        return super.setProperty(name, value);
+    }
+}
@@ -0,0 +1,282 @@
+/*
+ * Copyright 2021 Roseville Code Inc. (austin@rosevillecode.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.lehman.knit;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Knit CLI class parses the command line arguments of the standalone
+ * entry point into the configuration of a Main object. The options have
+ * the same names and defaults as the maven plugin configuration values.
+ * Options take their value as the next argument or after an equals sign
+ * (--outputFormat html or --outputFormat=html). Lists are comma separated
+ * and flags can be given on their own to set them to true.
+ */
+public class KnitCli {
+    /**
+     * The options that take a value.
+     */
+    private static final List<String> OPTIONS = Arrays.asList(
+            "directories", "files", "includes", "excludes", "outputFile", "outputDirectory",
+            "outputFormat", "outputHeaderText", "outputFooterText", "outputHtmlCssFile",
+            "writerOptions", "moduleList", "moduleOrder", "moduleRoot", "dwlFileExt", "sourceEncoding", "parallelism", "parseBudget"
+    );
+
+    /**
+     * The configuration to set.
+     */
+    private Main config;
+
+    /**
+     * Flag set when --help was provided.
+     */
+    private boolean help = false;
+
+    /**
+     * Flag set when --watch was provided.
+     */
+    private boolean watch = false;
+
+    /**
+     * Constructor with the provided configuration to set.
+     * @param Config is the Main object to set the options in.
+     */
+    public KnitCli(Main Config) {
+        this.config = Config;
+    }
+
+    /**
+     * Gets the help flag.
+     * @return A boolean with true if help was requested.
+     */
+    public boolean isHelp() {
+        return help;
+    }
+
+    /**
+     * Gets the watch flag.
+     * @return A boolean with true if watch mode was requested.
+     */
+    public boolean isWatch() {
+        return watch;
+    }
+
+    /**
+     * Parses the provided arguments and sets the configuration.
+     * @param args is an array of Strings with the command line arguments.
+     * @return A boolean with true if the arguments are valid and false if not.
+     */
+    public boolean parse(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String arg = args[i];
+            if (arg.equals("-h") || arg.equals("--help")) {
+                this.help = true;
+                continue;
+            } else if (!arg.startsWith("--")) {
+                System.err.println("Error: Unexpected argument '" + arg + "'.");
+                return false;
+            }
+
+            String name = arg.substring(2);
+            String value = null;
+            int eq = name.indexOf('=');
+            if (eq >= 0) {
+                value = name.substring(eq + 1);
+                name = name.substring(0, eq);
+            }
+
+            // Flags don't need a value.
+            if (this.isFlag(name)) {
+                if (value == null && i + 1 < args.length && (args[i + 1].equals("true") || args[i + 1].equals("false"))) {
+                    value = args[++i];
+                }
+                this.setFlag(name, value == null || Boolean.parseBoolean(value));
+                continue;
+            }
+
+            if (!OPTIONS.contains(name)) {
+                System.err.println("Error: Unknown option '--" + name + "'.");
+                return false;
+            } else if (value == null) {
+                if (i + 1 >= args.length) {
+                    System.err.println("Error: Option '--" + name + "' requires a value.");
+                    return false;
+                }
+                value = args[++i];
+            }
+            if (!this.setOption(name, value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if the provided option name is a flag.
+     * @param name is a String with the option name.
+     * @return A boolean with true if it's a flag.
+     */
+    private boolean isFlag(String name) {
+        return name.equals("watch")
+                || name.equals("singleOutputFile")
+                || name.equals("gzipOutput")
+                || name.equals("writeHeaderTable")
+                || name.equals("parseCache")
+                || name.equals("upToDateCheck");
+    }
+
+    /**
+     * Sets the provided flag.
+     * @param name is a String with the flag name.
+     * @param value is a boolean with the flag value.
+     */
+    private void setFlag(String name, boolean value) {
+        if (name.equals("watch")) {
+            this.watch = value;
+        } else if (name.equals("singleOutputFile")) {
+            this.config.singleOutputFile = value;
+        } else if (name.equals("gzipOutput")) {
+            this.config.gzipOutput = value;
+        } else if (name.equals("writeHeaderTable")) {
+            this.config.writeHeaderTable = value;
+        } else if (name.equals("parseCache")) {
+            this.config.parseCache = value;
+        } else if (name.equals("upToDateCheck")) {
+            this.config.upToDateCheck = value;
+        }
+    }
+
+    /**
+     * Sets the provided option.
+     * @param name is a String with the option name.
+     * @param value is a String with the option value.
+     * @return A boolean with true if the option was set and false if the value isn't valid.
+     */
+    private boolean setOption(String name, String value) {
+        if (name.equals("directories")) {
+            this.config.directories = this.split(value);
+        } else if (name.equals("files")) {
+            this.config.files = this.split(value);
+        } else if (name.equals("includes")) {
+            this.config.includes = this.split(value);
+        } else if (name.equals("excludes")) {
+            this.config.excludes = this.split(value);
+        } else if (name.equals("outputFile")) {
+            this.config.outputFile = value;
+        } else if (name.equals("outputDirectory")) {
+            this.config.outputDirectory = value;
+        } else if (name.equals("outputFormat")) {
+            this.config.outputFormat = value;
+        } else if (name.equals("outputHeaderText")) {
+            this.config.outputHeaderText = value;
+        } else if (name.equals("outputFooterText")) {
+            this.config.outputFooterText = value;
+        } else if (name.equals("outputHtmlCssFile")) {
+            this.config.outputHtmlCssFile = value;
+        } else if (name.equals("writerOptions")) {
+            for (String opt : this.split(value)) {
+                int eq = opt.indexOf('=');
+                if (eq <= 0) {
+                    System.err.println("Error: Option '--writerOptions' requires name=value pairs.");
+                    return false;
+                }
+                this.config.writerOptions.put(opt.substring(0, eq).trim(), opt.substring(eq + 1).trim());
+            }
+        } else if (name.equals("moduleList")) {
+            this.config.moduleList = this.split(value);
+        } else if (name.equals("moduleOrder")) {
+            this.config.moduleOrder = value;
+        } else if (name.equals("moduleRoot")) {
+            this.config.moduleRoot = value;
+        } else if (name.equals("dwlFileExt")) {
+            this.config.dwlFileExt = value;
+        } else if (name.equals("sourceEncoding")) {
+            this.config.sourceEncoding = value;
+        } else if (name.equals("parallelism")) {
+            try {
+                this.config.parallelism = Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+                System.err.println("Error: Option '--parallelism' requires a number.");
+                return false;
+            }
+        } else if (name.equals("parseBudget")) {
+            try {
+                this.config.parseBudget = Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                System.err.println("Error: Option '--parseBudget' requires a number.");
+                return false;
+            }
+        } else {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Splits a comma separated list dropping blank entries.
+     * @param value is a String with the list.
+     * @return An array of Strings with the trimmed entries.
+     */
+    private String[] split(String value) {
+        ArrayList<String> ret = new ArrayList<String>();
+        for (String str : Util.fromArray(value.split(","))) {
+            ret.add(str.trim());
+        }
+        return ret.toArray(new String[0]);
+    }
+
+    /**
+     * Prints the usage text to standard output.
+     */
+    public static void printUsage() {
+        String nl = System.lineSeparator();
+        System.out.println(
+            "Usage: java -jar knit-maven-plugin-cli.jar [options]" + nl +
+            nl +
+            "Generates DataWeave documentation. Options match the maven plugin configuration." + nl +
+            nl +
+            "  --directories <a,b>        Directories to look for DW files in. (src/main/resources/dw)" + nl +
+            "  --files <a,b>              Individual DW files to parse." + nl +
+            "  --includes <globs>         Globs DW files must match, relative to each directory." + nl +
+            "  --excludes <globs>         Globs of files and directories to skip." + nl +
+            "  --moduleRoot <dir>         Directory module paths are relative to. (src/main/resources)" + nl +
+            "  --dwlFileExt <ext>         DataWeave file extension. (dwl)" + nl +
+            "  --sourceEncoding <name>    Encoding of the DW files. (UTF-8)" + nl +
+            "  --outputFormat <format>    markdown, html, pdf, json, binary or a registered format. (markdown)" + nl +
+            "  --outputFile <file>        Output file, or - for standard output. (target/knit-doc.md)" + nl +
+            "  --singleOutputFile[=bool]  Write a single file, false writes a file per module. (true)" + nl +
+            "  --outputDirectory <dir>    Directory for the module files. (target/knit-doc)" + nl +
+            "  --gzipOutput[=bool]        Also write a gzip compressed .gz copy of each output file. (false)" + nl +
+            "  --outputHeaderText <text>  Text written at the top of the doc." + nl +
+            "  --outputFooterText <text>  Text written at the bottom of the doc." + nl +
+            "  --outputHtmlCssFile <file> CSS file to link in HTML output." + nl +
+            "  --writerOptions <n=v,n=v>  Options of the output format's writer." + nl +
+            "  --writeHeaderTable[=bool]  Write a table of modules at the top. (false)" + nl +
+            "  --moduleList <a,b>         Order of the modules." + nl +
+            "  --moduleOrder <order>      Order of the other modules, path or dependency. (path)" + nl +
+            "  --parallelism <n>          Threads to parse and write with, 0 for one per CPU. (1)" + nl +
+            "  --parseBudget <ms>         Time a file may take to parse before it's skipped, 0 for no limit. (0)" + nl +
+            "  --parseCache[=bool]        Cache parsed files in target/knit-cache. (true)" + nl +
+            "  --upToDateCheck[=bool]     Skip generation when nothing changed. (true)" + nl +
+            "  --watch                    Keep running and regenerate on changes." + nl +
+            "  -h, --help                 Print this help."
+        );
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2021 Roseville Code Inc. (austin@rosevillecode.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.lehman.knit;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+
+/**
+ * Knit discovery class finds the DW source files below a directory. It
+ * walks the tree once with Files.walkFileTree using the attributes the
+ * walk already read, applies the include and exclude globs, prunes
+ * excluded directories without descending into them and follows
+ * symbolic links while skipping any that loop back on themselves.
+ */
+public class KnitDiscovery {
+    /**
+     * The dataweave file extension.
+     */
+    private String dwlFileExt = "dwl";
+
+    /**
+     * Matchers for the include globs. If empty every DW file is included.
+     */
+    private ArrayList<PathMatcher> includes = new ArrayList<PathMatcher>();
+
+    /**
+     * Matchers for the exclude globs.
+     */
+    private ArrayList<PathMatcher> excludes = new ArrayList<PathMatcher>();
+
+    /**
+     * Matchers for directories that are excluded as a whole. (dir/**)
+     */
+    private ArrayList<PathMatcher> excludedDirs = new ArrayList<PathMatcher>();
+
+    /**
+     * Constructor with the provided file extension and globs. Globs are
+     * matched against the path relative to the searched directory using
+     * / as the separator. A leading **&#47; also matches at the top level,
+     * so **&#47;*.dwl matches both a.dwl and dir/a.dwl.
+     * @param DwlFileExt is a String with the dataweave file extension.
+     * @param Includes is an array of Strings with include globs or null.
+     * @param Excludes is an array of Strings with exclude globs or null.
+     */
+    public KnitDiscovery(String DwlFileExt, String[] Includes, String[] Excludes) {
+        this.dwlFileExt = DwlFileExt;
+        if (Includes != null) {
+            for (String glob : Includes) {
+                this.addMatchers(this.includes, glob);
+            }
+        }
+        if (Excludes != null) {
+            for (String glob : Excludes) {
+                this.addMatchers(this.excludes, glob);
+                if (glob.trim().endsWith("/**")) {
+                    String dirGlob = glob.trim();
+                    this.addMatchers(this.excludedDirs, dirGlob.substring(0, dirGlob.length() - 3));
+                }
+            }
+        }
+    }
+
+    /**
+     * Walks the provided directory and adds each DW file found to the
+     * provided source list. Module paths are relative to the directory.
+     * @param dirName is a String with the directory name.
+     * @param sources is a List of DwSourceFile objects to add to.
+     */
+    public void discover(String dirName, List<DwSourceFile> sources) {
+        this.discover(dirName, dirName, sources);
+    }
+
+    /**
+     * Walks the provided directory and adds each DW file found to the
+     * provided source list. The files are added in name order, directory
+     * by directory, so that the resulting list is the same on every run.
+     * @param dirName is a String with the directory name.
+     * @param rootDirName is a String with the directory module paths are
+     * relative to. This is the directory itself or one of its parents.
+     * @param sources is a List of DwSourceFile objects to add to.
+     */
+    public void discover(final String dirName, String rootDirName, List<DwSourceFile> sources) {
+        final Path root = Paths.get(dirName);
+        if (!Files.exists(root)) {
+            System.err.println("Provided directory '" + dirName + "' doesn't exist.");
+            return;
+        } else if (!Files.isDirectory(root)) {
+            System.err.println("Provided directory '" + dirName + "' isn't a directory.");
+            return;
+        }
+
+        final ArrayList<Path> found = new ArrayList<Path>();
+        try {
+            Files.walkFileTree(root, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    if (isExcludedDirectory(root.relativize(dir))) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile() && file.getFileName().toString().endsWith("." + dwlFileExt)) {
+                        Path rel = root.relativize(file);
+                        if ((includes.isEmpty() || matches(includes, rel)) && !matches(excludes, rel)) {
+                            found.add(rel);
+                        }
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    if (e instanceof FileSystemLoopException) {
+                        System.err.println("Warning: Skipping symbolic link loop at '" + file + "'.");
+                    } else {
+                        System.err.println("Warning: Couldn't read '" + file + "'. (" + e + ")");
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("Warning: Couldn't walk directory '" + dirName + "'. (" + e + ")");
+        }
+
+        // Compare name by name so a directory sorts by its own name.
+        Collections.sort(found, (a, b) -> {
+            int len = Math.min(a.getNameCount(), b.getNameCount());
+            for (int i = 0; i < len; i++) {
+                int cmp = a.getName(i).toString().compareTo(b.getName(i).toString());
+                if (cmp != 0) {
+                    return cmp;
+                }
+            }
+            return a.getNameCount() - b.getNameCount();
+        });
+
+        for (Path rel : found) {
+            String fileName = dirName + "/" + this.toSlashPath(rel);
+            sources.add(new DwSourceFile(rootDirName, fileName));
+        }
+    }
+
+    /**
+     * Checks if the provided directory is excluded as a whole so that
+     * nothing below it is searched.
+     * @param rel is the Path of the directory relative to the searched directory.
+     * @return A boolean with true if the directory is excluded.
+     */
+    public boolean isExcludedDirectory(Path rel) {
+        return rel.toString().length() > 0 && (matches(this.excludedDirs, rel) || matches(this.excludes, rel));
+    }
+
+    /**
+     * Adds the matchers for the provided glob.
+     * @param matchers is the List of matchers to add to.
+     * @param glob is a String with the glob.
+     */
+    private void addMatchers(List<PathMatcher> matchers, String glob) {
+        glob = glob.trim();
+        if (glob.equals("")) {
+            return;
+        }
+        FileSystem fs = FileSystems.getDefault();
+        matchers.add(fs.getPathMatcher("glob:" + glob));
+        if (glob.startsWith("**/")) {
+            matchers.add(fs.getPathMatcher("glob:" + glob.substring(3)));
+        }
+    }
+
+    /**
+     * Checks if any of the provided matchers match the relative path.
+     * @param matchers is the List of matchers to check.
+     * @param rel is the relative Path to match.
+     * @return A boolean with true if one matches.
+     */
+    private static boolean matches(List<PathMatcher> matchers, Path rel) {
+        for (PathMatcher matcher : matchers) {
+            if (matcher.matches(rel)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Converts a relative path to a String using / as the separator.
+     * @param rel is the relative Path to convert.
+     * @return A String with the path.
+     */
+    private String toSlashPath(Path rel) {
+        StringBuilder ret = new StringBuilder();
+        for (int i = 0; i < rel.getNameCount(); i++) {
+            if (i > 0) ret.append("/");
+            ret.append(rel.getName(i).toString());
+        }
+        return ret.toString();
+    }
+}
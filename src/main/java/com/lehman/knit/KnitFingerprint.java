@@ -0,0 +1,147 @@
+/*
+ * Copyright 2021 Roseville Code Inc. (austin@rosevillecode.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.lehman.knit;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Builds a SHA-256 fingerprint over everything that affects the
+ * generated document so that a run with unchanged inputs and
+ * configuration can be detected and skipped.
+ */
+public class KnitFingerprint {
+    /**
+     * The digest the values are added to.
+     */
+    private MessageDigest digest;
+
+    /**
+     * Default constructor.
+     */
+    public KnitFingerprint() {
+        try {
+            this.digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Adds a named value to the fingerprint.
+     * @param name is a String with the value name.
+     * @param value is a String with the value.
+     */
+    public void add(String name, String value) {
+        this.addString(name);
+        this.addString(value == null ? "" : value);
+    }
+
+    /**
+     * Adds a named list of values to the fingerprint.
+     * @param name is a String with the value name.
+     * @param values is an array of Strings with the values.
+     */
+    public void add(String name, String[] values) {
+        this.addString(name);
+        if (values != null) {
+            for (String value : values) {
+                this.addString(value);
+            }
+        }
+        this.addString("");
+    }
+
+    /**
+     * Adds the name and contents of the provided file to the fingerprint.
+     * @param fileName is a String with the file name to add.
+     * @throws IOException on IO exception.
+     */
+    public void addFile(String fileName) throws IOException {
+        this.addString(fileName);
+        InputStream in = null;
+        try {
+            in = new FileInputStream(fileName);
+            byte[] buff = new byte[8192];
+            int len;
+            while ((len = in.read(buff)) > 0) {
+                this.digest.update(buff, 0, len);
+            }
+        } finally {
+            if (in != null) {
+                in.close();
+            }
+        }
+        this.addString("");
+    }
+
+    /**
+     * Gets the fingerprint as a hex string. This completes the digest.
+     * @return A String with the hex encoded fingerprint.
+     */
+    public String getHash() {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : this.digest.digest()) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Reads a previously stored fingerprint.
+     * @param fileName is a String with the fingerprint file name.
+     * @return A String with the fingerprint or null if there isn't one.
+     */
+    public static String read(String fileName) {
+        if (!new File(fileName).isFile()) {
+            return null;
+        }
+        try {
+            return Util.read(fileName).trim();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Stores the provided fingerprint.
+     * @param fileName is a String with the fingerprint file name.
+     * @param hash is a String with the fingerprint.
+     * @throws IOException on IO exception.
+     */
+    public static void write(String fileName, String hash) throws IOException {
+        new File(fileName).getParentFile().mkdirs();
+        Util.write(fileName, hash.getBytes(StandardCharsets.UTF_8), false);
+    }
+
+    /**
+     * Adds a length prefixed string to the digest so that values
+     * can't run together.
+     * @param str is a String to add.
+     */
+    private void addString(String str) {
+        byte[] bytes = str.getBytes(StandardCharsets.UTF_8);
+        this.digest.update((byte) (bytes.length >>> 24));
+        this.digest.update((byte) (bytes.length >>> 16));
+        this.digest.update((byte) (bytes.length >>> 8));
+        this.digest.update((byte) bytes.length);
+        this.digest.update(bytes);
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2021 Roseville Code Inc. (austin@rosevillecode.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.lehman.knit;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+
+/**
+ * Minimal streaming JSON writer. Values are written straight to the
+ * underlying writer as they're provided so nothing is held in memory
+ * beyond the nesting of the current value. Commas and, when pretty
+ * printing, new lines and indentation are added as needed.
+ */
+public class KnitJsonWriter {
+    /**
+     * The writer to write to.
+     */
+    private Writer out;
+
+    /**
+     * Flag with true to pretty print.
+     */
+    private boolean pretty = false;
+
+    /**
+     * For each open object or array, true once it has a member.
+     */
+    private ArrayList<Boolean> stack = new ArrayList<Boolean>();
+
+    /**
+     * Flag set after an object member name until its value is written.
+     */
+    private boolean afterName = false;
+
+    /**
+     * Constructor with the provided writer.
+     * @param Out is the Writer to write to.
+     * @param Pretty is a boolean with true to indent the output and false for compact output.
+     */
+    public KnitJsonWriter(Writer Out, boolean Pretty) {
+        this.out = Out;
+        this.pretty = Pretty;
+    }
+
+    /**
+     * Begins an object.
+     * @return This object.
+     * @throws IOException on IO exception.
+     */
+    public KnitJsonWriter beginObject() throws IOException {
+        this.beforeValue();
+        this.out.write('{');
+        this.stack.add(false);
+        return this;
+    }
+
+    /**
+     * Ends the current object.
+     * @return This object.
+     * @throws IOException on IO exception.
+     */
+    public KnitJsonWriter endObject() throws IOException {
+        this.end('}');
+        return this;
+    }
+
+    /**
+     * Begins an array.
+     * @return This object.
+     * @throws IOException on IO exception.
+     */
+    public KnitJsonWriter beginArray() throws IOException {
+        this.beforeValue();
+        this.out.write('[');
+        this.stack.add(false);
+        return this;
+    }
+
+    /**
+     * Ends the current array.
+     * @return This object.
+     * @throws IOException on IO exception.
+     */
+    public KnitJsonWriter endArray() throws IOException {
+        this.end(']');
+        return this;
+    }
+
+    /**
+     * Writes an object member name. The member value is written next.
+     * @param name is a String with the member name.
+     * @return This object.
+     * @throws IOException on IO exception.
+     */
+    public KnitJsonWriter name(String name) throws IOException {
+        this.beforeValue();
+        this.writeString(name);
+        this.out.write(this.pretty ? ": " : ":");
+        this.afterName = true;
+        return this;
+    }
+
+    /**
+     * Writes a string value or null.
+     * @param value is a String with the value to write.
+     * @return This object.
+     * @throws IOException on IO exception.
+     */
+    public KnitJsonWriter value(String value) throws IOException {
+        this.beforeValue();
+        if (value == null) {
+            this.out.write("null");
+        } else {
+            this.writeString(value);
+        }
+        return this;
+    }
+
+    /**
+     * Writes a number value.
+     * @param value is a long with the value to write.
+     * @return This object.
+     * @throws IOException on IO exception.
+     */
+    public KnitJsonWriter value(long value) throws IOException {
+        this.beforeValue();
+        this.out.write(Long.toString(value));
+        return this;
+    }
+
+    /**
+     * Writes a null value.
+     * @return This object.
+     * @throws IOException on IO exception.
+     */
+    public KnitJsonWriter nullValue() throws IOException {
+        return this.value((String) null);
+    }
+
+    /**
+     * Writes the separator and indentation that goes before the next
+     * value or member name.
+     * @throws IOException on IO exception.
+     */
+    private void beforeValue() throws IOException {
+        if (this.afterName) {
+            this.afterName = false;
+            return;
+        }
+        if (!this.stack.isEmpty()) {
+            int last = this.stack.size() - 1;
+            if (this.stack.get(last)) {
+                this.out.write(',');
+            }
+            this.stack.set(last, true);
+            this.newLine();
+        }
+    }
+
+    /**
+     * Closes the current object or array with the provided character.
+     * @param close is a char with the closing character.
+     * @throws IOException on IO exception.
+     */
+    private void end(char close) throws IOException {
+        boolean hasMembers = this.stack.remove(this.stack.size() - 1);
+        if (hasMembers) {
+            this.newLine();
+        }
+        this.out.write(close);
+    }
+
+    /**
+     * Writes a new line and the indentation of the current depth when pretty printing.
+     * @throws IOException on IO exception.
+     */
+    private void newLine() throws IOException {
+        if (this.pretty) {
+            this.out.write('\n');
+            for (int i = 0; i < this.stack.size(); i++) {
+                this.out.write("  ");
+            }
+        }
+    }
+
+    /**
+     * Writes a quoted and escaped string.
+     * @param str is the String to write.
+     * @throws IOException on IO exception.
+     */
+    private void writeString(String str) throws IOException {
+        this.out.write('"');
+        int start = 0;
+        for (int i = 0; i < str.length(); i++) {
+            char c = str.charAt(i);
+            String esc = null;
+            if (c == '"') {
+                esc = "\\\"";
+            } else if (c == '\\') {
+                esc = "\\\\";
+            } else if (c == '\n') {
+                esc = "\\n";
+            } else if (c == '\r') {
+                esc = "\\r";
+            } else if (c == '\t') {
+                esc = "\\t";
+            } else if (c < 0x20 || c == '\u2028' || c == '\u2029') {
+                esc = String.format("\\u%04x", (int) c);
+            }
+            if (esc != null) {
+                this.out.write(str, start, i - start);
+                this.out.write(esc);
+                start = i + 1;
+            }
+        }
+        this.out.write(str, start, str.length() - start);
+        this.out.write('"');
+    }
+}
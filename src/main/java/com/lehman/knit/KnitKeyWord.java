@@ -34,7 +34,10 @@ public enum KnitKeyWord {
     TABLE("table"),
 
     // Row
-    ROW("row");
+    ROW("row"),
+
+    // Cross-reference
+    SEE("see");
 
     private String val;
 
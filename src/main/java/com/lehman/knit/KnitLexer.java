@@ -0,0 +1,435 @@
+/*
+ * Copyright 2021 Roseville Code Inc. (austin@rosevillecode.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.lehman.knit;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Knit lexer class implements a single pass scanner over DW source
+ * text. It walks the text once, skipping line comments, block comments,
+ * string literals and regex literals, and binds each doc comment to the
+ * declaration that immediately follows it. Import statements at the start of a
+ * line in the header are returned as tokens as well.
+ */
+public class KnitLexer {
+    /**
+     * Key words that take an operand, so a / after them starts a regex
+     * literal rather than a division.
+     */
+    private static final Set<String> OPERAND_KEY_WORDS = new HashSet<String>(Arrays.asList(
+        "replace", "match", "matches", "splitBy", "scan", "find", "contains", "startsWith", "endsWith",
+        "case", "if", "else", "then", "do", "and", "or", "not", "default", "is"
+    ));
+
+    /**
+     * The source text to scan.
+     */
+    private CharSequence text;
+
+    /**
+     * The length of the source text.
+     */
+    private int len = 0;
+
+    /**
+     * The current scan position.
+     */
+    private int pos = 0;
+
+    /**
+     * Flag that is set while scanning the header before the --- line.
+     * Import statements are only found in the header.
+     */
+    private boolean inHeader = true;
+
+    /**
+     * The offset of a block comment that was never closed or -1.
+     */
+    private int unterminatedCommentOffset = -1;
+
+    /**
+     * Constructor with the provided source text.
+     * @param Text is a CharSequence with the DW source text.
+     */
+    public KnitLexer(CharSequence Text) {
+        this.text = Text;
+        this.len = Text.length();
+    }
+
+    /**
+     * Gets the current scan position within the source text.
+     * @return An int with the current offset.
+     */
+    public int getOffset() {
+        return pos;
+    }
+
+    /**
+     * Gets the offset of the block comment that was never closed. The rest
+     * of the text after it isn't scanned.
+     * @return An int with the offset of the comment or -1 if every comment is closed.
+     */
+    public int getUnterminatedCommentOffset() {
+        return unterminatedCommentOffset;
+    }
+
+    /**
+     * Scans forward to the next doc comment that is followed by a declaration
+     * or the next import statement and returns it as a token. Doc comments
+     * that aren't followed by a declaration are skipped.
+     * @return A KnitToken object or null when the end of the text is reached.
+     */
+    public KnitToken next() {
+        while (this.pos < this.len) {
+            char c = this.text.charAt(this.pos);
+            if (c == '/' && this.pos + 1 < this.len) {
+                char n = this.text.charAt(this.pos + 1);
+                if (n == '/') {
+                    this.skipLine();
+                    continue;
+                } else if (n == '*') {
+                    int start = this.pos;
+                    boolean isDoc = this.charIs(this.pos + 2, '*') && !this.charIs(this.pos + 3, '/');
+                    int bodyStart = this.pos + (isDoc ? 3 : 2);
+                    int bodyEnd = this.indexOfCommentEnd(bodyStart);
+                    if (bodyEnd < 0) {
+                        // Unterminated comment, nothing more to find.
+                        this.unterminatedCommentOffset = start;
+                        this.pos = this.len;
+                        return null;
+                    }
+                    this.pos = bodyEnd + 2;
+                    if (isDoc) {
+                        KnitToken tok = this.readDeclaration(start, bodyStart, bodyEnd);
+                        if (tok != null) {
+                            return tok;
+                        }
+                    }
+                    continue;
+                } else if (this.isOperandStart(this.pos)) {
+                    int end = this.indexOfRegexEnd(this.pos + 1);
+                    if (end >= 0) {
+                        this.pos = end + 1;
+                        continue;
+                    }
+                }
+            } else if (c == '"' || c == '\'') {
+                this.skipString(c);
+                continue;
+            } else if (this.inHeader && (c == 'i' || c == '-') && this.isLineStart(this.pos)) {
+                if (c == '-' && this.startsWith(this.pos, "---")) {
+                    this.inHeader = false;
+                } else if (c == 'i' && this.isKeyWord(this.pos, KnitTokenType.IMPORT.getVal())) {
+                    return this.readImport();
+                }
+            }
+            this.pos++;
+        }
+        return null;
+    }
+
+    /**
+     * Reads the declaration following a doc comment and returns a token
+     * if one of the known declaration key words is found.
+     * @param start is an int with the offset of the comment start.
+     * @param bodyStart is an int with the offset of the comment body.
+     * @param bodyEnd is an int with the offset of the comment end.
+     * @return A KnitToken object or null if no declaration follows.
+     */
+    private KnitToken readDeclaration(int start, int bodyStart, int bodyEnd) {
+        int p = this.skipWhitespace(this.pos);
+        String comment = this.text.subSequence(bodyStart, bodyEnd).toString();
+
+        if (this.startsWith(p, KnitTokenType.MODULE.getVal())) {
+            return new KnitToken(KnitTokenType.MODULE, comment, start);
+        } else if (this.isKeyWord(p, KnitTokenType.FUN.getVal())) {
+            p = this.skipWhitespace(p + KnitTokenType.FUN.getVal().length());
+            int nameEnd = this.skipWord(p);
+            String name = this.text.subSequence(p, nameEnd).toString();
+            p = this.skipWhitespace(nameEnd);
+
+            // Type parameters such as fun name<T>(arg: T)
+            if (this.charIs(p, '<')) {
+                p = this.skipBalanced(p, '<', '>');
+                p = this.skipWhitespace(p);
+            }
+
+            if (!this.charIs(p, '(')) {
+                return null;
+            }
+            int argsEnd = this.skipBalanced(p, '(', ')');
+            KnitToken tok = new KnitToken(KnitTokenType.FUN, comment, start);
+            tok.setName(name);
+            tok.setArguments(this.text.subSequence(p + 1, Math.max(p + 1, argsEnd - 1)).toString());
+            return tok;
+        } else if (this.isKeyWord(p, KnitTokenType.VAR.getVal())) {
+            return this.namedToken(KnitTokenType.VAR, comment, start, p);
+        } else if (this.isKeyWord(p, KnitTokenType.TYPE.getVal())) {
+            return this.namedToken(KnitTokenType.TYPE, comment, start, p);
+        } else if (this.isKeyWord(p, KnitTokenType.NS.getVal())) {
+            return this.namedToken(KnitTokenType.NS, comment, start, p);
+        }
+
+        return null;
+    }
+
+    /**
+     * Reads the import statement at the current position up to the end of
+     * the line or a line comment and returns it as a token. The token name
+     * is the statement without the import key word.
+     * (mapColor from dw::color::color)
+     * @return A KnitToken object.
+     */
+    private KnitToken readImport() {
+        int start = this.pos;
+        int p = start + KnitTokenType.IMPORT.getVal().length();
+        int end = p;
+        while (end < this.len && this.text.charAt(end) != '\n' && !(this.text.charAt(end) == '/' && this.charIs(end + 1, '/'))) {
+            end++;
+        }
+        KnitToken tok = new KnitToken(KnitTokenType.IMPORT, "", start);
+        tok.setName(this.text.subSequence(p, end).toString().trim());
+        this.pos = end;
+        return tok;
+    }
+
+    /**
+     * Checks if the provided offset is the first non blank char of its line.
+     * @param p is an int with the offset.
+     * @return A boolean with true if only spaces and tabs precede it on the line.
+     */
+    private boolean isLineStart(int p) {
+        while (p > 0) {
+            char c = this.text.charAt(--p);
+            if (c == '\n') {
+                return true;
+            } else if (c != ' ' && c != '\t' && c != '\r') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Creates a token for a declaration of the form 'keyword name'.
+     * @param type is the KnitTokenType of the declaration.
+     * @param comment is a String with the raw comment.
+     * @param start is an int with the offset of the comment start.
+     * @param p is an int with the offset of the key word.
+     * @return A KnitToken object.
+     */
+    private KnitToken namedToken(KnitTokenType type, String comment, int start, int p) {
+        p = this.skipWhitespace(p + type.getVal().length());
+        KnitToken tok = new KnitToken(type, comment, start);
+        tok.setName(this.text.subSequence(p, this.skipWord(p)).toString());
+        return tok;
+    }
+
+    /**
+     * Finds the end of a block comment starting the search at the provided offset.
+     * @param from is an int with the offset to search from.
+     * @return An int with the offset of the closing mark or -1 if not found.
+     */
+    private int indexOfCommentEnd(int from) {
+        for (int i = from; i + 1 < this.len; i++) {
+            if (this.text.charAt(i) == '*' && this.text.charAt(i + 1) == '/') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Skips to the end of the current line.
+     */
+    private void skipLine() {
+        while (this.pos < this.len && this.text.charAt(this.pos) != '\n') {
+            this.pos++;
+        }
+    }
+
+    /**
+     * Skips a string literal with the provided quote character. Escaped
+     * quotes are honored.
+     * @param quote is the quote char that opened the string.
+     */
+    private void skipString(char quote) {
+        this.pos++;
+        while (this.pos < this.len) {
+            char c = this.text.charAt(this.pos);
+            if (c == '\\') {
+                this.pos += 2;
+                continue;
+            }
+            this.pos++;
+            if (c == quote) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Checks if the provided offset is in operand position, so that a / at
+     * it starts a regex literal. That's the case at the start of the text,
+     * after an operator or opening bracket and after a key word that takes
+     * an operand. After a name, a number or a closing bracket it's a division.
+     * @param p is an int with the offset of the /.
+     * @return A boolean with true if a regex literal can start at the offset.
+     */
+    private boolean isOperandStart(int p) {
+        while (p > 0 && Character.isWhitespace(this.text.charAt(p - 1))) {
+            p--;
+        }
+        if (p == 0) {
+            return true;
+        }
+        char prev = this.text.charAt(p - 1);
+        if (this.isWordChar(prev)) {
+            int start = p - 1;
+            while (start > 0 && this.isWordChar(this.text.charAt(start - 1))) {
+                start--;
+            }
+            return OPERAND_KEY_WORDS.contains(this.text.subSequence(start, p).toString());
+        }
+        return "([{,=:!&|?+-*%<>~;".indexOf(prev) >= 0;
+    }
+
+    /**
+     * Finds the closing / of a regex literal. Escaped chars are honored and
+     * a / within a character class doesn't close it. Regex literals don't
+     * span lines, so the search stops at the end of the line.
+     * @param from is an int with the offset just after the opening /.
+     * @return An int with the offset of the closing / or -1 if not found.
+     */
+    private int indexOfRegexEnd(int from) {
+        boolean inClass = false;
+        for (int i = from; i < this.len; i++) {
+            char c = this.text.charAt(i);
+            if (c == '\\') {
+                i++;
+            } else if (c == '\n') {
+                return -1;
+            } else if (c == '[') {
+                inClass = true;
+            } else if (c == ']') {
+                inClass = false;
+            } else if (c == '/' && !inClass) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Skips a balanced section such as (...) or &lt;...&gt; and returns
+     * the offset just past the closing char.
+     * @param p is an int with the offset of the opening char.
+     * @param open is the opening char.
+     * @param close is the closing char.
+     * @return An int with the offset after the closing char.
+     */
+    private int skipBalanced(int p, char open, char close) {
+        int depth = 0;
+        while (p < this.len) {
+            char c = this.text.charAt(p++);
+            if (c == open) {
+                depth++;
+            } else if (c == close) {
+                depth--;
+                if (depth == 0) {
+                    break;
+                }
+            }
+        }
+        return p;
+    }
+
+    /**
+     * Skips any whitespace from the provided offset.
+     * @param p is an int with the offset to start from.
+     * @return An int with the first non whitespace offset.
+     */
+    private int skipWhitespace(int p) {
+        while (p < this.len && Character.isWhitespace(this.text.charAt(p))) {
+            p++;
+        }
+        return p;
+    }
+
+    /**
+     * Skips any word characters from the provided offset.
+     * @param p is an int with the offset to start from.
+     * @return An int with the first non word char offset.
+     */
+    private int skipWord(int p) {
+        while (p < this.len && this.isWordChar(this.text.charAt(p))) {
+            p++;
+        }
+        return p;
+    }
+
+    /**
+     * Checks if the provided key word is at the offset and isn't
+     * immediately followed by another word char.
+     * @param p is an int with the offset.
+     * @param word is a String with the key word.
+     * @return A boolean with true if the key word is found.
+     */
+    private boolean isKeyWord(int p, String word) {
+        return this.startsWith(p, word) && !(p + word.length() < this.len && this.isWordChar(this.text.charAt(p + word.length())));
+    }
+
+    /**
+     * Checks if the provided String is at the offset.
+     * @param p is an int with the offset.
+     * @param str is a String to look for.
+     * @return A boolean with true if found.
+     */
+    private boolean startsWith(int p, String str) {
+        if (p + str.length() > this.len) {
+            return false;
+        }
+        for (int i = 0; i < str.length(); i++) {
+            if (this.text.charAt(p + i) != str.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks if the char at the offset is the provided char.
+     * @param p is an int with the offset.
+     * @param c is the char to check for.
+     * @return A boolean with true if it matches.
+     */
+    private boolean charIs(int p, char c) {
+        return p < this.len && this.text.charAt(p) == c;
+    }
+
+    /**
+     * Checks if the provided char is a word char. (Same as regex \w)
+     * @param c is the char to check.
+     * @return A boolean with true if it's a word char.
+     */
+    private boolean isWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+    }
+}
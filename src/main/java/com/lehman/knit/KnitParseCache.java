@@ -0,0 +1,185 @@
+/*
+ * Copyright 2021 Roseville Code Inc. (austin@rosevillecode.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.lehman.knit;
+
+import java.io.*;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * Persistent cache of parsed DW files. Entries are keyed by file
+ * path and are only used while the file size and modified time
+ * still match the values recorded when the file was parsed. The
+ * cache is stored as a single serialized file in the cache directory.
+ */
+public class KnitParseCache {
+    /**
+     * Cache format version. Bump this when the parser output changes
+     * so that existing caches get discarded.
+     */
+    private static final int CACHE_VERSION = 6;
+
+    /**
+     * The cache file name within the cache directory.
+     */
+    private static final String CACHE_FILE_NAME = "parse-cache.ser";
+
+    /**
+     * The cache directory.
+     */
+    private String cacheDirName = "";
+
+    /**
+     * The cache entries keyed by file name.
+     */
+    private HashMap<String, Entry> entries = new HashMap<String, Entry>();
+
+    /**
+     * The keys that were used or added this run. Anything else is dropped on save.
+     */
+    private HashSet<String> usedKeys = new HashSet<String>();
+
+    /**
+     * Flag that is set when the entries need to be saved.
+     */
+    private boolean changed = false;
+
+    /**
+     * Constructor with the provided cache directory.
+     * @param CacheDirName is a String with the cache directory.
+     */
+    public KnitParseCache(String CacheDirName) {
+        this.cacheDirName = CacheDirName;
+    }
+
+    /**
+     * Loads the cache from disk. A missing, unreadable or out of date
+     * cache file results in an empty cache.
+     */
+    @SuppressWarnings("unchecked")
+    public void load() {
+        File cacheFile = new File(this.cacheDirName + "/" + CACHE_FILE_NAME);
+        if (!cacheFile.isFile()) {
+            return;
+        }
+
+        ObjectInputStream in = null;
+        try {
+            in = new ObjectInputStream(new BufferedInputStream(new FileInputStream(cacheFile)));
+            if (in.readInt() == CACHE_VERSION) {
+                this.entries = (HashMap<String, Entry>) in.readObject();
+            }
+        } catch (Exception e) {
+            System.err.println("Warning: Knit parse cache '" + cacheFile.getPath() + "' couldn't be read and will be rebuilt. (" + e + ")");
+            this.entries = new HashMap<String, Entry>();
+        } finally {
+            if (in != null) {
+                try { in.close(); }
+                catch (IOException e) { }
+            }
+        }
+    }
+
+    /**
+     * Saves the cache to disk if anything changed. Entries for files
+     * that weren't seen this run are dropped.
+     * @throws IOException on IO exception.
+     */
+    public void save() throws IOException {
+        if (this.entries.keySet().retainAll(this.usedKeys)) {
+            this.changed = true;
+        }
+        if (!this.changed) {
+            return;
+        }
+
+        File dir = new File(this.cacheDirName);
+        dir.mkdirs();
+        ObjectOutputStream out = null;
+        try {
+            out = new ObjectOutputStream(new BufferedOutputStream(new FileOutputStream(new File(dir, CACHE_FILE_NAME))));
+            out.writeInt(CACHE_VERSION);
+            out.writeObject(this.entries);
+        } finally {
+            if (out != null) {
+                out.close();
+            }
+        }
+        this.changed = false;
+    }
+
+    /**
+     * Gets the cached parse result of the provided source file.
+     * @param src is the DwSourceFile to look up.
+     * @param dwlFileExt is a String with the dataweave file extension.
+     * @param sourceEncoding is a String with the source file encoding.
+     * @return A DwFile object or null if there's no valid cache entry.
+     */
+    public DwFile get(DwSourceFile src, String dwlFileExt, String sourceEncoding) {
+        Entry entry = this.entries.get(src.getFileName());
+        if (entry != null) {
+            File f = new File(src.getFileName());
+            if (
+                entry.rootDirName.equals(src.getRootDirName())
+                && entry.dwlFileExt.equals(dwlFileExt)
+                && entry.sourceEncoding.equals(sourceEncoding)
+                && entry.length == f.length()
+                && entry.lastModified == f.lastModified()
+            ) {
+                this.usedKeys.add(src.getFileName());
+                return entry.file;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds or replaces the parse result of the provided source file.
+     * @param src is the DwSourceFile that was parsed.
+     * @param dwlFileExt is a String with the dataweave file extension.
+     * @param sourceEncoding is a String with the source file encoding.
+     * @param file is the parsed DwFile object.
+     */
+    public void put(DwSourceFile src, String dwlFileExt, String sourceEncoding, DwFile file) {
+        File f = new File(src.getFileName());
+        Entry entry = new Entry();
+        entry.rootDirName = src.getRootDirName();
+        entry.dwlFileExt = dwlFileExt;
+        entry.sourceEncoding = sourceEncoding;
+        entry.length = f.length();
+        entry.lastModified = f.lastModified();
+        entry.file = file;
+        this.entries.put(src.getFileName(), entry);
+        this.usedKeys.add(src.getFileName());
+        this.changed = true;
+    }
+
+    /**
+     * Class models a single cache entry.
+     */
+    private static class Entry implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private String rootDirName = "";
+        private String dwlFileExt = "";
+        private String sourceEncoding = "";
+        private long length = 0;
+        private long lastModified = 0;
+        private DwFile file = null;
+    }
+}
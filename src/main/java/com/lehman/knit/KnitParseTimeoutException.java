@@ -0,0 +1,48 @@
+/*
+ * Copyright 2021 Roseville Code Inc. (austin@rosevillecode.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.lehman.knit;
+
+/**
+ * Exception thrown when parsing a file takes longer than the
+ * configured parse budget.
+ */
+public class KnitParseTimeoutException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The offset in the source text that was reached.
+     */
+    private int offset = 0;
+
+    /**
+     * Constructor with the provided offset.
+     * @param Offset is an int with the offset in the source text that was reached.
+     */
+    public KnitParseTimeoutException(int Offset) {
+        super("Parse budget exceeded at offset " + Offset + ".");
+        this.offset = Offset;
+    }
+
+    /**
+     * Gets the offset in the source text that was reached.
+     * @return An int with the offset.
+     */
+    public int getOffset() {
+        return offset;
+    }
+}
@@ -18,19 +18,99 @@
 package com.lehman.knit;
 
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 /**
- * Knit parser class implements the DW parser functionality.
+ * Knit parser class implements the DW parser functionality. The regular
+ * expressions are compiled once and shared by all parsers. Each parser
+ * reuses its own matchers so a parser instance must only be used by one
+ * thread at a time.
  */
 public class KnitParser {
+    /**
+     * Matches the platform line separator.
+     */
+    private static final Pattern LINE_SEPARATOR = Pattern.compile(Pattern.quote(System.lineSeparator()));
+
+    /**
+     * Matches the leading space and * of a comment line.
+     */
+    private static final Pattern COMMENT_LINE_PREFIX = Pattern.compile("^\\s\\*\\s?");
+
+    /**
+     * Splits a comment into the text and the annotations that follow it.
+     */
+    private static final Pattern COMMENT = Pattern.compile("(.*?)(^@.*)", Pattern.DOTALL | Pattern.MULTILINE);
+
+    /**
+     * Matches a single annotation with its name and value.
+     */
+    private static final Pattern ANNOTATION = Pattern.compile("^@(\\w+)\\s(.*?(?=@))", Pattern.DOTALL | Pattern.MULTILINE);
+
+    /**
+     * Splits a param annotation value into the key and value.
+     */
+    private static final Pattern ANNOTATION_VALUE = Pattern.compile("(\\w+)\\s(.*)", Pattern.DOTALL | Pattern.MULTILINE);
+
+    /**
+     * Splits a see annotation value into the reference and description.
+     */
+    private static final Pattern SEE_VALUE = Pattern.compile("(\\S+)\\s*(.*)", Pattern.DOTALL);
+
+    /**
+     * Matches an import statement of names from a module. (a, b as c from dw::x::y)
+     */
+    private static final Pattern IMPORT_FROM = Pattern.compile("(.+?)\\s+from\\s+([\\w:!]+)");
+
+    /**
+     * Matches an import statement of a module with an optional alias. (dw::x::y as z)
+     */
+    private static final Pattern IMPORT_MODULE = Pattern.compile("([\\w:!]+)(?:\\s+as\\s+(\\w+))?");
+
+    /**
+     * Matches the unescaped commas between table fields.
+     */
+    private static final Pattern TABLE_FIELD_SEPARATOR = Pattern.compile("(?<!\\\\\\\\),");
+
+    /**
+     * Matches an escaped comma within a table field.
+     */
+    private static final Pattern ESCAPED_COMMA = Pattern.compile("\\\\\\\\,");
+
+    private final Matcher lineSeparatorMatcher = LINE_SEPARATOR.matcher("");
+    private final Matcher commentLinePrefixMatcher = COMMENT_LINE_PREFIX.matcher("");
+    private final Matcher commentMatcher = COMMENT.matcher("");
+    private final Matcher annotationMatcher = ANNOTATION.matcher("");
+    private final Matcher annotationValueMatcher = ANNOTATION_VALUE.matcher("");
+    private final Matcher seeValueMatcher = SEE_VALUE.matcher("");
+    private final Matcher importFromMatcher = IMPORT_FROM.matcher("");
+    private final Matcher importModuleMatcher = IMPORT_MODULE.matcher("");
+    private final Matcher tableFieldSeparatorMatcher = TABLE_FIELD_SEPARATOR.matcher("");
+    private final Matcher escapedCommaMatcher = ESCAPED_COMMA.matcher("");
+
+    /**
+     * The time in milliseconds a single file may take to parse or 0 for no limit.
+     */
+    private long parseBudget = 0;
+
     /**
      * Default constructor.
      */
     public KnitParser() {}
 
+    /**
+     * Constructor with the provided parse budget.
+     * @param ParseBudget is a long with the time in milliseconds a single
+     * file may take to parse or 0 for no limit.
+     */
+    public KnitParser(long ParseBudget) {
+        this.parseBudget = ParseBudget;
+    }
+
     /**
      * Parses a DW file with the provided root directory name and file name
      * and returns the parsed dwFile object.
@@ -41,77 +121,137 @@ public class KnitParser {
      * @throws IOException
      */
     public DwFile parseFile(String rootDirName, String fileName, String dwlFileExt) throws IOException {
-        DwFile ret = new DwFile(fileName.replaceFirst(rootDirName, ""), dwlFileExt);
-        String fileStr = Util.read(fileName);
-        this.parseModuleComment(fileStr, ret);
-        ret.setVariables(this.parseVariables(fileStr));
-        ret.setFunctions(this.parseFunctions(fileStr));
-        return ret;
+        return this.parseFile(rootDirName, fileName, dwlFileExt, StandardCharsets.UTF_8);
     }
 
     /**
-     * Parses the module comment with the provided file contents
-     * and sets the comment information in the provided dwFile object.
-     * @param text is a String with the file contents.
-     * @param ret is the return dwFile object to set the comment information in.
+     * Parses a DW file with the provided root directory name, file name
+     * and source encoding and returns the parsed dwFile object.
+     * @param rootDirName is a String with the root directory of the file to parse.
+     * @param fileName is a String with the file name to parse.
+     * @param dwlFileExt is a String with the dataweave file extension. (Default dwl)
+     * @param sourceEncoding is the Charset of the file.
+     * @return A dwParse object.
+     * @throws IOException
+     * @throws KnitParseTimeoutException if the file takes longer than the parse budget.
      */
-    private void parseModuleComment(String text, DwFile ret) {
-        // Get the module section.
-        String funPatternStr = "(\\/\\*\\*((.(?!\\/\\*\\*))+?)\\*\\/\\s*%dw)";
-        Pattern r = Pattern.compile(funPatternStr, Pattern.DOTALL | Pattern.MULTILINE);
-        Matcher m = r.matcher(text);
-        if (m.find()) {
-            String commentStr = m.group(2).toString();
-            ret.setCommentString(this.parseCommentString(commentStr).trim());
-            ret.setComment(this.parseComment(ret.getCommentString()));
-            ret.setTable(this.parseAnnotationTable(ret.getComment()));
+    public DwFile parseFile(String rootDirName, String fileName, String dwlFileExt, Charset sourceEncoding) throws IOException {
+        String relName = fileName.startsWith(rootDirName) ? fileName.substring(rootDirName.length()) : fileName;
+        DwFile ret = new DwFile(relName, dwlFileExt);
+        CharSequence text = Util.read(fileName, sourceEncoding);
+        DeadlineCharSequence deadline = null;
+        if (this.parseBudget > 0) {
+            deadline = new DeadlineCharSequence(text, System.nanoTime() + this.parseBudget * 1000000L);
         }
+        this.parseText(fileName, deadline != null ? deadline : text, ret, deadline);
+        return ret;
     }
 
     /**
-     * Parses the DW functions with the provided file text and returns an
-     * array of dwFunction object with the results.
-     * @param text is a String with the file text.
-     * @return An ArrayList of dwFunction objects with the function list.
+     * Parses the provided DW source text in a single pass and sets the
+     * module comment, variables and functions in the provided dwFile object.
+     * @param fileName is a String with the file name used in warnings.
+     * @param text is a CharSequence with the file contents.
+     * @param ret is the return dwFile object to set the results in.
+     * @param deadline is the DeadlineCharSequence that wraps the text or
+     * null if there's no parse budget. It's also checked after each token.
      */
-    private ArrayList<DwFunction> parseFunctions(String text) {
-        ArrayList<DwFunction> ret = new ArrayList<DwFunction>();
-
-        // Get functions sections.
-        String funPatternStr = "(\\/\\*\\*(.(?!\\/\\*\\*))+?\\*\\/\\s*fun\\s*\\w*\\s*\\(.*?\\))";
-        Pattern r = Pattern.compile(funPatternStr, Pattern.DOTALL | Pattern.MULTILINE);
-        Matcher m = r.matcher(text);
-        while (m.find()) {
-            for (int i = 1; i < m.groupCount(); i++) {
-                ret.add(this.parseFunctionString(m.group(i).toString()));
+    private void parseText(String fileName, CharSequence text, DwFile ret, DeadlineCharSequence deadline) {
+        ArrayList<DwVariable> variables = new ArrayList<DwVariable>();
+        ArrayList<DwFunction> functions = new ArrayList<DwFunction>();
+        ArrayList<DwImport> imports = new ArrayList<DwImport>();
+        boolean moduleCommentSet = false;
+
+        KnitLexer lexer = new KnitLexer(text);
+        KnitToken tok;
+        while ((tok = lexer.next()) != null) {
+            if (tok.getType() == KnitTokenType.MODULE) {
+                if (!moduleCommentSet) {
+                    this.parseModuleComment(tok, ret);
+                    moduleCommentSet = true;
+                }
+            } else if (tok.getType() == KnitTokenType.VAR) {
+                variables.add(this.parseVariable(tok));
+            } else if (tok.getType() == KnitTokenType.FUN) {
+                functions.add(this.parseFunction(tok));
+            } else if (tok.getType() == KnitTokenType.IMPORT) {
+                DwImport imp = this.parseImport(tok);
+                if (imp != null) {
+                    imports.add(imp);
+                }
+            }
+            if (deadline != null) {
+                deadline.check(lexer.getOffset());
             }
+        }
 
+        if (lexer.getUnterminatedCommentOffset() >= 0) {
+            System.err.println("Warning: Unterminated comment at offset " + lexer.getUnterminatedCommentOffset() + " in '" + fileName + "', the rest of the file isn't documented.");
         }
 
-        return ret;
+        ret.setVariables(variables);
+        ret.setFunctions(functions);
+        ret.setImports(imports);
     }
 
     /**
-     * Parses each individual function text and returns a dwFunction
+     * Parses the module comment token and sets the comment
+     * information in the provided dwFile object.
+     * @param tok is a KnitToken with the module comment.
+     * @param ret is the return dwFile object to set the comment information in.
+     */
+    private void parseModuleComment(KnitToken tok, DwFile ret) {
+        ret.setCommentString(this.parseCommentString(tok.getCommentString()).trim());
+        ret.setComment(this.parseComment(ret.getCommentString()));
+        ret.setTable(this.parseAnnotationTable(ret.getComment()));
+    }
+
+    /**
+     * Parses a function token and returns a dwFunction
      * object with the result.
-     * @param functionString is a String with the function text.
+     * @param tok is a KnitToken with the function declaration.
      * @return A dwFunction object with the result.
      */
-    private DwFunction parseFunctionString(String functionString) {
+    private DwFunction parseFunction(KnitToken tok) {
         DwFunction funct = new DwFunction();
+        funct.setCommentString(this.parseCommentString(tok.getCommentString()).trim());
+        funct.setName(tok.getName());
+        funct.setComment(this.parseComment(funct.getCommentString()));
+        funct.setTable(this.parseAnnotationTable(funct.getComment()));
+        funct.setArguments(this.parseArguments(tok.getArguments()));
+        return funct;
+    }
 
-        String funPatternStr = "\\/\\*\\*(.+?)\\*\\/\\s*fun\\s*(\\w*)\\s*\\((.*?)\\)";
-        Pattern r = Pattern.compile(funPatternStr, Pattern.DOTALL | Pattern.MULTILINE);
-        Matcher m = r.matcher(functionString);
-        while (m.find()) {
-            funct.setCommentString(this.parseCommentString(m.group(1).toString()).trim());
-            funct.setName(m.group(2).toString());
-            funct.setComment(this.parseComment(funct.getCommentString()));
-            funct.setTable(this.parseAnnotationTable(funct.getComment()));
-            funct.setArguments(this.parseArguments(m.group(3).toString()));
+    /**
+     * Parses an import token and returns a DwImport object with the
+     * imported module, the imported names and the module alias.
+     * @param tok is a KnitToken with the import statement.
+     * @return A DwImport object or null if the statement isn't understood.
+     */
+    private DwImport parseImport(KnitToken tok) {
+        Matcher m = this.importFromMatcher.reset(tok.getName());
+        if (m.matches()) {
+            DwImport imp = new DwImport(m.group(2));
+            for (String name : m.group(1).split(",")) {
+                Matcher nm = this.importModuleMatcher.reset(name.trim());
+                if (name.trim().equals("*")) {
+                    imp.getNames().add("*");
+                } else if (nm.matches()) {
+                    imp.getNames().add(nm.group(1));
+                }
+            }
+            return imp;
         }
 
-        return funct;
+        m = this.importModuleMatcher.reset(tok.getName());
+        if (m.matches()) {
+            DwImport imp = new DwImport(m.group(1));
+            if (m.group(2) != null) {
+                imp.setAlias(m.group(2));
+            }
+            return imp;
+        }
+        return null;
     }
 
     /**
@@ -121,13 +261,21 @@ public class KnitParser {
      * @return A String with the leading space and * removed.
      */
     private String parseCommentString(String str) {
-        String ret = "";
-
-        for (String line : str.toString().split(System.lineSeparator())) {
-            ret += line.replaceFirst("^\\s\\*\\s?", "") + System.lineSeparator();
+        StringBuilder ret = new StringBuilder(str.length());
+
+        Matcher sep = this.lineSeparatorMatcher.reset(str);
+        Matcher prefix = this.commentLinePrefixMatcher.reset(str);
+        int start = 0;
+        boolean more = true;
+        while (more) {
+            more = sep.find();
+            int end = more ? sep.start() : str.length();
+            prefix.region(start, end);
+            ret.append(str, prefix.lookingAt() ? prefix.end() : start, end).append(System.lineSeparator());
+            start = more ? sep.end() : end;
         }
 
-        return ret;
+        return ret.toString();
     }
 
     /**
@@ -138,10 +286,7 @@ public class KnitParser {
     private DwComment parseComment(String str) {
         DwComment comment = new DwComment();
 
-        String pstr = "(.*?)(^@.*)";
-
-        Pattern r = Pattern.compile(pstr, Pattern.DOTALL | Pattern.MULTILINE);
-        Matcher m = r.matcher(str);
+        Matcher m = this.commentMatcher.reset(str);
         if (m.find()) {
             comment.setText(m.group(1).toString());
             String annStr = m.group(2).toString();
@@ -160,15 +305,15 @@ public class KnitParser {
      */
     private ArrayList<DwCommentAnnotation> parseAnnotations(String str) {
         ArrayList<DwCommentAnnotation> ret = new ArrayList<DwCommentAnnotation>();
-        String pstr = "^@(\\w+)\\s(.*?(?=@))";
-        Pattern r = Pattern.compile(pstr, Pattern.DOTALL | Pattern.MULTILINE);
-        Matcher m = r.matcher(str + System.lineSeparator() + "@");
+        Matcher m = this.annotationMatcher.reset(str + System.lineSeparator() + "@");
         while (m.find()) {
             DwCommentAnnotation ann = new DwCommentAnnotation();
             ann.setName(m.group(1).toString());
             String kvStr = m.group(2).toString();
             if (ann.getName().equals(KnitKeyWord.P.getVal()) || ann.getName().equals(KnitKeyWord.PARAM.getVal())) {
                 this.parseAnnotationValue(kvStr, ann);
+            } else if (ann.getName().equals(KnitKeyWord.SEE.getVal())) {
+                this.parseSeeValue(kvStr, ann);
             } else {
                 ann.setValue(kvStr);
             }
@@ -184,15 +329,29 @@ public class KnitParser {
      * @param ann is a dwCommentAnnotation object to update.
      */
     private void parseAnnotationValue(String str, DwCommentAnnotation ann) {
-        String pstr = "(\\w+)\\s(.*)";
-        Pattern r = Pattern.compile(pstr, Pattern.DOTALL | Pattern.MULTILINE);
-        Matcher m = r.matcher(str);
+        Matcher m = this.annotationValueMatcher.reset(str);
         if (m.find()) {
             ann.setKey(m.group(1).toString());
             ann.setValue(m.group(2).toString());
         }
     }
 
+    /**
+     * Parses the see annotation value with the provided annotation string
+     * and dwCommentAnnotation object to update. The key is set to the
+     * reference (dw::color::color::mapColor) and the value to the
+     * description that follows it.
+     * @param str is a String with the annotation text.
+     * @param ann is a dwCommentAnnotation object to update.
+     */
+    private void parseSeeValue(String str, DwCommentAnnotation ann) {
+        Matcher m = this.seeValueMatcher.reset(str.trim());
+        if (m.find()) {
+            ann.setKey(m.group(1));
+            ann.setValue(m.group(2));
+        }
+    }
+
     /**
      * Parses the function arguments and returns a list of dwArgument objects
      * as the result.
@@ -218,45 +377,16 @@ public class KnitParser {
     }
 
     /**
-     * Parses the provided file text and returns a list of dwVariable
-     * objects as the result.
-     * @param text is a String with the file text.
-     * @return An ArrayList of dwVariable objects.
-     */
-    private ArrayList<DwVariable> parseVariables(String text) {
-        ArrayList<DwVariable> variables = new ArrayList<DwVariable>();
-
-        // Get functions sections.
-        String funPatternStr = "(\\/\\*\\*(.(?!\\/\\*\\*))+?\\*\\/\\s*var\\s*\\w*)";
-        Pattern r = Pattern.compile(funPatternStr, Pattern.DOTALL | Pattern.MULTILINE);
-        Matcher m = r.matcher(text);
-        while (m.find()) {
-            for (int i = 1; i < m.groupCount(); i++) {
-                variables.add(this.parseVariableString(m.group(i).toString()));
-            }
-        }
-
-        return variables;
-    }
-
-    /**
-     * Parses the provided variable string and returns a dwVariable object.
-     * @param variableString is a String with the variable text.
+     * Parses a variable token and returns a dwVariable object.
+     * @param tok is a KnitToken with the variable declaration.
      * @return A dwVariable object with the result.
      */
-    private DwVariable parseVariableString(String variableString) {
+    private DwVariable parseVariable(KnitToken tok) {
         DwVariable var = new DwVariable();
-
-        String varPatternStr = "\\/\\*\\*(.+?)\\*\\/\\s*var\\s*(\\w*)";
-        Pattern r = Pattern.compile(varPatternStr, Pattern.DOTALL | Pattern.MULTILINE);
-        Matcher m = r.matcher(variableString);
-        while (m.find()) {
-            var.setCommentString(this.parseCommentString(m.group(1).toString()).trim());
-            var.setName(m.group(2).toString());
-            var.setComment(this.parseComment(var.getCommentString()));
-            var.setTable(this.parseAnnotationTable(var.getComment()));
-        }
-
+        var.setCommentString(this.parseCommentString(tok.getCommentString()).trim());
+        var.setName(tok.getName());
+        var.setComment(this.parseComment(var.getCommentString()));
+        var.setTable(this.parseAnnotationTable(var.getComment()));
         return var;
     }
 
@@ -276,8 +406,10 @@ public class KnitParser {
 
                 ArrayList<String> cols = new ArrayList<String>();
 
-                for (String col : Util.fromArray(ann.getValue().split("(?<!\\\\\\\\),"))) {
-                    cols.add(col.replaceAll(System.lineSeparator(), ""));
+                for (String col : this.splitTableFields(ann.getValue())) {
+                    if (!col.trim().equals("")) {
+                        cols.add(this.lineSeparatorMatcher.reset(col).replaceAll(""));
+                    }
                 }
 
                 tbl.setColumns(cols);
@@ -293,9 +425,10 @@ public class KnitParser {
                     AnnotationRow row = new AnnotationRow();
 
                     ArrayList<String> fields = new ArrayList<String>();
-                    for (String str : ann.getValue().split("(?<!\\\\\\\\),")) {
+                    for (String str : this.splitTableFields(ann.getValue())) {
                         // Replace escaped commas.
-                        fields.add(str.replaceAll("\\\\\\\\,", ",").replaceAll(System.lineSeparator(), ""));
+                        String field = this.escapedCommaMatcher.reset(str).replaceAll(",");
+                        fields.add(this.lineSeparatorMatcher.reset(field).replaceAll(""));
                     }
 
                     row.setFields(fields);
@@ -307,4 +440,31 @@ public class KnitParser {
 
         return tbl;
     }
+
+    /**
+     * Splits a table annotation value on the unescaped commas. Like
+     * String.split trailing empty fields are dropped.
+     * @param str is a String with the annotation value.
+     * @return An ArrayList of Strings with the fields.
+     */
+    private ArrayList<String> splitTableFields(String str) {
+        ArrayList<String> ret = new ArrayList<String>();
+        Matcher m = this.tableFieldSeparatorMatcher.reset(str);
+        int start = 0;
+        while (m.find()) {
+            ret.add(str.substring(start, m.start()));
+            start = m.end();
+        }
+        if (start == 0) {
+            ret.add(str);
+            return ret;
+        }
+        ret.add(str.substring(start));
+
+        int size = ret.size();
+        while (size > 0 && ret.get(size - 1).isEmpty()) {
+            ret.remove(--size);
+        }
+        return ret;
+    }
 }
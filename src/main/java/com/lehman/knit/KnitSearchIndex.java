@@ -0,0 +1,421 @@
+/*
+ * Copyright 2021 Roseville Code Inc. (austin@rosevillecode.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.lehman.knit;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Builds the static search index of the HTML output. Every module,
+ * function and variable is a search entry. The index is an inverted index
+ * of the words in their names, module paths, arguments and comments,
+ * split into small script files so that a search only loads the shards
+ * of the words typed and the entries of the top results.
+ *
+ * The files are written to the knit-search directory:
+ * index.js holds the shard names and settings, t-[xx].js holds the
+ * terms starting with xx and d-[n].js holds entries n * DOC_SHARD_SIZE
+ * and up. The shards are scripts rather than JSON files so that the
+ * search also works for documents opened from the file system.
+ */
+public class KnitSearchIndex {
+    /**
+     * The directory the index is written to within the output directory.
+     */
+    public static final String DIR_NAME = "knit-search";
+
+    /**
+     * The number of entries in each entry shard.
+     */
+    private static final int DOC_SHARD_SIZE = 500;
+
+    /**
+     * Terms are cut to this length.
+     */
+    private static final int MAX_TERM_LENGTH = 32;
+
+    /**
+     * The length of comment summaries in the entries.
+     */
+    private static final int SUMMARY_LENGTH = 100;
+
+    /**
+     * Field weights. A posting holds the highest weight the term has in the entry.
+     */
+    private static final int FIELD_COMMENT = 0;
+    private static final int FIELD_ARGUMENT = 1;
+    private static final int FIELD_PATH = 2;
+    private static final int FIELD_NAME = 3;
+
+    /**
+     * Common words in comments that aren't indexed.
+     */
+    private static final List<String> STOP_WORDS = Arrays.asList(
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "if", "in", "into", "is",
+            "it", "of", "on", "or", "that", "the", "this", "to", "with"
+    );
+
+    /**
+     * The stop words for lookups.
+     */
+    private static final HashSet<String> STOP_WORD_SET = new HashSet<String>(STOP_WORDS);
+
+    /**
+     * The entries as kind, name, module, link and summary.
+     */
+    private ArrayList<String[]> docs = new ArrayList<String[]>();
+
+    /**
+     * The postings of each term.
+     */
+    private HashMap<String, Postings> terms = new HashMap<String, Postings>();
+
+    /**
+     * Adds the provided module and its functions and variables to the index.
+     * @param file is the DwFile to add.
+     * @param href is a String with the link to the module's document relative
+     * to the output directory or blank for the single document.
+     * @param anchor is a String with the anchor of the module.
+     * @param functionAnchors is a List of Strings with the anchor of each function.
+     * @param variableAnchors is a List of Strings with the anchor of each variable.
+     */
+    public void add(DwFile file, String href, String anchor, List<String> functionAnchors, List<String> variableAnchors) {
+        String module = Util.join("::", file.getModulePath());
+
+        int id = this.addDoc("module", file.getName(), module, href + "#" + anchor, file.getComment());
+        this.addIdentifier(id, file.getName(), FIELD_NAME);
+        for (String part : file.getModulePath()) {
+            this.addIdentifier(id, part, FIELD_PATH);
+        }
+
+        for (int i = 0; i < file.getVariables().size(); i++) {
+            DwVariable var = file.getVariables().get(i);
+            id = this.addDoc("var", var.getName(), module, href + "#" + variableAnchors.get(i), var.getComment());
+            this.addIdentifier(id, var.getName(), FIELD_NAME);
+            this.addIdentifier(id, file.getName(), FIELD_PATH);
+        }
+
+        for (int i = 0; i < file.getFunctions().size(); i++) {
+            DwFunction fun = file.getFunctions().get(i);
+            id = this.addDoc("fun", fun.getName(), module, href + "#" + functionAnchors.get(i), fun.getComment());
+            this.addIdentifier(id, fun.getName(), FIELD_NAME);
+            this.addIdentifier(id, file.getName(), FIELD_PATH);
+            for (DwArgument arg : fun.getArguments()) {
+                this.addIdentifier(id, arg.getName(), FIELD_ARGUMENT);
+                this.addIdentifier(id, arg.getDatatype(), FIELD_ARGUMENT);
+            }
+        }
+    }
+
+    /**
+     * Writes the index to the knit-search directory of the provided output
+     * directory. Shards left from a previous run are removed.
+     * @param outputDirName is a String with the output directory.
+     * @throws IOException on IO exception.
+     */
+    public void write(String outputDirName) throws IOException {
+        this.write(outputDirName, false);
+    }
+
+    /**
+     * Writes the index to the knit-search directory of the provided output
+     * directory. Shards left from a previous run are removed, including
+     * their compressed copies.
+     * @param outputDirName is a String with the output directory.
+     * @param gzip is a boolean with true to also write a gzip compressed
+     * .gz copy of each file.
+     * @throws IOException on IO exception.
+     */
+    public void write(String outputDirName, boolean gzip) throws IOException {
+        File dir = new File(outputDirName, DIR_NAME);
+        dir.mkdirs();
+        File[] old = dir.listFiles();
+        if (old != null) {
+            for (File f : old) {
+                if (f.getName().startsWith("t-") || f.getName().startsWith("d-")) {
+                    f.delete();
+                }
+            }
+        }
+
+        // Term shards by the first two characters of the term. Characters
+        // outside a-z and 0-9 share the _ key, so terms are grouped by key
+        // first to write each shard once.
+        TreeMap<String, TreeMap<String, Postings>> groups = new TreeMap<String, TreeMap<String, Postings>>();
+        for (Map.Entry<String, Postings> term : this.terms.entrySet()) {
+            String key = getShardKey(term.getKey());
+            TreeMap<String, Postings> group = groups.get(key);
+            if (group == null) {
+                group = new TreeMap<String, Postings>();
+                groups.put(key, group);
+            }
+            group.put(term.getKey(), term.getValue());
+        }
+
+        ArrayList<String> shards = new ArrayList<String>();
+        Writer out = null;
+        KnitJsonWriter json = null;
+        try {
+            for (Map.Entry<String, TreeMap<String, Postings>> group : groups.entrySet()) {
+                String key = group.getKey();
+                shards.add(key);
+                out = new BufferedWriter(new OutputStreamWriter(Util.openOutput(new File(dir, "t-" + key + ".js").getPath(), gzip), StandardCharsets.UTF_8));
+                json = this.beginScript(out, "terms", key);
+                json.beginObject();
+                for (Map.Entry<String, Postings> term : group.getValue().entrySet()) {
+                    // Entry index deltas times 4 plus the field weight.
+                    Postings postings = term.getValue();
+                    json.name(term.getKey()).beginArray();
+                    int last = 0;
+                    for (int i = 0; i < postings.size; i++) {
+                        json.value((long) (postings.ids[i] - last) * 4 + postings.fields[i]);
+                        last = postings.ids[i];
+                    }
+                    json.endArray();
+                }
+                json.endObject();
+                this.endScript(out);
+                out = null;
+            }
+
+            // Entry shards.
+            for (int start = 0; start < this.docs.size(); start += DOC_SHARD_SIZE) {
+                int num = start / DOC_SHARD_SIZE;
+                out = new BufferedWriter(new OutputStreamWriter(Util.openOutput(new File(dir, "d-" + num + ".js").getPath(), gzip), StandardCharsets.UTF_8));
+                json = this.beginScript(out, "docs", String.valueOf(num));
+                json.beginArray();
+                for (int i = start; i < Math.min(start + DOC_SHARD_SIZE, this.docs.size()); i++) {
+                    json.beginArray();
+                    for (String val : this.docs.get(i)) {
+                        json.value(val);
+                    }
+                    json.endArray();
+                }
+                json.endArray();
+                this.endScript(out);
+                out = null;
+            }
+        } finally {
+            if (out != null) {
+                out.close();
+            }
+        }
+
+        // The settings the client needs.
+        out = new BufferedWriter(new OutputStreamWriter(Util.openOutput(new File(dir, "index.js").getPath(), gzip), StandardCharsets.UTF_8));
+        try {
+            json = this.beginScript(out, "index", "");
+            json.beginObject();
+            json.name("docCount").value(this.docs.size());
+            json.name("docShardSize").value(DOC_SHARD_SIZE);
+            json.name("shards").beginArray();
+            for (String key : shards) {
+                json.value(key);
+            }
+            json.endArray();
+            json.name("stopWords").beginArray();
+            for (String word : STOP_WORDS) {
+                json.value(word);
+            }
+            json.endArray();
+            json.endObject();
+            this.endScript(out);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Gets the shard key of the provided term. This is the first two
+     * characters with anything that isn't a-z or 0-9 replaced with _
+     * so it can be used in a file name.
+     * @param term is a String with the term.
+     * @return A String with the shard key.
+     */
+    static String getShardKey(String term) {
+        StringBuilder ret = new StringBuilder();
+        for (int i = 0; i < 2 && i < term.length(); i++) {
+            char c = term.charAt(i);
+            ret.append((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') ? c : '_');
+        }
+        return ret.toString();
+    }
+
+    /**
+     * Adds a search entry and indexes the words of its comment.
+     * @param kind is a String with the entry kind. (module, fun or var)
+     * @param name is a String with the entry name.
+     * @param module is a String with the module path.
+     * @param href is a String with the entry link.
+     * @param comment is the DwComment of the entry.
+     * @return An int with the entry index.
+     */
+    private int addDoc(String kind, String name, String module, String href, DwComment comment) {
+        int id = this.docs.size();
+        String summary = Util.stripNewLines(comment.getText()).trim();
+        if (summary.length() > SUMMARY_LENGTH) {
+            summary = summary.substring(0, SUMMARY_LENGTH).trim() + "...";
+        }
+        this.docs.add(new String[] { kind, name, module, href, summary });
+
+        this.addText(id, comment.getText());
+        for (DwCommentAnnotation ann : comment.getAnnotations()) {
+            this.addText(id, ann.getKey());
+            this.addText(id, ann.getValue());
+        }
+        return id;
+    }
+
+    /**
+     * Indexes an identifier. The whole identifier is indexed along with
+     * each of its camel case and underscore separated words, so mapColor
+     * is found with mapcolor, map and color.
+     * @param id is an int with the entry index.
+     * @param ident is a String with the identifier.
+     * @param field is an int with the field weight.
+     */
+    private void addIdentifier(int id, String ident, int field) {
+        if (ident == null) {
+            return;
+        }
+        for (String word : this.words(ident)) {
+            this.addTerm(id, word.toLowerCase(Locale.ROOT), field);
+            int start = 0;
+            for (int i = 1; i <= word.length(); i++) {
+                if (i == word.length() || (Character.isUpperCase(word.charAt(i)) && !Character.isUpperCase(word.charAt(i - 1)))) {
+                    if (start > 0 || i < word.length()) {
+                        this.addTerm(id, word.substring(start, i).toLowerCase(Locale.ROOT), field);
+                    }
+                    start = i;
+                }
+            }
+        }
+    }
+
+    /**
+     * Indexes the words of a comment text.
+     * @param id is an int with the entry index.
+     * @param text is a String with the text.
+     */
+    private void addText(int id, String text) {
+        if (text == null) {
+            return;
+        }
+        for (String word : this.words(text)) {
+            String term = word.toLowerCase(Locale.ROOT);
+            if (!STOP_WORD_SET.contains(term)) {
+                this.addTerm(id, term, FIELD_COMMENT);
+            }
+        }
+    }
+
+    /**
+     * Adds a term posting keeping the highest field weight of the entry.
+     * @param id is an int with the entry index.
+     * @param term is a String with the lower case term.
+     * @param field is an int with the field weight.
+     */
+    private void addTerm(int id, String term, int field) {
+        if (term.length() < 2) {
+            return;
+        }
+        if (term.length() > MAX_TERM_LENGTH) {
+            term = term.substring(0, MAX_TERM_LENGTH);
+        }
+        Postings postings = this.terms.get(term);
+        if (postings == null) {
+            postings = new Postings();
+            this.terms.put(term, postings);
+        }
+        postings.add(id, field);
+    }
+
+    /**
+     * Splits the provided text into words of letters and digits. Underscores
+     * separate words.
+     * @param text is a String to split.
+     * @return A List of Strings with the words.
+     */
+    private List<String> words(String text) {
+        ArrayList<String> ret = new ArrayList<String>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean letter = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                ret.add(text.substring(start, i));
+                start = -1;
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Begins a shard script that passes its data to the client.
+     * @param out is the Writer to write to.
+     * @param type is a String with the shard type.
+     * @param key is a String with the shard key.
+     * @return A KnitJsonWriter to write the shard data with.
+     * @throws IOException on IO exception.
+     */
+    private KnitJsonWriter beginScript(Writer out, String type, String key) throws IOException {
+        out.write("KnitSearch.load(\"" + type + "\",\"" + key + "\",");
+        return new KnitJsonWriter(out, false);
+    }
+
+    /**
+     * Ends a shard script and closes the writer.
+     * @param out is the Writer to close.
+     * @throws IOException on IO exception.
+     */
+    private void endScript(Writer out) throws IOException {
+        out.write(");\n");
+        out.close();
+    }
+
+    /**
+     * The entries a term is found in with the field weight of each.
+     * Entries are indexed in order so a new entry is always the last.
+     */
+    private static class Postings {
+        private int[] ids = new int[4];
+        private int[] fields = new int[4];
+        private int size = 0;
+
+        /**
+         * Adds the entry or raises its field weight if it's already the last entry.
+         * @param id is an int with the entry index.
+         * @param field is an int with the field weight.
+         */
+        private void add(int id, int field) {
+            if (this.size > 0 && this.ids[this.size - 1] == id) {
+                this.fields[this.size - 1] = Math.max(this.fields[this.size - 1], field);
+                return;
+            }
+            if (this.size == this.ids.length) {
+                this.ids = Arrays.copyOf(this.ids, this.size * 2);
+                this.fields = Arrays.copyOf(this.fields, this.size * 2);
+            }
+            this.ids[this.size] = id;
+            this.fields[this.size] = field;
+            this.size++;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright 2021 Roseville Code Inc. (austin@rosevillecode.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.lehman.knit;
+
+/**
+ * Class models a doc comment that the lexer has bound
+ * to the declaration that follows it.
+ */
+public class KnitToken {
+    /**
+     * The declaration type.
+     */
+    private KnitTokenType type;
+
+    /**
+     * The raw comment text between the opening and closing comment marks.
+     */
+    private String commentString = "";
+
+    /**
+     * The declared name if the declaration has one.
+     */
+    private String name = "";
+
+    /**
+     * The raw argument text between the parentheses of a function.
+     */
+    private String arguments = "";
+
+    /**
+     * The offset of the doc comment within the source text.
+     */
+    private int offset = 0;
+
+    /**
+     * Constructor with the provided token values.
+     * @param Type is the KnitTokenType of the declaration.
+     * @param CommentString is a String with the raw comment text.
+     * @param Offset is an int with the offset of the comment in the source.
+     */
+    public KnitToken(KnitTokenType Type, String CommentString, int Offset) {
+        this.type = Type;
+        this.commentString = CommentString;
+        this.offset = Offset;
+    }
+
+    /**
+     * Gets the declaration type.
+     * @return A KnitTokenType with the declaration type.
+     */
+    public KnitTokenType getType() {
+        return type;
+    }
+
+    /**
+     * Gets the raw comment text.
+     * @return A String with the comment text.
+     */
+    public String getCommentString() {
+        return commentString;
+    }
+
+    /**
+     * Gets the declared name.
+     * @return A String with the name or an empty String if there isn't one.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Sets the declared name.
+     * @param name is a String with the name.
+     */
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Gets the raw function argument text.
+     * @return A String with the argument text.
+     */
+    public String getArguments() {
+        return arguments;
+    }
+
+    /**
+     * Sets the raw function argument text.
+     * @param arguments is a String with the argument text.
+     */
+    public void setArguments(String arguments) {
+        this.arguments = arguments;
+    }
+
+    /**
+     * Gets the offset of the doc comment within the source text.
+     * @return An int with the offset.
+     */
+    public int getOffset() {
+        return offset;
+    }
+}
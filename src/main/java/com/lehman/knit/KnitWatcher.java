@@ -0,0 +1,369 @@
+/*
+ * Copyright 2021 Roseville Code Inc. (austin@rosevillecode.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.lehman.knit;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Knit watcher class implements watch mode. It generates the document
+ * once and then watches the source directories. When DW files change
+ * only those files are parsed again, the in memory list of parsed files
+ * is patched and the document is written again. When a file is written
+ * for each module only the changed modules and the modules whose imported
+ * by sections changed are written again. Bursts of file events,
+ * such as an editor saving through a temp file, are debounced into a
+ * single update.
+ */
+public class KnitWatcher {
+    /**
+     * Time in milliseconds the directories must be quiet before an update runs.
+     */
+    private static final long DEBOUNCE_MS = 50;
+
+    /**
+     * The configuration to generate with.
+     */
+    private Main config;
+
+    /**
+     * The output format to write.
+     */
+    private String format;
+
+    /**
+     * The doc writer.
+     */
+    private DwDocWriter writer = null;
+
+    /**
+     * The watch service, the directory of each registered key and the
+     * watched root directory each key is below.
+     */
+    private WatchService watchService = null;
+    private HashMap<WatchKey, Path> keys = new HashMap<WatchKey, Path>();
+    private HashMap<WatchKey, Path> roots = new HashMap<WatchKey, Path>();
+
+    /**
+     * The discovery used to skip excluded directories.
+     */
+    private KnitDiscovery discovery = null;
+
+    /**
+     * The current sources in output order and the parsed result of each keyed by file name.
+     */
+    private List<DwSourceFile> sources = new ArrayList<DwSourceFile>();
+    private HashMap<String, DwFile> parsed = new HashMap<String, DwFile>();
+
+    /**
+     * Constructor with the provided configuration and output format.
+     * @param Config is the Main object with the configuration.
+     * @param Format is a String with the output format to write.
+     */
+    public KnitWatcher(Main Config, String Format) {
+        this.config = Config;
+        this.format = Format;
+    }
+
+    /**
+     * Writes the document and then watches for changes until the thread
+     * is interrupted.
+     * @throws Exception
+     */
+    public void run() throws Exception {
+        this.writer = this.config.createWriter(this.format);
+        this.watchService = FileSystems.getDefault().newWatchService();
+        this.discovery = this.config.createDiscovery();
+        try {
+            for (String dirName : this.config.getWatchDirectories()) {
+                Path dir = Paths.get(dirName);
+                if (Files.isDirectory(dir)) {
+                    this.registerAll(dir, dir);
+                }
+            }
+
+            this.update(new HashSet<Path>(), true);
+            System.out.println("Watching " + this.keys.size() + " directories for changes. Press Ctrl+C to stop.");
+
+            while (true) {
+                WatchKey key = this.watchService.take();
+                HashSet<Path> changed = new HashSet<Path>();
+                boolean structural = this.drain(key, changed);
+
+                // Keep collecting until the directories are quiet.
+                while ((key = this.watchService.poll(DEBOUNCE_MS, TimeUnit.MILLISECONDS)) != null) {
+                    structural |= this.drain(key, changed);
+                }
+
+                try {
+                    this.update(changed, structural);
+                } catch (Exception e) {
+                    System.err.println("Error: knit-maven-plugin couldn't regenerate the document. (" + e + ")");
+                }
+            }
+        } finally {
+            this.watchService.close();
+        }
+    }
+
+    /**
+     * Parses the new and changed sources as one batch, patches the parsed
+     * list and writes the document again.
+     * @param changed is a Set of Paths that changed.
+     * @param structural is a boolean with true if files or directories were
+     * added or removed so the sources need to be discovered again.
+     * @throws Exception
+     */
+    private void update(Set<Path> changed, boolean structural) throws Exception {
+        long start = System.nanoTime();
+
+        List<DwSourceFile> next = structural ? this.config.discoverSources() : this.sources;
+        ArrayList<DwSourceFile> toParse = new ArrayList<DwSourceFile>();
+        for (DwSourceFile src : next) {
+            if (!this.parsed.containsKey(src.getFileName()) || changed.contains(this.normalize(Paths.get(src.getFileName())))) {
+                toParse.add(src);
+            }
+        }
+        DwFile[] results = this.parse(toParse);
+        int count = toParse.size();
+
+        HashMap<String, DwFile> nextParsed = new HashMap<String, DwFile>();
+        for (DwSourceFile src : next) {
+            DwFile file = this.parsed.get(src.getFileName());
+            if (file != null) {
+                nextParsed.put(src.getFileName(), file);
+            }
+        }
+        // A file that was skipped or couldn't be parsed keeps its last parse result.
+        for (int i = 0; i < toParse.size(); i++) {
+            if (results[i] != null) {
+                nextParsed.put(toParse.get(i).getFileName(), results[i]);
+            }
+        }
+
+        // Nothing that's documented changed.
+        if (count == 0 && nextParsed.size() == this.parsed.size() && !this.parsed.isEmpty()) {
+            this.sources = next;
+            return;
+        }
+
+        ArrayList<DwFile> files = new ArrayList<DwFile>();
+        for (DwSourceFile src : next) {
+            DwFile file = nextParsed.get(src.getFileName());
+            if (file != null) {
+                files.add(file);
+            }
+        }
+        Set<DwFile> dirty = this.getDirty(nextParsed, files);
+
+        this.sources = next;
+        this.parsed = nextParsed;
+
+        this.config.writeOutput(this.writer, files, dirty);
+        System.out.println("Regenerated in " + ((System.nanoTime() - start) / 1000000) + " ms. (" + count + " of " + files.size() + " files parsed)");
+    }
+
+    /**
+     * Parses the provided sources with the configured parallelism. If the
+     * batch fails, such as when a file is removed while it's read, the
+     * files are parsed one at a time so that only the failing files are
+     * reported and left out.
+     * @param sources is a List of DwSourceFile objects to parse.
+     * @return An array of dwFile objects at the positions of the sources,
+     * null for files that were skipped or couldn't be parsed.
+     */
+    private DwFile[] parse(List<DwSourceFile> sources) {
+        try {
+            return this.config.parseSourceFiles(sources);
+        } catch (Exception e) {
+            DwFile[] ret = new DwFile[sources.size()];
+            for (int i = 0; i < sources.size(); i++) {
+                try {
+                    ret[i] = this.config.parseSourceFiles(Collections.singletonList(sources.get(i)))[0];
+                } catch (Exception ex) {
+                    System.err.println("Warning: Couldn't parse '" + sources.get(i).getFileName() + "'. (" + ex + ")");
+                }
+            }
+            return ret;
+        }
+    }
+
+    /**
+     * Gets the modules whose documents need to be written again when a
+     * file is written for each module. This is every changed module and,
+     * when a module's imports changed, the modules it started or stopped
+     * importing as their imported by sections changed. If modules were
+     * added or removed or a module's declarations changed, links in any
+     * module may have changed and everything is written again.
+     * @param nextParsed is a HashMap of the new parse results keyed by file name.
+     * @param files is a List of the new dwFile objects.
+     * @return A Set of dwFile objects or null to write all of them.
+     */
+    private Set<DwFile> getDirty(HashMap<String, DwFile> nextParsed, List<DwFile> files) {
+        if (this.parsed.isEmpty() || !this.parsed.keySet().equals(nextParsed.keySet())) {
+            return null;
+        }
+
+        DwModuleIndex index = new DwModuleIndex(files);
+        Set<DwFile> dirty = Collections.newSetFromMap(new IdentityHashMap<DwFile, Boolean>());
+        for (Map.Entry<String, DwFile> entry : nextParsed.entrySet()) {
+            DwFile prev = this.parsed.get(entry.getKey());
+            DwFile file = entry.getValue();
+            if (prev == file) {
+                continue;
+            }
+            if (!this.getDeclarationNames(prev).equals(this.getDeclarationNames(file))) {
+                return null;
+            }
+            dirty.add(file);
+
+            // Modules that were imported before or are imported now, but not both.
+            Set<String> prevImports = this.getImportNames(prev);
+            Set<String> imports = this.getImportNames(file);
+            for (String name : prevImports) {
+                if (!imports.contains(name)) {
+                    this.addModule(dirty, index, name);
+                }
+            }
+            for (String name : imports) {
+                if (!prevImports.contains(name)) {
+                    this.addModule(dirty, index, name);
+                }
+            }
+        }
+        return dirty;
+    }
+
+    /**
+     * Adds the module with the provided qualified name to the provided set if it exists.
+     * @param dirty is the Set of dwFile objects to add to.
+     * @param index is the DwModuleIndex to look the module up in.
+     * @param name is a String with the qualified module name.
+     */
+    private void addModule(Set<DwFile> dirty, DwModuleIndex index, String name) {
+        DwFile file = index.getModule(name);
+        if (file != null) {
+            dirty.add(file);
+        }
+    }
+
+    /**
+     * Gets the names other modules can link to in the provided module.
+     * This is the qualified module name followed by the variable and
+     * function names.
+     * @param file is the dwFile object to get the names of.
+     * @return A List of Strings with the names.
+     */
+    private List<String> getDeclarationNames(DwFile file) {
+        ArrayList<String> ret = new ArrayList<String>();
+        ret.add(DwModuleIndex.getQualifiedName(file));
+        for (DwVariable var : file.getVariables()) {
+            ret.add(var.getName());
+        }
+        for (DwFunction fun : file.getFunctions()) {
+            ret.add(fun.getName());
+        }
+        return ret;
+    }
+
+    /**
+     * Gets the module names the provided module imports.
+     * @param file is the dwFile object to get the imports of.
+     * @return A Set of Strings with the module names.
+     */
+    private Set<String> getImportNames(DwFile file) {
+        HashSet<String> ret = new HashSet<String>();
+        for (DwImport imp : file.getImports()) {
+            ret.add(imp.getModuleName());
+        }
+        return ret;
+    }
+
+    /**
+     * Collects the paths of the events of the provided key and resets it.
+     * New directories are registered so that they're watched as well.
+     * @param key is the WatchKey that was signalled.
+     * @param changed is a Set of Paths to add the changed paths to.
+     * @return A boolean with true if files or directories were added or removed.
+     * @throws IOException on IO exception.
+     */
+    private boolean drain(WatchKey key, Set<Path> changed) throws IOException {
+        boolean structural = false;
+        Path dir = this.keys.get(key);
+        Path root = this.roots.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW || dir == null) {
+                structural = true;
+                continue;
+            }
+            Path path = dir.resolve((Path) event.context());
+            changed.add(this.normalize(path));
+            if (event.kind() != StandardWatchEventKinds.ENTRY_MODIFY) {
+                structural = true;
+                if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+                    this.registerAll(path, root);
+                }
+            }
+        }
+        if (!key.reset()) {
+            this.keys.remove(key);
+            this.roots.remove(key);
+        }
+        return structural;
+    }
+
+    /**
+     * Registers the provided directory and every directory below it.
+     * Directories the exclude globs exclude as a whole aren't watched,
+     * the same way discovery doesn't search them.
+     * @param start is the directory Path to register.
+     * @param root is the watched root directory Path the globs are relative to.
+     * @throws IOException on IO exception.
+     */
+    private void registerAll(Path start, final Path root) throws IOException {
+        Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (discovery.isExcludedDirectory(root.relativize(dir))) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                WatchKey key = dir.register(
+                        watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_DELETE,
+                        StandardWatchEventKinds.ENTRY_MODIFY
+                );
+                keys.put(key, dir);
+                roots.put(key, root);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * Normalizes the provided path so paths from events and sources compare equal.
+     * @param path is the Path to normalize.
+     * @return A normalized absolute Path.
+     */
+    private Path normalize(Path path) {
+        return path.toAbsolutePath().normalize();
+    }
+}
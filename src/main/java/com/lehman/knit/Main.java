@@ -27,9 +27,17 @@ import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.project.MavenProject;
 
 import java.io.*;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 
 /**
  * The main entry point class implements the normal main
@@ -66,6 +74,33 @@ public class Main extends AbstractMojo {
     @Parameter(property = "directories")
     String[] directories = new String[]{ "src/main/resources/dw" };
 
+    /**
+     * Maven config value moduleRoot.
+     * The directory module paths are relative to. A DW file found below
+     * it gets its full module path, so src/main/resources/dw/color/palette.dwl
+     * is module dw::color::palette. Files outside of it are relative to
+     * the directory they were found in.
+     */
+    @Parameter(property = "moduleRoot")
+    String moduleRoot = "src/main/resources";
+
+    /**
+     * Maven config value includes.
+     * A list of glob patterns relative to each directory that DW files
+     * must match to be parsed. (**&#47;*.dwl) If empty every DW file is parsed.
+     */
+    @Parameter(property = "includes")
+    String[] includes = new String[0];
+
+    /**
+     * Maven config value excludes.
+     * A list of glob patterns relative to each directory for files and
+     * directories to skip. Directories matching a pattern, or a pattern
+     * ending in /**, aren't walked at all. (**&#47;node_modules/**)
+     */
+    @Parameter(property = "excludes")
+    String[] excludes = new String[0];
+
     /**
      * Maven config value singleOutputFile.
      * Flag to switch between files for each module and a single output file.
@@ -80,6 +115,25 @@ public class Main extends AbstractMojo {
     @Parameter(property = "outputFile")
     String outputFile = "target/knit-doc.md";
 
+    /**
+     * Maven config value outputDirectory.
+     * The directory to write a file for each module to when
+     * singleOutputFile == false. The module files mirror the module
+     * path and an index file links to each of them.
+     */
+    @Parameter(property = "outputDirectory")
+    String outputDirectory = "target/knit-doc";
+
+    /**
+     * Maven config value gzipOutput.
+     * If set to true a gzip compressed copy of each output file is
+     * written next to it with a .gz extension as the file is generated,
+     * so that static web servers can send it without compressing it
+     * for every request. It doesn't apply to standard output.
+     */
+    @Parameter(property = "gzipOutput")
+    boolean gzipOutput = false;
+
     /**
      * Maven config value outputFormat.
      * Thie output format to generate.
@@ -112,6 +166,14 @@ public class Main extends AbstractMojo {
     @Parameter(property = "outputHtmlCssFile")
     String outputHtmlCssFile = "";
 
+    /**
+     * Maven config value writerOptions.
+     * Options specific to the writer of the output format, set
+     * by name. For instance cssFile for the HTML writer.
+     */
+    @Parameter(property = "writerOptions")
+    Map<String, String> writerOptions = new HashMap<String, String>();
+
     /**
      * Maven config value writeHeaderTable.
      * If set to true this will write a table towards
@@ -130,6 +192,15 @@ public class Main extends AbstractMojo {
     @Parameter(property = "moduleList")
     String[] moduleList = new String[0];
 
+    /**
+     * Maven config value moduleOrder.
+     * The order of the modules that aren't in moduleList. The default of
+     * path keeps the order the files were found in. A value of dependency
+     * writes imported modules before the modules that import them.
+     */
+    @Parameter(property = "moduleOrder")
+    String moduleOrder = ModuleOrder.PATH.getVal();
+
     /**
      * Maven config value dwlFileExt.
      * This provides the ability to define dataweave files
@@ -138,6 +209,64 @@ public class Main extends AbstractMojo {
     @Parameter(property = "dwlFileExt")
     String dwlFileExt = "dwl";
 
+    /**
+     * Maven config value sourceEncoding.
+     * The character encoding of the DW source files. The default is UTF-8.
+     */
+    @Parameter(property = "sourceEncoding")
+    String sourceEncoding = StandardCharsets.UTF_8.name();
+
+    /**
+     * Maven config value parallelism.
+     * The number of threads used to parse DW files and to write module
+     * files when singleOutputFile == false. Writers get it as an option,
+     * the pdf writer uses it for parallelRendering. The default of 1 does the work
+     * one file at a time on the calling thread. A value of 0 uses one
+     * thread per available processor.
+     */
+    @Parameter(property = "parallelism")
+    int parallelism = 1;
+
+    /**
+     * Maven config value parseBudget.
+     * The time in milliseconds a single DW file may take to parse. A file
+     * that takes longer is skipped with a warning that names the file and
+     * the offset reached, so one bad file can't stall the build. A value
+     * of 0 turns the limit off. The default is 0 since a time limit makes
+     * the output depend on the load of the machine.
+     */
+    @Parameter(property = "parseBudget")
+    long parseBudget = 0;
+
+    /**
+     * Maven config value parseCache.
+     * If set to true the parsed results are cached in the knit-cache
+     * directory under the build directory and files that haven't
+     * changed since the last run aren't parsed again.
+     */
+    @Parameter(property = "parseCache")
+    boolean parseCache = true;
+
+    /**
+     * Maven config value upToDateCheck.
+     * If set to true the inputs and output affecting configuration are
+     * fingerprinted and generation is skipped when nothing changed since
+     * the last run and the output file still exists.
+     */
+    @Parameter(property = "upToDateCheck")
+    boolean upToDateCheck = true;
+
+    /**
+     * The parse cache for this run or null if caching isn't used.
+     */
+    private KnitParseCache cache = null;
+
+    /**
+     * The number of files the last call to parseSources skipped because
+     * they exceeded the parse budget.
+     */
+    private int skippedSources = 0;
+
     /**
      * Accessor to set the directories. So as to not overwrite the initial value, this checks
      * to see if the provided list is > 0 before replacing.
@@ -158,29 +287,31 @@ public class Main extends AbstractMojo {
     public void setModuleList(String[] ModuleList) { this.moduleList = ModuleList; }
 
     /**
-     * Main entry point of the application. This is currently just for testing.
-     * @param args
+     * Main entry point of the standalone command line interface. The
+     * options match the maven plugin configuration values, run with
+     * --help for the list. Only the classes needed for the requested
+     * output format are loaded, so iText is never loaded unless PDF
+     * output is requested.
+     * @param args is an array of Strings with the command line arguments.
      * @throws Exception
      */
     public static void main(String[] args) throws Exception {
-        //knitParser parser = new knitParser();
-        //dwFile f = parser.parseFile("dw/test.dw");
-
         Main mn = new Main();
-        ArrayList<DwFile> parsedFiles = new ArrayList<DwFile>();
-        mn.parseDirectory("dw", parsedFiles);
-
-        DwDocWriter writer = new MarkdownDwDocWriterImpl();
-        String doc = new String(writer.writeDoc(parsedFiles));
-        System.out.println(doc);
-
-        //DwDocWriter writer = new PdfDwDocWriterImpl();
-        //byte[] data = writer.writeDoc(parsedFiles);
-        //Util.write("test.pdf", data, false);
+        KnitCli cli = new KnitCli(mn);
+        if (!cli.parse(args)) {
+            KnitCli.printUsage();
+            System.exit(1);
+        } else if (cli.isHelp()) {
+            KnitCli.printUsage();
+            return;
+        }
 
-        //DwDocWriter writer = new HTMLDwDocWriterImpl();
-        //String doc = new String(writer.writeDoc(parsedFiles));
-        //System.out.println(doc);
+        String format = mn.validateConfig();
+        if (cli.isWatch()) {
+            new KnitWatcher(mn, format).run();
+        } else if (!mn.writeDocFile(format)) {
+            System.exit(1);
+        }
     }
 
     /**
@@ -190,24 +321,164 @@ public class Main extends AbstractMojo {
      * @throws Exception
      */
     public void parseDirectory(String dirName, ArrayList<DwFile> parsedFiles) throws Exception {
-        KnitParser parser = new KnitParser();
-        File dir = new File(dirName);
-        if (dir.exists()) {
-            if (dir.isDirectory()) {
-                for (String name : dir.list()) {
-                    String relName = dirName + "/" + name;
-                    File f = new File(relName);
-                    if (f.isFile() && relName.endsWith("." + dwlFileExt)) {
-                        parsedFiles.add(parser.parseFile(dirName, relName, dwlFileExt));
-                    } else if (f.isDirectory()) {
-                        parseDirectory(relName, parsedFiles);
-                    }
-                }
-            } else {
-                System.err.println("Provided directory '" + dirName + "' isn't a directory.");
+        ArrayList<DwSourceFile> sources = new ArrayList<DwSourceFile>();
+        this.discoverDirectory(dirName, sources);
+        parsedFiles.addAll(this.parseSources(sources));
+    }
+
+    /**
+     * Walks a DW directory and adds each DW file found that matches the
+     * include and exclude globs to the provided source list. Files are
+     * added in name order so that the resulting list is the same on every run.
+     * @param dirName is a String with the directory name.
+     * @param sources is a List of DwSourceFile objects to add to.
+     */
+    public void discoverDirectory(String dirName, List<DwSourceFile> sources) {
+        dirName = Util.normalizePath(dirName);
+        this.createDiscovery().discover(dirName, this.getModuleRootDirName(dirName, dirName), sources);
+    }
+
+    /**
+     * Creates the discovery that applies the configured file extension
+     * and include and exclude globs.
+     * @return A KnitDiscovery object.
+     */
+    KnitDiscovery createDiscovery() {
+        return new KnitDiscovery(this.dwlFileExt, this.includes, this.excludes);
+    }
+
+    /**
+     * Gets the root directory the module path of the provided file or
+     * directory is relative to. This is the module root when the path is
+     * below it and the provided default otherwise.
+     * @param path is a normalized String with the file or directory name.
+     * @param defaultRootDirName is a String with the root directory to use
+     * when the path isn't below the module root.
+     * @return A String with the root directory name.
+     */
+    String getModuleRootDirName(String path, String defaultRootDirName) {
+        if (this.moduleRoot == null || this.moduleRoot.trim().equals("")) {
+            return defaultRootDirName;
+        }
+        String root = Util.normalizePath(this.getWorkingDirectory() + "/" + this.moduleRoot.trim());
+        if (path.equals(root) || path.startsWith(root.endsWith("/") ? root : root + "/")) {
+            return root;
+        }
+        return defaultRootDirName;
+    }
+
+    /**
+     * Parses the provided list of source files and returns the parsed
+     * results in the same order as the sources. Files that exceed the
+     * parse budget are left out and counted, see getSkippedSources. If parallelism is
+     * greater than 1 the files are parsed on a work-stealing pool.
+     * @param sources is a List of DwSourceFile objects to parse.
+     * @return An ArrayList of dwFile objects with the parsed results.
+     * @throws Exception
+     */
+    public ArrayList<DwFile> parseSources(List<DwSourceFile> sources) throws Exception {
+        ArrayList<DwFile> ret = new ArrayList<DwFile>();
+        for (DwFile file : this.parseSourceFiles(sources)) {
+            if (file != null) {
+                ret.add(file);
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Parses the provided list of source files and returns the parsed
+     * result of each source at the same position. Files that exceed the
+     * parse budget are null and counted, see getSkippedSources. If parallelism
+     * is greater than 1 the files are parsed on a work-stealing pool.
+     * @param sources is a List of DwSourceFile objects to parse.
+     * @return An array of dwFile objects with the parsed results.
+     * @throws Exception
+     */
+    DwFile[] parseSourceFiles(List<DwSourceFile> sources) throws Exception {
+        DwFile[] parsed = new DwFile[sources.size()];
+
+        // Anything found in the cache doesn't need to be parsed again.
+        final ArrayList<Integer> toParse = new ArrayList<Integer>();
+        for (int i = 0; i < sources.size(); i++) {
+            if (this.cache != null) {
+                parsed[i] = this.cache.get(sources.get(i), dwlFileExt, this.sourceEncoding);
+            }
+            if (parsed[i] == null) {
+                toParse.add(i);
+            }
+        }
+
+        int threads = this.getThreadCount();
+        final Charset encoding = Charset.forName(this.sourceEncoding);
+
+        if (threads <= 1 || toParse.size() <= 1) {
+            KnitParser parser = new KnitParser(this.parseBudget);
+            for (int i : toParse) {
+                parsed[i] = this.parseSource(parser, sources.get(i), encoding);
             }
         } else {
-            System.err.println("Provided directory '" + dirName + "' doesn't exist.");
+            // Parsers reuse their matchers so each worker thread gets its own.
+            final ThreadLocal<KnitParser> parsers = ThreadLocal.withInitial(() -> new KnitParser(this.parseBudget));
+            ForkJoinPool pool = new ForkJoinPool(Math.min(threads, toParse.size()));
+            try {
+                ArrayList<Future<DwFile>> results = new ArrayList<Future<DwFile>>();
+                for (int i : toParse) {
+                    final DwSourceFile src = sources.get(i);
+                    results.add(pool.submit(() -> this.parseSource(parsers.get(), src, encoding)));
+                }
+
+                // Collect in source order so output matches a serial run.
+                for (int i = 0; i < toParse.size(); i++) {
+                    parsed[toParse.get(i)] = results.get(i).get();
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+
+        // Files that were skipped aren't cached so they're tried again next run.
+        this.skippedSources = 0;
+        for (int i : toParse) {
+            if (parsed[i] == null) {
+                this.skippedSources++;
+            }
+        }
+        if (this.cache != null) {
+            for (int i : toParse) {
+                if (parsed[i] != null) {
+                    this.cache.put(sources.get(i), dwlFileExt, this.sourceEncoding, parsed[i]);
+                }
+            }
+        }
+
+        return parsed;
+    }
+
+    /**
+     * Gets the number of files the last call to parseSources skipped
+     * because they exceeded the parse budget.
+     * @return An int with the number of skipped files.
+     */
+    int getSkippedSources() {
+        return this.skippedSources;
+    }
+
+    /**
+     * Parses the provided source file with the provided parser. A file that
+     * exceeds the parse budget is reported and skipped.
+     * @param parser is the KnitParser to parse with.
+     * @param src is the DwSourceFile to parse.
+     * @param encoding is the Charset of the file.
+     * @return A dwFile object or null if the file was skipped.
+     * @throws IOException on IO exception.
+     */
+    private DwFile parseSource(KnitParser parser, DwSourceFile src, Charset encoding) throws IOException {
+        try {
+            return parser.parseFile(src.getRootDirName(), src.getFileName(), dwlFileExt, encoding);
+        } catch (KnitParseTimeoutException e) {
+            System.err.println("Warning: Parsing '" + src.getFileName() + "' took longer than the parse budget of " + this.parseBudget + " ms and stopped at offset " + e.getOffset() + ", the file is skipped.");
+            return null;
         }
     }
 
@@ -220,27 +491,7 @@ public class Main extends AbstractMojo {
 
         try {
             if (this.generate) {
-                if (!this.singleOutputFile) {
-                    System.err.println("Error: knit-maven-plugin <singleOutputFile> is set to false but only single file is currently implemented.");
-                    System.exit(1);
-                }
-
-                if (this.files.length > 0 || this.directories.length > 0) {
-                    if (this.outputFormat.equals(OutputFormat.MARKDOWN.getVal())) {
-                        this.writeDocFile(OutputFormat.MARKDOWN);
-                    } else if (this.outputFormat.equals(OutputFormat.PDF.getVal())) {
-                        this.writeDocFile(OutputFormat.PDF);
-                    } else if (this.outputFormat.equals(OutputFormat.HTML.getVal())) {
-                        this.writeDocFile(OutputFormat.HTML);
-                    } else {
-                        System.err.println("Error: knit-maven-plugin output format '" + this.outputFormat + "' not valid. Options are 'markdown', 'pdf', 'html'.");
-                        System.exit(1);
-                    }
-
-                } else {
-                    System.err.println("Error: knit-maven-plugin <srcFiles> or <srcDirectories> aren't specified.");
-                    System.exit(1);
-                }
+                this.writeDocFile(this.validateConfig());
             } else {
                 System.out.println("Info: knit-maven-plugin skipping doc generation. (generate=false)");
             }
@@ -251,75 +502,437 @@ public class Main extends AbstractMojo {
     }
 
     /**
-     * Writes the doc file with the provided format.
-     * @param format is a valid OutputFormat format.
+     * Validates the configuration and returns the output format to write.
+     * An invalid configuration is reported and ends the run.
+     * @return A String with the output format to write.
      */
-    private void writeDocFile(OutputFormat format) {
-        ArrayList<DwFile> parsedFiles = new ArrayList<DwFile>();
+    String validateConfig() {
+        if (!this.isSourceEncodingSupported()) {
+            System.err.println("Error: knit-maven-plugin source encoding '" + this.sourceEncoding + "' isn't supported.");
+            System.exit(1);
+        }
 
+        if ((this.files == null || this.files.length == 0) && this.directories.length == 0) {
+            System.err.println("Error: knit-maven-plugin <srcFiles> or <srcDirectories> aren't specified.");
+            System.exit(1);
+        }
+
+        // Any format with a registered writer is valid.
+        List<String> formats = DwDocWriterRegistry.getFormats();
+        if (!formats.contains(this.outputFormat)) {
+            System.err.println("Error: knit-maven-plugin output format '" + this.outputFormat + "' not valid. Options are '" + String.join("', '", formats) + "'.");
+            System.exit(1);
+        }
+
+        if (!this.moduleOrder.equals(ModuleOrder.PATH.getVal()) && !this.moduleOrder.equals(ModuleOrder.DEPENDENCY.getVal())) {
+            System.err.println("Error: knit-maven-plugin module order '" + this.moduleOrder + "' not valid. Options are '" + ModuleOrder.PATH.getVal() + "', '" + ModuleOrder.DEPENDENCY.getVal() + "'.");
+            System.exit(1);
+        }
+        return this.outputFormat;
+    }
+
+    /**
+     * Writes the doc file with the provided format.
+     * @param format is a String with a valid output format.
+     * @return A boolean with true on success and false if it failed.
+     */
+    private boolean writeDocFile(String format) {
         try {
-            // Parse directories
-            for (String dir : this.directories) {
-                this.parseDirectory(this.getWorkingDirectory() + "/" + dir, parsedFiles);
+            ArrayList<DwSourceFile> sources = this.discoverSources();
+            DwDocWriter writer = this.createWriter(format);
+
+            // Skip everything if nothing changed since the last run.
+            String fingerprint = null;
+            String fingerprintFile = this.getFingerprintFileName(format, writer);
+            if (this.upToDateCheck && !this.isStdOut()) {
+                fingerprint = this.getFingerprint(format, sources);
+                if (fingerprint.equals(KnitFingerprint.read(fingerprintFile)) && new File(this.getOutputFileName(writer)).exists()) {
+                    System.out.println("Document '" + this.getOutputName(writer) + "' is up to date.");
+                    return true;
+                }
             }
 
-            // Parse files
-            KnitParser parser = new KnitParser();
-            for (String fname : this.files) {
-                File f = new File(this.getWorkingDirectory() + "/" + fname);
-                parsedFiles.add(parser.parseFile(this.getWorkingDirectory(), fname, dwlFileExt));
+            // Parse everything found.
+            if (this.parseCache) {
+                this.cache = new KnitParseCache(this.getBuildDirectory() + "/knit-cache");
+                this.cache.load();
+            }
+            ArrayList<DwFile> parsedFiles = this.parseSources(sources);
+            if (this.cache != null) {
+                this.cache.save();
             }
 
-            // Create the doc writer and write the doc.
-            DwDocWriter writer = null;
-            if (format == OutputFormat.MARKDOWN) {
-                writer = new MarkdownDwDocWriterImpl();
-            } else if (format == OutputFormat.PDF) {
-                writer = new PdfDwDocWriterImpl();
-            } else if (format == OutputFormat.HTML) {
-                writer = new HTMLDwDocWriterImpl();
-                // Style
-                if (!this.outputHtmlCssFile.trim().equals("")) {
-                    ((HTMLDwDocWriterImpl)writer).setCssFileName(this.outputHtmlCssFile.trim());
-                } else {
-                    String parentDir = (new File(this.getWorkingDirectory() + "/" +this.outputFile)).getParent();
-                    Util.write(
-                            parentDir + "/" + ((HTMLDwDocWriterImpl)writer).getCssFileName(),
-                            this.getDefaultCssFile().getBytes(StandardCharsets.UTF_8),
-                            false
-                    );
-                }
+            this.writeOutput(writer, parsedFiles);
+
+            // A document that's missing skipped files isn't up to date, so
+            // the next run parses them again even if nothing changed.
+            if (this.skippedSources > 0) {
+                new File(fingerprintFile).delete();
+            } else if (fingerprint != null) {
+                KnitFingerprint.write(fingerprintFile, fingerprint);
             }
-            writer.setOptions(this.writeHeaderTable, this.outputHeaderText, this.outputFooterText);
-            byte[] doc = new byte[0];
-
-            // Write the doc.
-            doc = writer.writeDoc(parsedFiles, Arrays.asList(this.moduleList));
-
-            // Output to file.
-            Util.write(
-                    this.getWorkingDirectory() + "/" +this.outputFile,
-                    doc,
-                    false
-            );
-            System.out.println("Document has been written to '" + this.outputFile + "'.");
+            return true;
 
         } catch (Exception e) {
             e.printStackTrace();
             System.err.println("Error: knit-maven-plugin parse failed.");
+            return false;
+        }
+    }
+
+    /**
+     * Discovers the DW source files of the configured directories and files.
+     * @return An ArrayList of DwSourceFile objects in output order.
+     */
+    ArrayList<DwSourceFile> discoverSources() {
+        // Discover directories
+        ArrayList<DwSourceFile> sources = new ArrayList<DwSourceFile>();
+        for (String dir : this.directories) {
+            this.discoverDirectory(this.getWorkingDirectory() + "/" + dir, sources);
+        }
+
+        // Discover files
+        if (this.files != null) {
+            for (String fname : this.files) {
+                String fileName = Util.normalizePath(this.getWorkingDirectory() + "/" + fname);
+                sources.add(new DwSourceFile(this.getModuleRootDirName(fileName, this.getWorkingDirectory()), fileName));
+            }
+        }
+        return sources;
+    }
+
+    /**
+     * Gets the directories to watch for changes. These are the configured
+     * directories and the parent directories of the configured files.
+     * @return A List of Strings with the directory names.
+     */
+    List<String> getWatchDirectories() {
+        ArrayList<String> ret = new ArrayList<String>();
+        for (String dir : this.directories) {
+            ret.add(this.getWorkingDirectory() + "/" + dir);
         }
+        if (this.files != null) {
+            for (String fname : this.files) {
+                String parent = new File(this.getWorkingDirectory() + "/" + fname).getParent();
+                if (!ret.contains(parent)) {
+                    ret.add(parent);
+                }
+            }
+        }
+        return ret;
+    }
+
+    /**
+     * Creates the doc writer for the provided format and sets the
+     * configured options on it. Writer options that the writer doesn't
+     * support are reported and ignored.
+     * @param format is a String with a valid output format.
+     * @return A DwDocWriter object.
+     */
+    DwDocWriter createWriter(String format) {
+        DwDocWriterProvider provider = DwDocWriterRegistry.getProvider(format);
+        if (provider == null) {
+            throw new IllegalStateException("No doc writer is registered for output format '" + format + "'.");
+        }
+
+        DwDocWriterOptions options = provider.createOptions();
+        options.setWriteHeaderTable(this.writeHeaderTable);
+        options.setOutputHeaderText(this.outputHeaderText);
+        options.setOutputFooterText(this.outputFooterText);
+        options.setSingleOutputFile(this.singleOutputFile);
+        options.setParallelism(this.getThreadCount());
+        options.setGzipOutput(this.gzipOutput);
+        if (!this.outputHtmlCssFile.trim().equals("")) {
+            // Only the HTML writer has a style sheet, others ignore it.
+            options.setProperty("cssFile", this.outputHtmlCssFile.trim());
+        }
+        if (this.writerOptions != null) {
+            for (Map.Entry<String, String> opt : this.writerOptions.entrySet()) {
+                if (!options.setProperty(opt.getKey(), opt.getValue() == null ? "" : opt.getValue())) {
+                    System.err.println("Warning: knit-maven-plugin writer option '" + opt.getKey() + "' isn't supported by output format '" + format + "' and is ignored.");
+                }
+            }
+        }
+
+        DwDocWriter writer = provider.create();
+        writer.setOptions(options);
+        return writer;
+    }
+
+    /**
+     * Gets the name of the single output file or the index file of the
+     * output directory relative to the working directory.
+     * @param writer is the DwDocWriter that writes the output.
+     * @return A String with the output name.
+     */
+    String getOutputName(DwDocWriter writer) {
+        return this.singleOutputFile ? this.outputFile : this.outputDirectory + "/index." + writer.getFileExtension();
+    }
+
+    /**
+     * Checks if the single output file is set to - for standard output.
+     * @return A boolean with true if the doc is written to standard output.
+     */
+    boolean isStdOut() {
+        return this.singleOutputFile && this.outputFile.equals("-");
+    }
+
+    /**
+     * Gets the full file name of the single output file or the index file.
+     * @param writer is the DwDocWriter that writes the output.
+     * @return A String with the output file name.
+     */
+    String getOutputFileName(DwDocWriter writer) {
+        return this.getWorkingDirectory() + "/" + this.getOutputName(writer);
+    }
+
+    /**
+     * Writes the parsed files with the provided writer. This writes the
+     * writer's resources, such as the HTML style sheet, and then either
+     * the single output file or a file for each module in the output directory.
+     * @param writer is the DwDocWriter to write with.
+     * @param parsedFiles is a List of dwFile objects to write.
+     * @throws Exception
+     */
+    void writeOutput(DwDocWriter writer, List<DwFile> parsedFiles) throws Exception {
+        this.writeOutput(writer, parsedFiles, null);
+    }
+
+    /**
+     * Writes the parsed files with the provided writer. When a file is
+     * written for each module only the provided modules are written
+     * again, the index file is always written.
+     * @param writer is the DwDocWriter to write with.
+     * @param parsedFiles is a List of dwFile objects to write.
+     * @param dirty is a Set of dwFile objects to write the module files
+     * of or null to write all of them.
+     * @throws Exception
+     */
+    void writeOutput(DwDocWriter writer, List<DwFile> parsedFiles, Set<DwFile> dirty) throws Exception {
+        String outputFileName = this.getOutputFileName(writer);
+
+        // The module order is resolved once and every writer gets the ordered list
+        // along with the index of all modules to resolve cross-references with.
+        DwModuleIndex index = new DwModuleIndex(parsedFiles);
+        List<DwFile> modules;
+        if (this.moduleOrder.equals(ModuleOrder.DEPENDENCY.getVal())) {
+            modules = DwModuleIndex.order(index.getGraph().sort(), Arrays.asList(this.moduleList));
+        } else {
+            modules = index.order(Arrays.asList(this.moduleList));
+        }
+        List<String> noOrder = new ArrayList<String>();
+        writer.setModuleIndex(index);
+
+        // Resources are written next to the document.
+        if (!this.isStdOut()) {
+            writer.writeResources(modules, new File(outputFileName).getAbsoluteFile().getParent());
+        }
+
+        if (this.isStdOut()) {
+            writer.writeDoc(modules, noOrder, System.out);
+            System.out.flush();
+        } else if (this.singleOutputFile) {
+            // Write the doc straight to the output file.
+            new File(outputFileName).getAbsoluteFile().getParentFile().mkdirs();
+            OutputStream out = null;
+            try {
+                out = new BufferedOutputStream(Util.openOutput(outputFileName, this.gzipOutput));
+                writer.writeDoc(modules, noOrder, out);
+            } finally {
+                if (out != null) {
+                    out.close();
+                }
+            }
+            System.out.println("Document has been written to '" + this.outputFile + "'.");
+        } else {
+            this.writeModuleFiles(writer, modules, dirty, this.getWorkingDirectory() + "/" + this.outputDirectory);
+            System.out.println("Documents have been written to '" + this.outputDirectory + "'.");
+        }
+    }
+
+    /**
+     * Writes a file for each parsed module to the provided output directory
+     * followed by the index file that links to them. The parsed files are
+     * expected in document order already. If parallelism is
+     * greater than 1 the module files are written on a work-stealing pool.
+     * @param writer is the DwDocWriter to write with.
+     * @param parsedFiles is a List of dwFile objects to write.
+     * @param dirty is a Set of dwFile objects to write the module files
+     * of or null to write all of them.
+     * @param outputDirName is a String with the output directory.
+     * @throws Exception
+     */
+    private void writeModuleFiles(final DwDocWriter writer, List<DwFile> parsedFiles, Set<DwFile> dirty, final String outputDirName) throws Exception {
+        // Modules that map to the same file would overwrite each other.
+        HashMap<String, DwFile> written = new HashMap<String, DwFile>();
+        for (DwFile dwf : parsedFiles) {
+            String fileName = Util.getModuleFileName(dwf, writer.getFileExtension());
+            DwFile other = written.put(fileName, dwf);
+            if (other != null) {
+                System.err.println("Warning: Modules '" + other.getFileNameAndPath() + "' and '" + dwf.getFileNameAndPath() + "' are both written to '" + fileName + "'.");
+            }
+        }
+
+        List<DwFile> toWrite = parsedFiles;
+        if (dirty != null) {
+            toWrite = new ArrayList<DwFile>();
+            for (DwFile dwf : parsedFiles) {
+                if (dirty.contains(dwf)) {
+                    toWrite.add(dwf);
+                }
+            }
+        }
+
+        int threads = this.getThreadCount();
+        if (threads <= 1 || toWrite.size() <= 1) {
+            for (DwFile dwf : toWrite) {
+                this.writeModuleFile(writer, dwf, outputDirName);
+            }
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(Math.min(threads, toWrite.size()));
+            try {
+                ArrayList<Future<Void>> results = new ArrayList<Future<Void>>();
+                for (final DwFile dwf : toWrite) {
+                    results.add(pool.submit(() -> {
+                        this.writeModuleFile(writer, dwf, outputDirName);
+                        return null;
+                    }));
+                }
+                for (Future<Void> result : results) {
+                    result.get();
+                }
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+
+        OutputStream out = null;
+        try {
+            out = new BufferedOutputStream(Util.openOutput(outputDirName + "/index." + writer.getFileExtension(), this.gzipOutput));
+            writer.writeIndexDoc(parsedFiles, new ArrayList<String>(), out);
+        } finally {
+            if (out != null) {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * Writes the file of a single module to the provided output directory.
+     * @param writer is the DwDocWriter to write with.
+     * @param file is the dwFile object to write.
+     * @param outputDirName is a String with the output directory.
+     * @throws IOException on IO exception.
+     */
+    private void writeModuleFile(DwDocWriter writer, DwFile file, String outputDirName) throws IOException {
+        File outFile = new File(outputDirName + "/" + Util.getModuleFileName(file, writer.getFileExtension()));
+        outFile.getParentFile().mkdirs();
+        OutputStream out = null;
+        try {
+            out = new BufferedOutputStream(Util.openOutput(outFile.getPath(), this.gzipOutput));
+            writer.writeModuleDoc(file, out);
+        } finally {
+            if (out != null) {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * Checks if the configured source encoding is a supported charset.
+     * @return A boolean with true if it's supported.
+     */
+    private boolean isSourceEncodingSupported() {
+        try {
+            return Charset.isSupported(this.sourceEncoding);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Gets the number of threads to use from the parallelism setting.
+     * @return An int with the number of threads.
+     */
+    private int getThreadCount() {
+        return this.parallelism > 0 ? this.parallelism : Runtime.getRuntime().availableProcessors();
+    }
+
+    /**
+     * Gets the name of the file the fingerprint of this execution is stored
+     * in. It's keyed by the format and the output file, so executions that
+     * write different formats or files don't overwrite each other's
+     * fingerprint. (knit-cache/knit-html-1f2e3d4c5b6a7980.fingerprint)
+     * @param format is a String with the output format being written.
+     * @param writer is the DwDocWriter that writes the output.
+     * @return A String with the fingerprint file name.
+     */
+    private String getFingerprintFileName(String format, DwDocWriter writer) {
+        KnitFingerprint key = new KnitFingerprint();
+        key.add("outputFile", new File(this.getOutputFileName(writer)).getAbsolutePath());
+        return this.getBuildDirectory() + "/knit-cache/knit-" + format.replaceAll("[^A-Za-z0-9_-]", "_") + "-" + key.getHash().substring(0, 16) + ".fingerprint";
+    }
+
+    /**
+     * Builds the fingerprint of the provided sources and every configuration
+     * value that affects the generated document.
+     * @param format is a String with the output format being written.
+     * @param sources is a List of DwSourceFile objects to include.
+     * @return A String with the fingerprint.
+     * @throws IOException on IO exception.
+     */
+    private String getFingerprint(String format, List<DwSourceFile> sources) throws IOException {
+        KnitFingerprint fp = new KnitFingerprint();
+
+        // The plugin itself, so an upgrade regenerates the doc.
+        File pluginFile = new File(Main.class.getProtectionDomain().getCodeSource().getLocation().getPath());
+        fp.add("plugin", pluginFile.getPath() + ":" + pluginFile.lastModified());
+
+        fp.add("outputFormat", format);
+        fp.add("outputFile", this.outputFile);
+        fp.add("singleOutputFile", String.valueOf(this.singleOutputFile));
+        fp.add("outputDirectory", this.outputDirectory);
+        fp.add("gzipOutput", String.valueOf(this.gzipOutput));
+        fp.add("outputHeaderText", this.outputHeaderText);
+        fp.add("outputFooterText", this.outputFooterText);
+        fp.add("outputHtmlCssFile", this.outputHtmlCssFile);
+        if (this.writerOptions != null) {
+            for (Map.Entry<String, String> opt : new TreeMap<String, String>(this.writerOptions).entrySet()) {
+                fp.add("writerOption." + opt.getKey(), opt.getValue());
+            }
+        }
+        fp.add("writeHeaderTable", String.valueOf(this.writeHeaderTable));
+        fp.add("moduleList", this.moduleList);
+        fp.add("moduleOrder", this.moduleOrder);
+        fp.add("dwlFileExt", this.dwlFileExt);
+        fp.add("moduleRoot", this.moduleRoot);
+        fp.add("includes", this.includes);
+        fp.add("excludes", this.excludes);
+        fp.add("sourceEncoding", this.sourceEncoding);
+        fp.add("parseBudget", String.valueOf(this.parseBudget));
+
+        for (DwSourceFile src : sources) {
+            fp.add("root", src.getRootDirName());
+            fp.addFile(src.getFileName());
+        }
+
+        return fp.getHash();
     }
 
     /**
      * Gets the working directory for the plugin. This should return the maven
-     * directory that's the parent to 'target'.
+     * directory that's the parent to 'target'. When run outside of maven
+     * this is the current directory.
      * @return the current working directory.
      */
-    private String getWorkingDirectory() {
-        Model model = this.project.getModel();
-        Build build = model.getBuild();
-        File dir = new File(build.getDirectory());
-        String ret = dir.getParent();
+    String getWorkingDirectory() {
+        String ret = System.getProperty("user.dir");
+        if (this.project != null) {
+            Model model = this.project.getModel();
+            Build build = model.getBuild();
+            File dir = new File(build.getDirectory());
+            ret = dir.getParent();
+        }
         if (SystemUtils.IS_OS_WINDOWS){
             ret = ret.replace("\\", "/");
         }
@@ -327,21 +940,16 @@ public class Main extends AbstractMojo {
     }
 
     /**
-     * Gets the default CSS file text.
-     * @return A String with the default CSS.
+     * Gets the maven build directory. (target)
+     * @return A String with the build directory.
      */
-    private String getDefaultCssFile() {
-        String ret = "";
-        try {
-            InputStream is = getClass().getResourceAsStream("/defaultCssFile.css");
-            BufferedReader reader = new BufferedReader(new InputStreamReader(is));
-            String line;
-
-            while((line = reader.readLine()) != null) {
-                ret += line + System.lineSeparator();
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
+    private String getBuildDirectory() {
+        if (this.project == null) {
+            return this.getWorkingDirectory() + "/target";
+        }
+        String ret = this.project.getModel().getBuild().getDirectory();
+        if (SystemUtils.IS_OS_WINDOWS){
+            ret = ret.replace("\\", "/");
         }
         return ret;
     }
@@ -349,7 +957,7 @@ public class Main extends AbstractMojo {
     /**
      * Prints the about text to standard output.
      */
-    private void printAbout() {
+    void printAbout() {
         String out = "";
         out += " __  __     __   __     __     ______      _____     ______     ______                            " + System.lineSeparator() +
                 "/\\ \\/ /    /\\ \"-.\\ \\   /\\ \\   /\\__  _\\    /\\  __-.  /\\  __ \\   /\\  ___\\                           " + System.lineSeparator() +
@@ -17,8 +17,10 @@
 
 package com.lehman.knit;
 
+import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -29,18 +31,26 @@ public class MarkdownDwDocWriterImpl implements DwDocWriter {
     private boolean writeHeaderTable = false;
     private String outputHeaderText = "";
     private String outputFooterText = "";
+    private DwModuleIndex moduleIndex = null;
 
     /**
      * Sets the provided options for the doc writer.
-     * @param WriteHeaderTable is a boolean with True to write the header table and false to not.
-     * @param OutputHeaderText is a String with the header text.
-     * @param OutputFooterText is a String with the footer text.
+     * @param Options is the DwDocWriterOptions object to set.
      */
     @Override
-    public void setOptions(boolean WriteHeaderTable, String OutputHeaderText, String OutputFooterText) {
-        this.writeHeaderTable = WriteHeaderTable;
-        this.outputHeaderText = OutputHeaderText;
-        this.outputFooterText = OutputFooterText;
+    public void setOptions(DwDocWriterOptions Options) {
+        this.writeHeaderTable = Options.isWriteHeaderTable();
+        this.outputHeaderText = Options.getOutputHeaderText();
+        this.outputFooterText = Options.getOutputFooterText();
+    }
+
+    /**
+     * Sets the index of all modules being documented.
+     * @param index is the DwModuleIndex of all modules.
+     */
+    @Override
+    public void setModuleIndex(DwModuleIndex index) {
+        this.moduleIndex = index;
     }
 
     /**
@@ -63,240 +73,384 @@ public class MarkdownDwDocWriterImpl implements DwDocWriter {
      */
     @Override
     public byte[] writeDoc(List<DwFile> files, List<String> moduleNameList) {
-        String ret = "";
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            this.writeDoc(files, moduleNameList, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Writes a doc with the provided dwFile list and moduleNameList to the
+     * provided output stream one module at a time.
+     * @param files is a List of dwFile objects to write.
+     * @param moduleNameList is an optional list of module names that can
+     * be provided to specify the order of modules.
+     * @param os is the OutputStream to write the document to.
+     * @throws IOException on IO exception.
+     */
+    @Override
+    public void writeDoc(List<DwFile> files, List<String> moduleNameList, OutputStream os) throws IOException {
+        Writer out = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8));
 
         // If header text is set.
         if (!this.outputHeaderText.equals("")) {
-            ret += this.outputHeaderText + System.lineSeparator() + System.lineSeparator();
+            out.write(this.outputHeaderText + System.lineSeparator() + System.lineSeparator());
         }
 
+        // Modules in moduleNameList order followed by the rest.
+        List<DwFile> modules = DwModuleIndex.order(files, moduleNameList);
+
         // If write header table is set.
         if (this.writeHeaderTable) {
-            ret += this.writeHeaderTable(files, moduleNameList);
+            this.writeHeaderTable(out, modules, false);
         }
 
-        // Go through the module list first and add them in order.
-        for (String modName : moduleNameList) {
-            DwFile modFile = this.getFileByModuleName(files, modName);
-            if (modFile != null) {
-                ret += this.writeDoc(modFile) + System.lineSeparator();
-            } else {
-                System.err.println("Warning: Module name '" + modName + "' was supplied in moduleNameList but was not found parsed file list.");
-            }
+        DwModuleIndex index = this.moduleIndex != null ? this.moduleIndex : new DwModuleIndex(files);
+        for (DwFile dwf : modules) {
+            this.writeDoc(out, dwf, index, false);
+            out.write(System.lineSeparator());
         }
 
-        // Iterate the rest.
-        for (DwFile dwf : files) {
-            if (!moduleNameList.contains(dwf.getName())) {
-                ret += this.writeDoc(dwf) + System.lineSeparator();
-            }
+        // If footer text is set.
+        if (!this.outputFooterText.equals("")) {
+            out.write(this.outputFooterText + System.lineSeparator() + System.lineSeparator());
+        }
+
+        out.flush();
+    }
+
+    /**
+     * Gets the file extension of the documents this writer produces.
+     * @return A String with the file extension.
+     */
+    @Override
+    public String getFileExtension() {
+        return "md";
+    }
+
+    /**
+     * Writes a Markdown formatted document for a single module to the
+     * provided output stream.
+     * @param file is the dwFile object to write.
+     * @param os is the OutputStream to write the document to.
+     * @throws IOException on IO exception.
+     */
+    @Override
+    public void writeModuleDoc(DwFile file, OutputStream os) throws IOException {
+        Writer out = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8));
+        DwModuleIndex index = this.moduleIndex != null ? this.moduleIndex : new DwModuleIndex(Collections.singletonList(file));
+        this.writeDoc(out, file, index, true);
+        out.flush();
+    }
+
+    /**
+     * Writes the Markdown formatted index document with the header text,
+     * a table linking to each module file and the footer text.
+     * @param files is a List of dwFile objects to list.
+     * @param moduleNameList is an optional list of module names that can
+     * be provided to specify the order of modules.
+     * @param os is the OutputStream to write the document to.
+     * @throws IOException on IO exception.
+     */
+    @Override
+    public void writeIndexDoc(List<DwFile> files, List<String> moduleNameList, OutputStream os) throws IOException {
+        Writer out = new BufferedWriter(new OutputStreamWriter(os, StandardCharsets.UTF_8));
+
+        // If header text is set.
+        if (!this.outputHeaderText.equals("")) {
+            out.write(this.outputHeaderText + System.lineSeparator() + System.lineSeparator());
         }
 
+        this.writeHeaderTable(out, DwModuleIndex.order(files, moduleNameList), true);
+
         // If footer text is set.
         if (!this.outputFooterText.equals("")) {
-            ret += this.outputFooterText + System.lineSeparator() + System.lineSeparator();
+            out.write(this.outputFooterText + System.lineSeparator() + System.lineSeparator());
         }
 
-        return ret.getBytes(StandardCharsets.UTF_8);
+        out.flush();
     }
 
     /**
-     * Writes a Markdown formatted document with the provided dwFile object and
-     * returns a String with the result.
+     * Writes a Markdown formatted document with the provided dwFile object to
+     * the provided writer.
+     * @param out is the Writer to append to.
      * @param file is a dwFile object to write.
-     * @return A String with the doc contents.
+     * @param index is the DwModuleIndex to resolve cross-references with.
+     * @param linkToFiles is a boolean with true when each module is written
+     * to its own file.
+     * @throws IOException on IO exception.
      */
-    private String writeDoc(DwFile file) {
-        String ret = "# " + file.name + System.lineSeparator();
-        ret += "###### " + Util.join("::", file.modulePath) + System.lineSeparator();
+    private void writeDoc(Writer out, DwFile file, DwModuleIndex index, boolean linkToFiles) throws IOException {
+        out.write("<a id=\"" + Util.getModuleAnchor(file) + "\"></a>" + System.lineSeparator() + System.lineSeparator());
+        out.write("# " + file.name + System.lineSeparator());
+        out.write("###### " + Util.join("::", file.modulePath) + System.lineSeparator());
         if (!file.getComment().getText().equals("")) {
-            ret += file.getComment().getText() + System.lineSeparator();
+            out.write(file.getComment().getText() + System.lineSeparator());
             if (file.getTable() != null) {
-                ret += writeAnnotationTable(file.getTable()) + System.lineSeparator() + System.lineSeparator();
+                this.writeAnnotationTable(out, file.getTable());
+                out.write(System.lineSeparator() + System.lineSeparator());
             }
         }
-        ret += System.lineSeparator();
-
-        String vars = this.writeVariables(file);
-        if (!vars.equals("")) {
-            ret += "### Variables" + System.lineSeparator();
-            ret += vars + System.lineSeparator();
+        String see = this.getSeeLines(file.getComment(), file, index, linkToFiles);
+        if (see.length() > 0) {
+            out.write(System.lineSeparator() + see);
         }
+        out.write(System.lineSeparator());
 
-        String functs = this.writeFunctions(file);
-        if (!functs.equals("")) {
-            ret += "### Functions" + System.lineSeparator();
-            ret += functs + System.lineSeparator();
+        this.writeImports(out, file, index, linkToFiles);
+
+        if (file.getVariables().size() > 0) {
+            out.write("### Variables" + System.lineSeparator());
+            this.writeVariables(out, file, index, linkToFiles);
+            out.write(System.lineSeparator());
         }
 
-        return ret;
+        if (file.getFunctions().size() > 0) {
+            out.write("### Functions" + System.lineSeparator());
+            this.writeFunctions(out, file, index, linkToFiles);
+            out.write(System.lineSeparator());
+        }
     }
 
     /**
      * Writes a header table with the provided dwFile list. This
      * table will link to each module further down in the document.
-     * @param files is a List of dwFile objects to write.
-     * @return A String with the header table text.
+     * @param out is the Writer to append to.
+     * @param files is a List of dwFile objects to write in table order.
+     * @param linkToFiles is a boolean with true to link to the module files
+     * instead of the module sections within the document.
+     * @throws IOException on IO exception.
      */
-    private String writeHeaderTable(List<DwFile> files) {
-        return this.writeHeaderTable(files, new ArrayList());
+    private void writeHeaderTable(Writer out, List<DwFile> files, boolean linkToFiles) throws IOException {
+        out.write("| Module | Description |" + System.lineSeparator());
+        out.write("|-|-|" + System.lineSeparator());
+
+        for (DwFile dwf : files) {
+            out.write("| [" + dwf.getName() + "](" + this.getModuleLink(dwf, linkToFiles) + ") | " + Util.stripNewLines(dwf.getComment().getText()) + " |" + System.lineSeparator());
+        }
+
+        out.write(System.lineSeparator());
     }
 
     /**
-     * Writes a header table with the provided dwFile list. This
-     * table will link to each module further down in the document.
-     * @param files is a List of dwFile objects to write.
-     * @param moduleNameList is an optional list of module names that can
-     * be provided to specify the order of modules in the table.
-     * @return A String with the header table text.
+     * Gets the link target of the provided module for the header table.
+     * @param file is the DwFile to link to.
+     * @param linkToFiles is a boolean with true to link to the module file.
+     * @return A String with the link target.
      */
-    private String writeHeaderTable(List<DwFile> files, List<String> moduleNameList) {
-        String ret = "";
-        ret += "| Module | Description |" + System.lineSeparator();
-        ret += "|-|-|" + System.lineSeparator();
-
-        // Go through the module list first and add them in order.
-        for (String modName : moduleNameList) {
-            DwFile modFile = this.getFileByModuleName(files, modName);
-            if (modFile != null) {
-                ret += "| [" + modFile.getName() + "](#" + modFile.getName() + ") | " + Util.stripNewLines(modFile.getComment().getText()) + " |" + System.lineSeparator();
-            } else {
-                System.err.println("Warning: Module name '" + modName + "' was supplied in moduleNameList but was not found parsed file list.");
-            }
+    private String getModuleLink(DwFile file, boolean linkToFiles) {
+        if (linkToFiles) {
+            return Util.getModuleFileName(file, this.getFileExtension());
         }
+        return "#" + Util.getModuleAnchor(file);
+    }
 
-        // Iterate the rest.
-        for (DwFile dwf : files) {
-            if (!moduleNameList.contains(dwf.getName())) {
-                ret += "| [" + dwf.getName() + "](#" + dwf.getName() + ") | " + Util.stripNewLines(dwf.getComment().getText()) + " |" + System.lineSeparator();
+    /**
+     * Writes the imports section and the imported by section of the
+     * provided module. Imported modules that were parsed are linked.
+     * @param out is the Writer to append to.
+     * @param file is the dwFile object to write the sections for.
+     * @param index is the DwModuleIndex of all modules.
+     * @param linkToFiles is a boolean with true when each module is written
+     * to its own file.
+     * @throws IOException on IO exception.
+     */
+    private void writeImports(Writer out, DwFile file, DwModuleIndex index, boolean linkToFiles) throws IOException {
+        if (file.getImports().size() > 0) {
+            out.write("### Imports" + System.lineSeparator());
+            for (DwImport imp : file.getImports()) {
+                DwFile target = index.getModule(imp.getModuleName());
+                if (target == null) {
+                    out.write("- `" + imp.getModuleName() + "`");
+                } else {
+                    out.write("- [`" + imp.getModuleName() + "`](" + this.getModuleLink(file, target, linkToFiles) + ")");
+                }
+                if (imp.getNames().size() > 0) {
+                    out.write(" `" + Util.join("`, `", imp.getNames()) + "`");
+                }
+                if (imp.getAlias() != null && !imp.getAlias().equals("")) {
+                    out.write(" as `" + imp.getAlias() + "`");
+                }
+                out.write(System.lineSeparator());
             }
+            out.write(System.lineSeparator());
         }
 
-        ret += System.lineSeparator();
-
-        return ret;
-    }
-
-    private DwFile getFileByModuleName(List<DwFile> files, String name) {
-        DwFile ret = null;
-        for(DwFile dwf : files) {
-            if (dwf.getName().equals(name)) {
-                ret = dwf;
-                break;
+        List<DwFile> importers = index.getGraph().getImportedBy(file);
+        if (importers.size() > 0) {
+            out.write("### Imported By" + System.lineSeparator());
+            for (DwFile importer : importers) {
+                out.write("- [`" + DwModuleIndex.getQualifiedName(importer) + "`](" + this.getModuleLink(file, importer, linkToFiles) + ")" + System.lineSeparator());
             }
+            out.write(System.lineSeparator());
         }
-        return ret;
+    }
+
+    /**
+     * Gets the link to the provided module from the document of another module.
+     * @param from is the DwFile of the document the link is written in.
+     * @param target is the DwFile to link to.
+     * @param linkToFiles is a boolean with true when each module is written
+     * to its own file.
+     * @return A String with the link.
+     */
+    private String getModuleLink(DwFile from, DwFile target, boolean linkToFiles) {
+        return new DwSymbol(target, "", Util.getModuleAnchor(target)).getLink(from, this.getFileExtension(), linkToFiles);
     }
 
     /**
      * Writes the variables section with the provided dwFile
      * object.
+     * @param out is the Writer to append to.
      * @param file is the dwObject file to write variables for.
-     * @return A String with the variables section.
+     * @param index is the DwModuleIndex to resolve cross-references with.
+     * @param linkToFiles is a boolean with true when each module is written
+     * to its own file.
+     * @throws IOException on IO exception.
      */
-    private String writeVariables(DwFile file) {
-        String ret = "";
-
-        for(DwVariable var : file.getVariables()) {
-            ret += "__var__ `" + var.getName() + "`" + System.lineSeparator();
-            ret += "> " + var.getComment().getText().replaceAll(System.lineSeparator(), "  " + System.lineSeparator()) + System.lineSeparator() + System.lineSeparator();
+    private void writeVariables(Writer out, DwFile file, DwModuleIndex index, boolean linkToFiles) throws IOException {
+        List<String> anchors = Util.getVariableAnchors(file);
+        for (int i = 0; i < file.getVariables().size(); i++) {
+            DwVariable var = file.getVariables().get(i);
+            out.write("<a id=\"" + anchors.get(i) + "\"></a>__var__ `" + var.getName() + "`" + System.lineSeparator());
+            out.write("> " + var.getComment().getText().replace(System.lineSeparator(), "  " + System.lineSeparator()) + System.lineSeparator() + System.lineSeparator());
+            String see = this.getSeeLines(var.getComment(), file, index, linkToFiles);
+            if (see.length() > 0) {
+                out.write("> " + see + System.lineSeparator());
+            }
             if (var.getTable() != null) {
-                ret += writeAnnotationTable(var.getTable()) + System.lineSeparator() + System.lineSeparator();
+                this.writeAnnotationTable(out, var.getTable());
+                out.write(System.lineSeparator() + System.lineSeparator());
             }
         }
-
-        return ret;
     }
 
     /**
      * Writes teh functions section with the provided dwFile
      * object.
+     * @param out is the Writer to append to.
      * @param file is the dwObject file to write functions for.
-     * @return A String with the functions section.
+     * @param index is the DwModuleIndex to resolve cross-references with.
+     * @param linkToFiles is a boolean with true when each module is written
+     * to its own file.
+     * @throws IOException on IO exception.
      */
-    private String writeFunctions(DwFile file) {
-        String ret = "";
-
-        for(DwFunction fun : file.getFunctions()) {
-            ret += "__fun__ `" + fun.getName() + "` ( " + this.writeFunctArgs(fun) + ")" + System.lineSeparator() + System.lineSeparator();
-            ret += this.writeFunctAnnotations(fun) + System.lineSeparator();
-            ret += "> " + Util.stripNewLines(fun.getComment().getText()) + System.lineSeparator() + System.lineSeparator();
+    private void writeFunctions(Writer out, DwFile file, DwModuleIndex index, boolean linkToFiles) throws IOException {
+        List<String> anchors = Util.getFunctionAnchors(file);
+        for (int i = 0; i < file.getFunctions().size(); i++) {
+            DwFunction fun = file.getFunctions().get(i);
+            out.write("<a id=\"" + anchors.get(i) + "\"></a>__fun__ `" + fun.getName() + "` ( ");
+            this.writeFunctArgs(out, fun);
+            out.write(")" + System.lineSeparator() + System.lineSeparator());
+            this.writeFunctAnnotations(out, fun, this.getSeeLines(fun.getComment(), file, index, linkToFiles));
+            out.write(System.lineSeparator());
+            out.write("> " + Util.stripNewLines(fun.getComment().getText()) + System.lineSeparator() + System.lineSeparator());
             if (fun.getTable() != null) {
-                ret += writeAnnotationTable(fun.getTable()) + System.lineSeparator() + System.lineSeparator();
+                this.writeAnnotationTable(out, fun.getTable());
+                out.write(System.lineSeparator() + System.lineSeparator());
             }
         }
-
-        return ret;
     }
 
     /**
      * Writes the function args with the provided dwFunction object.
+     * @param out is the Writer to append to.
      * @param fun is a dwFunction object to write the args for.
-     * @return A String with the function args.
+     * @throws IOException on IO exception.
      */
-    private String writeFunctArgs(DwFunction fun) {
-        String ret = "";
-
+    private void writeFunctArgs(Writer out, DwFunction fun) throws IOException {
         for (int i = 0; i < fun.getArguments().size(); i++) {
-            if (i > 0) ret += ", ";
+            if (i > 0) out.write(", ");
             DwArgument arg = fun.getArguments().get(i);
             if (arg.getDatatype().equals("")) {
                 if (!arg.getName().equals("")) {
-                    ret += "__" + arg.getName() + "__";
+                    out.write("__" + arg.getName() + "__");
                 }
             } else {
-                ret += "__" + arg.getName() + "__:_" + arg.getDatatype() + "_";
+                out.write("__" + arg.getName() + "__:_" + arg.getDatatype() + "_");
             }
         }
-
-        return ret;
     }
 
     /**
      * Writes the function annotations with the provided dwFunction object.
+     * @param out is the Writer to append to.
      * @param fun is a dwFunction object to write annotations for.
-     * @return A String with the annotations section.
+     * @param see is a String with the see lines of the function.
+     * @throws IOException on IO exception.
      */
-    private String writeFunctAnnotations(DwFunction fun) {
-        String ret = "";
+    private void writeFunctAnnotations(Writer out, DwFunction fun, String see) throws IOException {
+        StringBuilder ret = new StringBuilder();
 
         DwCommentAnnotation retAnn = null;
         for (DwCommentAnnotation ann : fun.getComment().getAnnotations()) {
             if (ann.getName().toLowerCase().equals(KnitKeyWord.R.getVal()) || ann.getName().toLowerCase().equals(KnitKeyWord.RETURN.getVal())) {
                 retAnn = ann;
             } else if (ann.getName().toLowerCase().equals(KnitKeyWord.P.getVal()) || ann.getName().toLowerCase().equals(KnitKeyWord.PARAM.getVal())) {
-                ret += "__param__ `" + ann.getKey() + "` " + Util.stripNewLines(ann.getValue()) + "  " + System.lineSeparator();
+                ret.append("__param__ `").append(ann.getKey()).append("` ").append(Util.stripNewLines(ann.getValue())).append("  ").append(System.lineSeparator());
             }
         }
 
         if (retAnn != null) {
-            ret += "__return__ " + Util.stripNewLines(retAnn.getValue()) + "  " + System.lineSeparator();
+            ret.append("__return__ ").append(Util.stripNewLines(retAnn.getValue())).append("  ").append(System.lineSeparator());
         }
+        ret.append(see);
 
-        if (!ret.equals("")) {
-            ret = "> " + ret + "> ";
+        if (ret.length() > 0) {
+            out.write("> ");
+            out.append(ret);
+            out.write("> ");
         }
+    }
 
-        return ret;
+    /**
+     * Gets the see annotations of the provided comment as Markdown lines.
+     * References that resolve to a module, function or variable are linked
+     * to it and the rest are written as they are.
+     * @param comment is the DwComment with the annotations.
+     * @param file is the DwFile the comment is in.
+     * @param index is the DwModuleIndex to resolve the references with.
+     * @param linkToFiles is a boolean with true when each module is written
+     * to its own file.
+     * @return A String with the see lines or blank if there are none.
+     */
+    private String getSeeLines(DwComment comment, DwFile file, DwModuleIndex index, boolean linkToFiles) {
+        StringBuilder ret = new StringBuilder();
+        for (DwCommentAnnotation ann : comment.getAnnotations()) {
+            if (ann.getName().toLowerCase().equals(KnitKeyWord.SEE.getVal()) && !ann.getKey().equals("")) {
+                DwSymbol sym = index.resolve(ann.getKey(), file);
+                ret.append("__see__ ");
+                if (sym == null) {
+                    ret.append("`").append(ann.getKey()).append("`");
+                } else {
+                    ret.append("[`").append(ann.getKey()).append("`](").append(sym.getLink(file, this.getFileExtension(), linkToFiles)).append(")");
+                }
+                ret.append(" ").append(Util.stripNewLines(ann.getValue())).append("  ").append(System.lineSeparator());
+            }
+        }
+        return ret.toString();
     }
 
     /**
-     * Writes the annotation table to string.
+     * Writes the annotation table.
+     * @param out is the Writer to append to.
      * @param tbl is an annotationTable object to write.
-     * @return A String with the annotation table.
+     * @throws IOException on IO exception.
      */
-    private String writeAnnotationTable(AnnotationTable tbl) {
-        String ret = "";
-        ret += "> | " + Util.join(" | ", tbl.getColumns()) + " | " + System.lineSeparator();
+    private void writeAnnotationTable(Writer out, AnnotationTable tbl) throws IOException {
+        out.write("> | " + Util.join(" | ", tbl.getColumns()) + " | " + System.lineSeparator());
         // divider
-        ret += "> | ";
+        out.write("> | ");
         for (int i = 0; i < tbl.getColumns().size(); i++) {
-            ret += "-|";
+            out.write("-|");
         }
-        ret += System.lineSeparator();
+        out.write(System.lineSeparator());
         for (AnnotationRow row : tbl.getRows()) {
-            ret += "> | " + Util.join(" | ", row.getFields()) + " | " + System.lineSeparator();
+            out.write("> | " + Util.join(" | ", row.getFields()) + " | " + System.lineSeparator());
         }
-        return ret;
     }
 }
@@ -23,7 +23,9 @@ package com.lehman.knit;
 public enum OutputFormat {
     MARKDOWN("markdown"),
     PDF("pdf"),
-    HTML("html");
+    HTML("html"),
+    JSON("json"),
+    BINARY("binary");
 
     private String val;
 
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2021 Roseville Code Inc. (austin@rosevillecode.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.lehman.knit;
+
+import com.itextpdf.io.font.constants.StandardFonts;
+import com.itextpdf.kernel.font.PdfFont;
+import com.itextpdf.kernel.font.PdfFontFactory;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.layout.Style;
+import com.itextpdf.layout.element.Text;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Creates the styled text of a PDF document. By default every Text gets
+ * its own font size and simulated bold or italic properties. When
+ * created for a document the fonts and styles are created once and
+ * shared by every Text, which keeps large documents smaller and
+ * cheaper to lay out.
+ */
+public class PdfDocStyles {
+    private Style h1 = null;
+    private Style h3 = null;
+    private Style h6 = null;
+    private Style text = null;
+    private Style bold = null;
+    private Style italic = null;
+
+    /**
+     * Default constructor. Styles are set on each Text.
+     */
+    public PdfDocStyles() { }
+
+    /**
+     * Constructor with the provided document. The fonts of the standard
+     * Helvetica family are added to the document once and shared by every
+     * Text. Fonts belong to a single document so each document needs its
+     * own object.
+     * @param Pdf is the PdfDocument the styles are used in.
+     */
+    public PdfDocStyles(PdfDocument Pdf) {
+        try {
+            PdfFont boldFont = Pdf.addFont(PdfFontFactory.createFont(StandardFonts.HELVETICA_BOLD));
+            PdfFont italicFont = Pdf.addFont(PdfFontFactory.createFont(StandardFonts.HELVETICA_OBLIQUE));
+            this.h1 = new Style().setFont(boldFont).setFontSize(36);
+            this.h3 = new Style().setFontSize(24);
+            this.h6 = new Style().setFontSize(16);
+            this.text = new Style().setFont(boldFont).setFontSize(12);
+            this.bold = new Style().setFont(boldFont);
+            this.italic = new Style().setFont(italicFont);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Creates a large H1 text section with the provided text.
+     * @param str is a String with the text.
+     * @return A Text object with the header text.
+     */
+    public Text h1(String str) {
+        if (this.h1 != null) {
+            return new Text(str).addStyle(this.h1);
+        }
+        return new Text(str)
+            .setFontSize(36)
+            .setBold()
+        ;
+    }
+
+    /**
+     * Creates a medium H3 text section with the provided text.
+     * @param str is a String with the text.
+     * @return A Text object with the header text.
+     */
+    public Text h3(String str) {
+        if (this.h3 != null) {
+            return new Text(str).addStyle(this.h3);
+        }
+        return new Text(str)
+            .setFontSize(24)
+        ;
+    }
+
+    /**
+     * Creates a small H6 text section with the provided text.
+     * @param str is a String with the text.
+     * @return A Text object with the header text.
+     */
+    public Text h6(String str) {
+        if (this.h6 != null) {
+            return new Text(str).addStyle(this.h6);
+        }
+        return new Text(str)
+            .setFontSize(16)
+        ;
+    }
+
+    /**
+     * Creates a plain text section with the provided text.
+     * @param str is a String with the text.
+     * @return A Text object with the provided text.
+     */
+    public Text text(String str) {
+        if (this.text != null) {
+            return new Text(str).addStyle(this.text);
+        }
+        return new Text(str)
+            .setFontSize(12)
+            .setBold()
+        ;
+    }
+
+    /**
+     * Creates a bold text section with the provided text.
+     * @param str is a String with the text.
+     * @return A Text object with the bold text.
+     */
+    public Text bold(String str) {
+        if (this.bold != null) {
+            return new Text(str).addStyle(this.bold);
+        }
+        return new Text(str).setBold();
+    }
+
+    /**
+     * Creates an italic text section with the provided text.
+     * @param str is a String with the text.
+     * @return A Text object with the italic text.
+     */
+    public Text italic(String str) {
+        if (this.italic != null) {
+            return new Text(str).addStyle(this.italic);
+        }
+        return new Text(str).setItalic();
+    }
+}
@@ -17,37 +17,80 @@
 
 package com.lehman.knit;
 
+import com.itextpdf.kernel.pdf.CompressionConstants;
 import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfName;
+import com.itextpdf.kernel.pdf.PdfOutline;
+import com.itextpdf.kernel.pdf.PdfReader;
 import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.kernel.pdf.WriterProperties;
+import com.itextpdf.kernel.pdf.action.PdfAction;
+import com.itextpdf.kernel.pdf.navigation.PdfExplicitDestination;
+import com.itextpdf.kernel.utils.PdfMerger;
 import com.itextpdf.layout.Document;
+import com.itextpdf.layout.element.Cell;
+import com.itextpdf.layout.element.Link;
 import com.itextpdf.layout.element.Paragraph;
 import com.itextpdf.layout.element.Table;
 import com.itextpdf.layout.element.Text;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.BiConsumer;
 
 /**
  * PDF implementation of the dwDocWriter interface. This class
  * provides support for writing docs in PDF format.
  */
 public class PdfDwDocWriterImpl implements DwDocWriter {
+    /**
+     * The number of rows after which a large module table is flushed.
+     */
+    private static final int TABLE_FLUSH_ROWS = 100;
+
     private boolean writeHeaderTable = false;
+    private boolean largeDocument = false;
+    private boolean parallelRendering = false;
+    private int parallelism = 1;
     private String outputHeaderText = "";
     private String outputFooterText = "";
+    private DwModuleIndex moduleIndex = null;
 
     /**
      * Sets the provided options for the doc writer.
-     * @param WriteHeaderTable is a boolean with True to write the header table and false to not.
-     * @param OutputHeaderText is a String with the header text.
-     * @param OutputFooterText is a String with the footer text.
+     * @param Options is the DwDocWriterOptions object to set.
+     */
+    @Override
+    public void setOptions(DwDocWriterOptions Options) {
+        this.writeHeaderTable = Options.isWriteHeaderTable();
+        this.outputHeaderText = Options.getOutputHeaderText();
+        this.outputFooterText = Options.getOutputFooterText();
+        this.parallelism = Options.getParallelism();
+        if (Options instanceof PdfDwDocWriterOptions) {
+            this.largeDocument = ((PdfDwDocWriterOptions) Options).isLargeDocument();
+            this.parallelRendering = ((PdfDwDocWriterOptions) Options).isParallelRendering();
+        }
+    }
+
+    /**
+     * Sets the index of all modules being documented. It's used to
+     * list the modules that import each module.
+     * @param index is the DwModuleIndex of all modules.
      */
     @Override
-    public void setOptions(boolean WriteHeaderTable, String OutputHeaderText, String OutputFooterText) {
-        this.writeHeaderTable = WriteHeaderTable;
-        this.outputHeaderText = OutputHeaderText;
-        this.outputFooterText = OutputFooterText;
+    public void setModuleIndex(DwModuleIndex index) {
+        this.moduleIndex = index;
     }
 
     /**
@@ -71,11 +114,54 @@ public class PdfDwDocWriterImpl implements DwDocWriter {
     @Override
     public byte[] writeDoc(List<DwFile> files, List<String> moduleNameList) {
         ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try {
+            this.writeDoc(files, moduleNameList, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
 
-        PdfWriter writer = new PdfWriter(out);
-        PdfDocument pdf = new PdfDocument(writer);
-        Document doc = new Document(pdf);
+    /**
+     * Writes a doc with the provided dwFile list and moduleNameList to the
+     * provided output stream. Completed pages are written to the stream
+     * as the document grows. With parallel rendering the modules are
+     * rendered on separate threads and merged into the document.
+     * @param files is a List of dwFile objects to write.
+     * @param moduleNameList is an optional list of module names that can
+     * be provided to specify the order of modules.
+     * @param out is the OutputStream to write the document to.
+     * @throws IOException on IO exception.
+     */
+    @Override
+    public void writeDoc(List<DwFile> files, List<String> moduleNameList, OutputStream out) throws IOException {
+        // Modules in moduleNameList order followed by the rest.
+        List<DwFile> modules = DwModuleIndex.order(files, moduleNameList);
+        DwModuleIndex index = this.moduleIndex != null ? this.moduleIndex : new DwModuleIndex(files);
+
+        if (this.parallelRendering) {
+            this.writeMergedDoc(modules, index, out);
+            return;
+        }
+
+        Document doc = this.createDocument(out);
+        PdfDocStyles styles = this.createStyles(doc);
+        this.writeIntro(doc, modules);
+        for (DwFile dwf : modules) {
+            this.writeDoc(doc, styles, dwf, index);
+        }
+        this.writeFooter(doc);
+
+        doc.close();
+        out.flush();
+    }
 
+    /**
+     * Writes the header text and header table if they're set.
+     * @param doc is the PDF document to write to.
+     * @param modules is a List of DwFile objects in document order.
+     */
+    private void writeIntro(Document doc, List<DwFile> modules) {
         // If header text is set.
         if (!this.outputHeaderText.equals("")) {
             doc.add(new Paragraph(this.outputHeaderText + System.lineSeparator() + System.lineSeparator()));
@@ -83,46 +169,258 @@ public class PdfDwDocWriterImpl implements DwDocWriter {
 
         // If write header table is set.
         if (this.writeHeaderTable) {
-            this.writeHeaderTable(doc, files, moduleNameList);
+            this.writeHeaderTable(doc, modules, false);
         }
+    }
 
-        // Go through the module list first and add them in order.
-        for (String modName : moduleNameList) {
-            DwFile modFile = this.getFileByModuleName(files, modName);
-            if (modFile != null) {
-                this.writeDoc(doc, modFile);
-            } else {
-                System.err.println("Warning: Module name '" + modName + "' was supplied in moduleNameList but was not found parsed file list.");
+    /**
+     * Writes the footer text if it's set.
+     * @param doc is the PDF document to write to.
+     */
+    private void writeFooter(Document doc) {
+        if (!this.outputFooterText.equals("")) {
+            doc.add(new Paragraph(this.outputFooterText + System.lineSeparator() + System.lineSeparator()));
+        }
+    }
+
+    /**
+     * Writes the document by rendering the intro, each module and the footer
+     * into their own PDF fragments on a pool of parallelism threads. Only
+     * about parallelism fragments are rendered ahead, each is merged into
+     * the document and released as soon as it's next in order, and each
+     * module gets a bookmark. Every module starts on a new page.
+     * @param modules is a List of DwFile objects in document order.
+     * @param index is the DwModuleIndex of all modules.
+     * @param out is the OutputStream to write the document to.
+     * @throws IOException on IO exception.
+     */
+    private void writeMergedDoc(List<DwFile> modules, DwModuleIndex index, OutputStream out) throws IOException {
+        PdfWriter writer = new PdfWriter(out, this.createWriterProperties());
+        writer.setCloseStream(false);
+        // Identical objects such as the fonts of each fragment are only written once.
+        writer.setSmartMode(true);
+        PdfDocument pdf = new PdfDocument(writer);
+        pdf.getCatalog().setPageMode(PdfName.UseOutlines);
+        PdfMerger merger = new PdfMerger(pdf, false, false);
+        PdfOutline outlines = pdf.getOutlines(false);
+
+        // The fragments in document order and the bookmark title of each, null for no bookmark.
+        List<BiConsumer<Document, PdfDocStyles>> contents = new ArrayList<BiConsumer<Document, PdfDocStyles>>();
+        List<String> titles = new ArrayList<String>();
+        if (!this.outputHeaderText.equals("") || this.writeHeaderTable) {
+            contents.add((doc, styles) -> this.writeIntro(doc, modules));
+            titles.add(null);
+        }
+        for (DwFile dwf : modules) {
+            contents.add((doc, styles) -> this.writeDoc(doc, styles, dwf, index));
+            titles.add(DwModuleIndex.getQualifiedName(dwf));
+        }
+        if (!this.outputFooterText.equals("")) {
+            contents.add((doc, styles) -> this.writeFooter(doc));
+            titles.add(null);
+        }
+
+        // Only about one fragment per thread is rendered ahead of the merge,
+        // so memory stays bounded however many modules there are.
+        int threads = Math.max(1, Math.min(this.parallelism, contents.size()));
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            ArrayDeque<Future<byte[]>> inFlight = new ArrayDeque<Future<byte[]>>();
+            int next = 0;
+            while (next < contents.size() && inFlight.size() < threads) {
+                inFlight.add(this.submitFragment(pool, contents.get(next++)));
             }
+            for (int i = 0; i < contents.size(); i++) {
+                byte[] fragment = this.getFragment(inFlight.poll());
+                if (next < contents.size()) {
+                    inFlight.add(this.submitFragment(pool, contents.get(next++)));
+                }
+
+                int first = this.mergeFragment(pdf, merger, fragment);
+                if (titles.get(i) != null) {
+                    outlines.addOutline(titles.get(i)).addDestination(PdfExplicitDestination.createFit(pdf.getPage(first)));
+                }
+                this.flushPages(pdf, first);
+            }
+        } finally {
+            pool.shutdownNow();
         }
 
-        // Iterate the rest.
-        for (DwFile dwf : files) {
-            if (!moduleNameList.contains(dwf.getName())) {
-                this.writeDoc(doc, dwf);
+        pdf.close();
+        out.flush();
+    }
+
+    /**
+     * Submits the rendering of a PDF fragment to the provided pool.
+     * @param pool is the ForkJoinPool to render on.
+     * @param content is a BiConsumer that writes the content to the document.
+     * @return A Future of the fragment PDF.
+     */
+    private Future<byte[]> submitFragment(ForkJoinPool pool, BiConsumer<Document, PdfDocStyles> content) {
+        return pool.submit(() -> this.writeFragment(content));
+    }
+
+    /**
+     * Renders a PDF fragment with its own document and styles.
+     * @param content is a BiConsumer that writes the content to the document.
+     * @return A byte array with the fragment PDF.
+     */
+    private byte[] writeFragment(BiConsumer<Document, PdfDocStyles> content) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Document doc = this.createDocument(out);
+        content.accept(doc, this.createStyles(doc));
+        doc.close();
+        return out.toByteArray();
+    }
+
+    /**
+     * Waits for the provided fragment to be rendered.
+     * @param fragment is the Future of the fragment.
+     * @return A byte array with the fragment PDF.
+     * @throws IOException if rendering the fragment failed or was interrupted.
+     */
+    private byte[] getFragment(Future<byte[]> fragment) throws IOException {
+        try {
+            return fragment.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Rendering PDF fragments was interrupted.");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
             }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /**
+     * Appends the pages of the provided fragment to the merged document.
+     * @param pdf is the merged PdfDocument.
+     * @param merger is the PdfMerger of the merged document.
+     * @param fragment is a byte array with the fragment PDF.
+     * @return An int with the number of the first merged page.
+     * @throws IOException on IO exception.
+     */
+    private int mergeFragment(PdfDocument pdf, PdfMerger merger, byte[] fragment) throws IOException {
+        PdfDocument src = new PdfDocument(new PdfReader(new ByteArrayInputStream(fragment)));
+        int first = pdf.getNumberOfPages() + 1;
+        merger.merge(src, 1, src.getNumberOfPages());
+        src.close();
+        return first;
+    }
+
+    /**
+     * Flushes the pages of the merged document from the provided page on
+     * to the output stream so that they don't stay in memory.
+     * @param pdf is the merged PdfDocument.
+     * @param first is an int with the number of the first page to flush.
+     */
+    private void flushPages(PdfDocument pdf, int first) {
+        for (int i = first; i <= pdf.getNumberOfPages(); i++) {
+            pdf.getPage(i).flush();
+        }
+    }
+
+    /**
+     * Gets the file extension of the documents this writer produces.
+     * @return A String with the file extension.
+     */
+    @Override
+    public String getFileExtension() {
+        return "pdf";
+    }
+
+    /**
+     * Writes a PDF document for a single module to the provided output stream.
+     * @param file is the dwFile object to write.
+     * @param out is the OutputStream to write the document to.
+     * @throws IOException on IO exception.
+     */
+    @Override
+    public void writeModuleDoc(DwFile file, OutputStream out) throws IOException {
+        Document doc = this.createDocument(out);
+        this.writeDoc(doc, this.createStyles(doc), file, this.moduleIndex != null ? this.moduleIndex : new DwModuleIndex(Collections.singletonList(file)));
+        doc.close();
+        out.flush();
+    }
+
+    /**
+     * Writes the PDF index document with the header text, a table linking
+     * to each module file and the footer text.
+     * @param files is a List of dwFile objects to list.
+     * @param moduleNameList is an optional list of module names that can
+     * be provided to specify the order of modules.
+     * @param out is the OutputStream to write the document to.
+     * @throws IOException on IO exception.
+     */
+    @Override
+    public void writeIndexDoc(List<DwFile> files, List<String> moduleNameList, OutputStream out) throws IOException {
+        Document doc = this.createDocument(out);
+
+        // If header text is set.
+        if (!this.outputHeaderText.equals("")) {
+            doc.add(new Paragraph(this.outputHeaderText + System.lineSeparator() + System.lineSeparator()));
         }
 
+        this.writeHeaderTable(doc, DwModuleIndex.order(files, moduleNameList), true);
+
         // If footer text is set.
         if (!this.outputFooterText.equals("")) {
             doc.add(new Paragraph(this.outputFooterText + System.lineSeparator() + System.lineSeparator()));
         }
 
         doc.close();
+        out.flush();
+    }
 
-        return out.toByteArray();
+    /**
+     * Creates a PDF document that writes to the provided output stream.
+     * In large document mode the document is written with full compression,
+     * which also packs the objects into compressed object streams.
+     * Completed pages are flushed to the stream as the document grows.
+     * @param out is the OutputStream to write the document to.
+     * @return A Document object.
+     */
+    private Document createDocument(OutputStream out) {
+        PdfWriter writer = new PdfWriter(out, this.createWriterProperties());
+        writer.setCloseStream(false);
+        return new Document(new PdfDocument(writer));
+    }
+
+    /**
+     * Creates the writer properties of a new PDF document.
+     * @return A WriterProperties object.
+     */
+    private WriterProperties createWriterProperties() {
+        WriterProperties props = new WriterProperties();
+        if (this.largeDocument) {
+            props.setFullCompressionMode(true).setCompressionLevel(CompressionConstants.BEST_COMPRESSION);
+        }
+        return props;
+    }
+
+    /**
+     * Creates the styles of the provided document. In large document mode
+     * the fonts and styles are shared by the whole document.
+     * @param doc is the PDF document the styles are used in.
+     * @return A PdfDocStyles object.
+     */
+    private PdfDocStyles createStyles(Document doc) {
+        return this.largeDocument ? new PdfDocStyles(doc.getPdfDocument()) : new PdfDocStyles();
     }
 
     /**
      * Writes a Markdown formatted document with the provided dwFile object and
      * returns a String with the result.
      * @param doc is the PDF document to write to.
+     * @param styles is the PdfDocStyles of the document.
      * @param file is a dwFile object to write.
+     * @param index is the DwModuleIndex of all modules.
      * @return A String with the doc contents.
      */
-    private void writeDoc(Document doc, DwFile file) {
-        doc.add(new Paragraph(this.h1(file.name)));
-        doc.add(new Paragraph(this.h6(Util.join("::", file.modulePath))));
+    private void writeDoc(Document doc, PdfDocStyles styles, DwFile file, DwModuleIndex index) {
+        doc.add(new Paragraph(styles.h1(file.name)));
+        doc.add(new Paragraph(styles.h6(Util.join("::", file.modulePath))));
 
         if (!file.getComment().getText().equals("")) {
             doc.add(new Paragraph(file.getComment().getText()));
@@ -132,88 +430,113 @@ public class PdfDwDocWriterImpl implements DwDocWriter {
             }
         }
 
-        this.writeVariables(doc, file);
-        this.writeFunctions(doc, file);
+        this.writeImports(doc, styles, file, index);
+        this.writeVariables(doc, styles, file);
+        this.writeFunctions(doc, styles, file);
     }
 
     /**
-     * Writes a header table with the provided dwFile list. This
-     * table will link to each module further down in the document.
+     * Writes the imports section and the imported by section of the
+     * provided module.
      * @param doc is the PDF document to write to.
-     * @param files is a List of dwFile objects to write.
-     * @return A String with the header table text.
+     * @param styles is the PdfDocStyles of the document.
+     * @param file is the dwFile object to write the sections for.
+     * @param index is the DwModuleIndex of all modules.
      */
-    private void writeHeaderTable(Document doc, List<DwFile> files) {
-        this.writeHeaderTable(doc, files, new ArrayList());
+    private void writeImports(Document doc, PdfDocStyles styles, DwFile file, DwModuleIndex index) {
+        if (file.getImports().size() > 0) {
+            doc.add(new Paragraph(styles.h3("Imports")));
+            for (DwImport imp : file.getImports()) {
+                Paragraph p = new Paragraph();
+                p.setMarginLeft(30);
+                p.add(styles.italic(imp.getModuleName()));
+                if (imp.getNames().size() > 0) {
+                    p.add(" " + Util.join(", ", imp.getNames()));
+                }
+                if (imp.getAlias() != null && !imp.getAlias().equals("")) {
+                    p.add(" as " + imp.getAlias());
+                }
+                doc.add(p);
+            }
+        }
+
+        List<DwFile> importers = index.getGraph().getImportedBy(file);
+        if (importers.size() > 0) {
+            doc.add(new Paragraph(styles.h3("Imported By")));
+            for (DwFile importer : importers) {
+                Paragraph p = new Paragraph();
+                p.setMarginLeft(30);
+                p.add(styles.italic(DwModuleIndex.getQualifiedName(importer)));
+                doc.add(p);
+            }
+        }
     }
 
     /**
      * Writes a header table with the provided dwFile list.
      * @param doc is the PDF document to write to.
-     * @param files is a List of dwFile objects to write.
-     * @param moduleNameList is an optional list of module names that can
-     * be provided to specify the order of modules in the table.
+     * @param files is a List of dwFile objects to write in table order.
+     * @param linkToFiles is a boolean with true to link the module names
+     * to the module files.
      * @return A String with the header table text.
      */
-    private void writeHeaderTable(Document doc, List<DwFile> files, List<String> moduleNameList) {
-        Table table = new Table(2);
+    private void writeHeaderTable(Document doc, List<DwFile> files, boolean linkToFiles) {
+        Table table = new Table(2, this.largeDocument);
         table.addHeaderCell("Module");
         table.addHeaderCell("Description");
 
-        // Go through the module list first and add them in order.
-        for (String modName : moduleNameList) {
-            DwFile modFile = this.getFileByModuleName(files, modName);
-            if (modFile != null) {
-                table.addCell(modFile.getName());
-                table.addCell(Util.stripNewLines(modFile.getComment().getText()));
-            } else {
-                System.err.println("Warning: Module name '" + modName + "' was supplied in moduleNameList but was not found parsed file list.");
-            }
+        // A large table is added first and its rows are laid out and
+        // flushed as they're added instead of all at once at the end.
+        if (this.largeDocument) {
+            doc.add(table);
         }
 
-        // Iterate the rest.
-        for (DwFile dwf : files) {
-            if (!moduleNameList.contains(dwf.getName())) {
-                table.addCell(dwf.getName());
-                table.addCell(Util.stripNewLines(dwf.getComment().getText()));
+        for (int i = 0; i < files.size(); i++) {
+            DwFile dwf = files.get(i);
+            table.addCell(this.moduleCell(dwf, linkToFiles));
+            table.addCell(Util.stripNewLines(dwf.getComment().getText()));
+            if (this.largeDocument && (i + 1) % TABLE_FLUSH_ROWS == 0) {
+                table.flush();
             }
         }
 
-        doc.add(table);
+        if (this.largeDocument) {
+            table.complete();
+        } else {
+            doc.add(table);
+        }
     }
 
     /**
-     * Gets the file with the provided module name.
-     * @param files is the list of files to search.
-     * @param name is a String with the file name to look for.
-     * @return A DwFile with the result or null if not found.
+     * Creates the module name cell for the header table.
+     * @param file is the DwFile to create the cell for.
+     * @param linkToFiles is a boolean with true to link to the module file.
+     * @return A Cell object with the module name.
      */
-    private DwFile getFileByModuleName(List<DwFile> files, String name) {
-        DwFile ret = null;
-        for(DwFile dwf : files) {
-            if (dwf.getName().equals(name)) {
-                ret = dwf;
-                break;
-            }
+    private Cell moduleCell(DwFile file, boolean linkToFiles) {
+        if (linkToFiles) {
+            Link link = new Link(file.getName(), PdfAction.createGoToR(Util.getModuleFileName(file, this.getFileExtension()), 1));
+            return new Cell().add(new Paragraph(link.setUnderline()));
         }
-        return ret;
+        return new Cell().add(new Paragraph(file.getName()));
     }
 
     /**
      * Writes the variables section with the provided dwFile
      * object.
      * @param doc is the PDF document to write to.
+     * @param styles is the PdfDocStyles of the document.
      * @param file is the dwObject file to write variables for.
      * @return A String with the variables section.
      */
-    private void writeVariables(Document doc, DwFile file) {
+    private void writeVariables(Document doc, PdfDocStyles styles, DwFile file) {
         if (file.getVariables().size() > 0) {
-            doc.add(new Paragraph(this.h3("Variables")));
+            doc.add(new Paragraph(styles.h3("Variables")));
 
             for (DwVariable var : file.getVariables()) {
                 Paragraph p = new Paragraph();
-                p.add((new Text("var ")).setBold());
-                p.add((new Text(var.getName() + System.lineSeparator())).setItalic());
+                p.add(styles.bold("var "));
+                p.add(styles.italic(var.getName() + System.lineSeparator()));
                 doc.add(p);
 
                 Paragraph ptext = new Paragraph();
@@ -231,23 +554,24 @@ public class PdfDwDocWriterImpl implements DwDocWriter {
      * Writes teh functions section with the provided dwFile
      * object.
      * @param doc is the PDF document to write to.
+     * @param styles is the PdfDocStyles of the document.
      * @param file is the dwObject file to write functions for.
      * @return A String with the functions section.
      */
-    private void writeFunctions(Document doc, DwFile file) {
+    private void writeFunctions(Document doc, PdfDocStyles styles, DwFile file) {
         if (file.getFunctions().size() > 0) {
-            doc.add(new Paragraph(this.h3("Functions")));
+            doc.add(new Paragraph(styles.h3("Functions")));
 
             for (DwFunction fun : file.getFunctions()) {
                 Paragraph p = new Paragraph();
-                p.add((new Text("fun ")).setBold());
-                p.add((new Text(fun.getName())).setItalic());
+                p.add(styles.bold("fun "));
+                p.add(styles.italic(fun.getName()));
                 p.add(new Text(" ( "));
-                this.writeFunctArgs(p, fun);
+                this.writeFunctArgs(p, styles, fun);
                 p.add(" ) " + System.lineSeparator() + System.lineSeparator());
                 doc.add(p);
 
-                this.writeFunctAnnotations(doc, fun);
+                this.writeFunctAnnotations(doc, styles, fun);
 
                 Paragraph ptext = new Paragraph();
                 ptext.setMarginLeft(30);
@@ -264,21 +588,23 @@ public class PdfDwDocWriterImpl implements DwDocWriter {
 
     /**
      * Writes the function args with the provided dwFunction object.
+     * @param p is the Paragraph to add the args to.
+     * @param styles is the PdfDocStyles of the document.
      * @param fun is a dwFunction object to write the args for.
      * @return A String with the function args.
      */
-    private void writeFunctArgs(Paragraph p, DwFunction fun) {
+    private void writeFunctArgs(Paragraph p, PdfDocStyles styles, DwFunction fun) {
         for (int i = 0; i < fun.getArguments().size(); i++) {
             if (i > 0) p.add(new Text(", "));
             DwArgument arg = fun.getArguments().get(i);
             if (arg.getDatatype().equals("")) {
                 if (!arg.getName().equals("")) {
-                    p.add((new Text(arg.getName())).setBold());
+                    p.add(styles.bold(arg.getName()));
                 }
             } else {
-                p.add((new Text(arg.getName())).setBold());
+                p.add(styles.bold(arg.getName()));
                 p.add(new Text(":"));
-                p.add((new Text(arg.getDatatype())).setItalic());
+                p.add(styles.italic(arg.getDatatype()));
             }
         }
     }
@@ -286,10 +612,11 @@ public class PdfDwDocWriterImpl implements DwDocWriter {
     /**
      * Writes the function annotations with the provided dwFunction object.
      * @param doc is the PDF document to write to.
+     * @param styles is the PdfDocStyles of the document.
      * @param fun is a dwFunction object to write annotations for.
      * @return A String with the annotations section.
      */
-    private void writeFunctAnnotations(Document doc, DwFunction fun) {
+    private void writeFunctAnnotations(Document doc, PdfDocStyles styles, DwFunction fun) {
         Paragraph p = new Paragraph();
 
         DwCommentAnnotation retAnn = null;
@@ -297,17 +624,26 @@ public class PdfDwDocWriterImpl implements DwDocWriter {
             if (ann.getName().toLowerCase().equals(KnitKeyWord.R.getVal()) || ann.getName().toLowerCase().equals(KnitKeyWord.RETURN.getVal())) {
                 retAnn = ann;
             } else if (ann.getName().toLowerCase().equals(KnitKeyWord.P.getVal()) || ann.getName().toLowerCase().equals(KnitKeyWord.PARAM.getVal())) {
-                p.add((new Text("param ")).setBold());
-                p.add((new Text(ann.getKey() + " ")).setItalic());
+                p.add(styles.bold("param "));
+                p.add(styles.italic(ann.getKey() + " "));
                 p.add(new Text(Util.stripNewLines(ann.getValue()) + "  " + System.lineSeparator()));
             }
         }
 
         if (retAnn != null) {
-            p.add((new Text("return ")).setBold());
+            p.add(styles.bold("return "));
             p.add(new Text(Util.stripNewLines(retAnn.getValue()) + "  " + System.lineSeparator()));
         }
 
+        // References are written as text since the document has no anchors to link to.
+        for (DwCommentAnnotation ann : fun.getComment().getAnnotations()) {
+            if (ann.getName().toLowerCase().equals(KnitKeyWord.SEE.getVal()) && !ann.getKey().equals("")) {
+                p.add(styles.bold("see "));
+                p.add(styles.italic(ann.getKey() + " "));
+                p.add(new Text(Util.stripNewLines(ann.getValue()) + "  " + System.lineSeparator()));
+            }
+        }
+
         doc.add(p);
     }
 
@@ -332,50 +668,4 @@ public class PdfDwDocWriterImpl implements DwDocWriter {
 
         doc.add(table);
     }
-
-    /**
-     * Creates a large H1 text section with the provided text.
-     * @param text is a String with the text.
-     * @return A Text object with the header text.
-     */
-    private Text h1(String text) {
-        return new Text(text)
-            .setFontSize(36)
-            .setBold()
-        ;
-    }
-
-    /**
-     * Creates a medium H3 text section with the provided text.
-     * @param text is a String with the text.
-     * @return A Text object with the header text.
-     */
-    private Text h3(String text) {
-        return new Text(text)
-            .setFontSize(24)
-        ;
-    }
-
-    /**
-     * Creates a small H6 text section with the provided text.
-     * @param text is a String with the text.
-     * @return A Text object with the header text.
-     */
-    private Text h6(String text) {
-        return new Text(text)
-            .setFontSize(16)
-        ;
-    }
-
-    /**
-     * Creates a plan text section with the provided text.
-     * @param text is a String with the text.
-     * @return A Text object with the provided text.
-     */
-    private Text text(String text) {
-        return new Text(text)
-            .setFontSize(12)
-            .setBold()
-        ;
-    }
 }
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2021 Roseville Code Inc. (austin@rosevillecode.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.lehman.knit;
+
+/**
+ * The options of the PDF document writer.
+ */
+public class PdfDwDocWriterOptions extends DwDocWriterOptions {
+    private boolean largeDocument = false;
+    private boolean parallelRendering = false;
+
+    /**
+     * Gets the large document flag.
+     * @return A boolean with true to write in large document mode.
+     */
+    public boolean isLargeDocument() {
+        return largeDocument;
+    }
+
+    /**
+     * Sets the large document flag. In large document mode fonts and
+     * styles are shared, the module table is flushed as it's written and
+     * the PDF is written with full compression.
+     * @param largeDocument is a boolean with true to write in large document mode.
+     */
+    public void setLargeDocument(boolean largeDocument) {
+        this.largeDocument = largeDocument;
+    }
+
+    /**
+     * Gets the parallel rendering flag.
+     * @return A boolean with true to render the modules in parallel.
+     */
+    public boolean isParallelRendering() {
+        return parallelRendering;
+    }
+
+    /**
+     * Sets the parallel rendering flag. With parallel rendering each module
+     * of a single output file is rendered into its own PDF fragment on the
+     * parallelism threads and the fragments are merged in module order.
+     * @param parallelRendering is a boolean with true to render the modules in parallel.
+     */
+    public void setParallelRendering(boolean parallelRendering) {
+        this.parallelRendering = parallelRendering;
+    }
+
+    /**
+     * Sets a PDF option by name. The options are largeDocument and parallelRendering.
+     * @param name is a String with the option name.
+     * @param value is a String with the option value.
+     * @return A boolean with true if the option is known and false if not.
+     */
+    @Override
+    public boolean setProperty(String name, String value) {
+        if (name.equals("largeDocument")) {
+            this.setLargeDocument(Boolean.parseBoolean(value.trim()));
+            return true;
+        } else if (name.equals("parallelRendering")) {
+            this.setParallelRendering(Boolean.parseBoolean(value.trim()));
+            return true;
+        }
+        return super.setProperty(name, value);
+    }
+}
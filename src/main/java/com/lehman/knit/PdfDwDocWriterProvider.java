@@ -0,0 +1,50 @@
+/*
+ * Copyright 2021 Roseville Code Inc. (austin@rosevillecode.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.lehman.knit;
+
+/**
+ * Provides the PDF doc writer.
+ */
+public class PdfDwDocWriterProvider implements DwDocWriterProvider {
+    /**
+     * Gets the name of the output format the provided writer writes.
+     * @return A String with the format name.
+     */
+    @Override
+    public String getFormat() {
+        return OutputFormat.PDF.getVal();
+    }
+
+    /**
+     * Creates the PDF writer options.
+     * @return A PdfDwDocWriterOptions object.
+     */
+    @Override
+    public DwDocWriterOptions createOptions() {
+        return new PdfDwDocWriterOptions();
+    }
+
+    /**
+     * Creates a new PDF doc writer.
+     * @return A DwDocWriter object.
+     */
+    @Override
+    public DwDocWriter create() {
+        return new PdfDwDocWriterImpl();
+    }
+}
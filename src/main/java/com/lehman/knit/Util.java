@@ -18,13 +18,35 @@
 package com.lehman.knit;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.regex.Pattern;
 
 /**
  * This class provides utility functions.
  */
 public class Util {
+    /**
+     * Files of this many bytes or more are memory mapped when read.
+     */
+    private static final long MAP_THRESHOLD = 1024 * 1024;
+
+    /**
+     * Matches one or more whitespace characters.
+     */
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
 
 	/**
 	 * Joins a list of strings provided using the provided delimiter into a single string.
@@ -33,12 +55,12 @@ public class Util {
 	 * @return A String with the joined parts.
 	 */
     public static String join(String delim, List<String> arr) {
-        String ret = "";
+        StringBuilder ret = new StringBuilder();
         for (int i = 0; i < arr.size(); i++) {
-            if (i > 0) ret += delim;
-            ret += arr.get(i);
+            if (i > 0) ret.append(delim);
+            ret.append(arr.get(i));
         }
-        return ret;
+        return ret.toString();
     }
 
 	/**
@@ -58,7 +80,7 @@ public class Util {
     }
 
     /**
-	 * Reads a file with the provided file name and returns it as
+	 * Reads a UTF-8 file with the provided file name and returns it as
 	 * a String.
 	 * @param FileName is a String with the file name to read.
 	 * @return A String with the file contents.
@@ -66,25 +88,71 @@ public class Util {
 	 */
 	public static String read(String FileName) throws IOException
 	{
-		FileReader fr = null;
-		try {
-			fr = new FileReader(FileName);
+		return read(FileName, StandardCharsets.UTF_8).toString();
+	}
 
-			int len = -1;
-			char[] buff = new char[4096];
-			final StringBuffer buffer = new StringBuffer();
-			while ((len = fr.read(buff)) > 0) { buffer.append(buff, 0, len); }
+    /**
+     * Reads a file with the provided file name and encoding and returns the
+     * decoded text. Small files are read in a single allocation while files
+     * of MAP_THRESHOLD bytes or more are memory mapped. A mapped file that
+     * turns out to be plain ASCII in an ASCII compatible encoding is scanned
+     * in place without being decoded to a char array. Malformed input is
+     * replaced rather than failing the read.
+     * @param FileName is a String with the file name to read.
+     * @param Encoding is the Charset of the file.
+     * @return A CharSequence with the file contents.
+     * @throws IOException on IO exception.
+     */
+    public static CharSequence read(String FileName, Charset Encoding) throws IOException {
+        CharsetDecoder decoder = Encoding.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
 
-	        return buffer.toString();
-	    } catch (IOException e) {
-			throw e;
-		} finally {
-			if(fr != null) {
-		        try { fr.close(); }
-		        catch (IOException e) { throw e; }
-			}
-	    }
-	}
+        Path path = Paths.get(FileName);
+        if (Files.size(path) < MAP_THRESHOLD) {
+            return decoder.decode(ByteBuffer.wrap(Files.readAllBytes(path)));
+        }
+
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (isAsciiCompatible(Encoding) && isAscii(buffer)) {
+                return new ByteCharSequence(buffer);
+            }
+            return decoder.decode(buffer);
+        } finally {
+            if (channel != null) {
+                channel.close();
+            }
+        }
+    }
+
+    /**
+     * Checks if the provided encoding stores the ASCII characters as
+     * the same single bytes.
+     * @param Encoding is the Charset to check.
+     * @return A boolean with true if it's ASCII compatible.
+     */
+    private static boolean isAsciiCompatible(Charset Encoding) {
+        return Encoding.equals(StandardCharsets.UTF_8)
+                || Encoding.equals(StandardCharsets.US_ASCII)
+                || Encoding.equals(StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Checks if every byte in the provided buffer is an ASCII character.
+     * @param buffer is the ByteBuffer to check.
+     * @return A boolean with true if the buffer is plain ASCII.
+     */
+    private static boolean isAscii(ByteBuffer buffer) {
+        for (int i = buffer.position(); i < buffer.limit(); i++) {
+            if (buffer.get(i) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
 
 	/**
 	 * Writes the provided String to file. If append is set to true, it will append
@@ -109,6 +177,145 @@ public class Util {
 	    }
 	}
 
+    /**
+     * Opens the provided file for writing. If gzip is set a gzip compressed
+     * copy of the file is written next to it with a .gz extension as well.
+     * If it isn't set a compressed copy left from an earlier run is removed
+     * so that it can't be served in place of the new file.
+     * @param FileName is a String with the file name to write.
+     * @param Gzip is a boolean with true to also write the compressed copy.
+     * @return An OutputStream to write the file with.
+     * @throws IOException on IO exception.
+     */
+    public static OutputStream openOutput(String FileName, boolean Gzip) throws IOException {
+        if (Gzip) {
+            return new GzipSiblingOutputStream(FileName);
+        }
+        Files.deleteIfExists(Paths.get(FileName + ".gz"));
+        return new FileOutputStream(FileName);
+    }
+
+    /**
+     * Writes the provided data to file and a gzip compressed copy of it
+     * next to it if gzip is set. An existing file is replaced.
+     * @param FileName is a String with the file name to write.
+     * @param Data is a byte array with the data to write.
+     * @param Gzip is a boolean with true to also write the compressed copy.
+     * @throws IOException on IO exception.
+     */
+    public static void writeOutput(String FileName, byte[] Data, boolean Gzip) throws IOException {
+        OutputStream out = openOutput(FileName, Gzip);
+        try {
+            out.write(Data);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Gets the relative file name of the document for the provided module
+     * when writing a file per module. The file mirrors the module path, so
+     * module dw::color::palette becomes dw/color/palette.[ext].
+     * @param file is the DwFile to get the file name for.
+     * @param ext is a String with the file extension to use.
+     * @return A String with the relative file name.
+     */
+    public static String getModuleFileName(DwFile file, String ext) {
+        String path = file.getModulePath().size() > 0 ? join("/", file.getModulePath()) : file.getName();
+        return path + "." + ext;
+    }
+
+    /**
+     * Gets the relative path prefix that leads from the provided module's
+     * document back to the output root directory. (../../ for dw/color/palette)
+     * @param file is the DwFile to get the prefix for.
+     * @return A String with the relative path prefix.
+     */
+    public static String getModuleRootPrefix(DwFile file) {
+        StringBuilder ret = new StringBuilder();
+        for (int i = 1; i < file.getModulePath().size(); i++) {
+            ret.append("../");
+        }
+        return ret.toString();
+    }
+
+    /**
+     * Gets the anchor of the provided module. The anchor is made from the
+     * full module path so that modules with the same name in different
+     * packages get different anchors. (dw-color-palette)
+     * @param file is the DwFile to get the anchor for.
+     * @return A String with the module anchor.
+     */
+    public static String getModuleAnchor(DwFile file) {
+        return file.getModulePath().size() > 0 ? join("-", file.getModulePath()) : file.getName();
+    }
+
+    /**
+     * Gets the anchor of each function of the provided module. Overloaded
+     * functions get a number appended to keep the anchors unique.
+     * @param file is the DwFile to get the anchors for.
+     * @return A List of Strings with the anchors in function order.
+     */
+    public static List<String> getFunctionAnchors(DwFile file) {
+        ArrayList<String> names = new ArrayList<String>();
+        for (DwFunction fun : file.getFunctions()) {
+            names.add(fun.getName());
+        }
+        return getAnchors(file, names);
+    }
+
+    /**
+     * Gets the anchor of each variable of the provided module.
+     * @param file is the DwFile to get the anchors for.
+     * @return A List of Strings with the anchors in variable order.
+     */
+    public static List<String> getVariableAnchors(DwFile file) {
+        ArrayList<String> names = new ArrayList<String>();
+        for (DwVariable var : file.getVariables()) {
+            names.add(var.getName());
+        }
+        return getAnchors(file, names);
+    }
+
+    /**
+     * Gets the anchor of a declaration in the provided module. This is the
+     * module anchor and the declaration name. (dw-color-palette.mapPalette)
+     * @param file is the DwFile the declaration is in.
+     * @param name is a String with the declaration name.
+     * @return A String with the anchor.
+     */
+    public static String getDeclarationAnchor(DwFile file, String name) {
+        return getModuleAnchor(file) + "." + name;
+    }
+
+    /**
+     * Gets the anchors of the provided declaration names.
+     * @param file is the DwFile the declarations are in.
+     * @param names is a List of Strings with the declaration names.
+     * @return A List of Strings with the anchors.
+     */
+    private static List<String> getAnchors(DwFile file, List<String> names) {
+        ArrayList<String> ret = new ArrayList<String>();
+        HashMap<String, Integer> counts = new HashMap<String, Integer>();
+        for (String name : names) {
+            String anchor = getDeclarationAnchor(file, name);
+            Integer count = counts.get(anchor);
+            counts.put(anchor, count == null ? 1 : count + 1);
+            ret.add(count == null ? anchor : anchor + "-" + (count + 1));
+        }
+        return ret;
+    }
+
+    /**
+     * Normalizes the provided path by removing . and .. names and
+     * redundant separators. / is used as the separator.
+     * @param path is a String with the path to normalize.
+     * @return A String with the normalized path.
+     */
+    public static String normalizePath(String path) {
+        return Paths.get(path).normalize().toString().replace('\\', '/');
+    }
+
 	/**
 	 * Strips all newline characters and replaces with a space. If there are muptiple
 	 * spaces in a row it also makes them a single space.
@@ -116,8 +323,7 @@ public class Util {
 	 * @return A String with newline replaced.
 	 */
 	public static String stripNewLines(String in) {
-		return
-				in.replaceAll(System.lineSeparator(), " ")
-						.replaceAll("\\s+", " ");
+		// Line separators are whitespace so a single pass covers both.
+		return WHITESPACE.matcher(in).replaceAll(" ");
 	}
 }
@@ -0,0 +1,46 @@
+/*
+ * Copyright 2021 Roseville Code Inc. (austin@rosevillecode.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.lehman.knit;
+
+import org.apache.maven.plugins.annotations.Mojo;
+
+/**
+ * The watch goal generates the document like the knit goal and then keeps
+ * running, regenerating it each time a DW file in the configured
+ * directories changes. It takes the same configuration as the knit goal.
+ */
+@Mojo(name = "watch")
+public class WatchMojo extends Main {
+    /**
+     * The entry point of the watch goal.
+     */
+    @Override
+    public void execute() {
+        this.printAbout();
+        System.out.println("Running Knit doc generator in watch mode ...");
+
+        try {
+            new KnitWatcher(this, this.validateConfig()).run();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            System.err.println("Bad news, the knit plugin ran into trouble. If it continues please report it at https://github.com/rsv-code/knit." + System.lineSeparator());
+            e.printStackTrace();
+        }
+    }
+}
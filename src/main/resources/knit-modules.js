@@ -0,0 +1,119 @@
+/*
+ * Copyright 2021 Roseville Code Inc. (austin@rosevillecode.com)
+ * This file is generated by Knit Dataweave Document Generator
+ *
+ * Module loader. Loads the module sections of the document from the
+ * module scripts written next to it as they come near the view, or when
+ * a link points to the module or one of its functions or variables.
+ */
+(function () {
+    var base = document.currentScript.src.replace(/[^\/]*$/, '');
+    var modules = {};
+    var observer = null;
+
+    window.KnitModules = {
+        load: function (anchor, html) {
+            var module = modules[anchor];
+            if (!module || module.loaded) {
+                return;
+            }
+            module.loaded = true;
+            if (observer) {
+                observer.unobserve(module.el);
+            }
+            module.el.innerHTML = html;
+            module.el.style.minHeight = '';
+            var callbacks = module.callbacks || [];
+            module.callbacks = null;
+            for (var i = 0; i < callbacks.length; i++) {
+                callbacks[i]();
+            }
+        }
+    };
+
+    // Loads the script of a module once and calls back when it's in the page.
+    function load(module, callback) {
+        if (module.loaded) {
+            if (callback) {
+                callback();
+            }
+            return;
+        }
+        if (module.callbacks) {
+            if (callback) {
+                module.callbacks.push(callback);
+            }
+            return;
+        }
+        module.callbacks = callback ? [callback] : [];
+        var script = document.createElement('script');
+        script.src = base + module.el.getAttribute('data-src');
+        script.onerror = function () {
+            KnitModules.load(module.el.getAttribute('data-anchor'), '');
+        };
+        document.head.appendChild(script);
+    }
+
+    // Finds the module of a module anchor or a declaration anchor. Declaration
+    // anchors are the module anchor followed by a dot and the name.
+    function find(anchor) {
+        if (modules[anchor]) {
+            return modules[anchor];
+        }
+        var dot = anchor.lastIndexOf('.');
+        return dot > 0 ? modules[anchor.substring(0, dot)] || null : null;
+    }
+
+    // Loads the module the hash points into and scrolls to the target.
+    function show(hash) {
+        var anchor = decodeURIComponent(hash.replace(/^#/, ''));
+        var module = find(anchor);
+        if (module) {
+            load(module, function () {
+                var target = document.getElementById(anchor);
+                if (target) {
+                    target.scrollIntoView();
+                }
+            });
+        }
+    }
+
+    var placeholders = document.querySelectorAll('.knit-module[data-anchor]');
+    for (var i = 0; i < placeholders.length; i++) {
+        modules[placeholders[i].getAttribute('data-anchor')] = { el: placeholders[i], loaded: false, callbacks: null };
+    }
+
+    if ('IntersectionObserver' in window) {
+        // Modules within a screen of the view are loaded ahead of scrolling to them.
+        observer = new IntersectionObserver(function (entries) {
+            for (var i = 0; i < entries.length; i++) {
+                if (entries[i].isIntersecting) {
+                    load(modules[entries[i].target.getAttribute('data-anchor')]);
+                }
+            }
+        }, { rootMargin: '100% 0px' });
+        for (var anchor in modules) {
+            observer.observe(modules[anchor].el);
+        }
+    } else {
+        for (var name in modules) {
+            load(modules[name]);
+        }
+    }
+
+    window.addEventListener('hashchange', function () {
+        show(window.location.hash);
+    });
+
+    // A link to the current hash doesn't change it, so it's handled on click.
+    document.addEventListener('click', function (e) {
+        var a = e.target.closest ? e.target.closest('a[href^="#"]') : null;
+        if (a && a.getAttribute('href') === window.location.hash) {
+            show(window.location.hash);
+        }
+    });
+
+    if (window.location.hash) {
+        show(window.location.hash);
+    }
+})();
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2021 Roseville Code Inc. (austin@rosevillecode.com)
+ * This file is generated by Knit Dataweave Document Generator
+ *
+ * Search client. Loads the search index shards written next to the
+ * document on demand and shows the matching modules, functions and
+ * variables as the search text is typed.
+ */
+(function () {
+    var base = document.currentScript.src.replace(/[^\/]*$/, '');
+    var root = base.replace(/knit-search\/$/, '');
+    var data = { index: null, terms: {}, docs: {} };
+    var pending = {};
+    var seq = 0;
+
+    window.KnitSearch = {
+        load: function (type, key, value) {
+            if (type === 'index') {
+                data.index = value;
+            } else {
+                data[type][key] = value;
+            }
+            var id = type + ':' + key;
+            var callbacks = pending[id] || [];
+            delete pending[id];
+            for (var i = 0; i < callbacks.length; i++) {
+                callbacks[i]();
+            }
+        }
+    };
+
+    // Loads a shard script once and calls back when it's loaded.
+    function loadShard(type, key, file, callback) {
+        var id = type + ':' + key;
+        if ((type === 'index' && data.index) || (type !== 'index' && data[type][key])) {
+            callback();
+            return;
+        }
+        if (pending[id]) {
+            pending[id].push(callback);
+            return;
+        }
+        pending[id] = [callback];
+        var script = document.createElement('script');
+        script.src = base + file;
+        script.onerror = function () {
+            KnitSearch.load(type, key, type === 'index' ? { docCount: 0, docShardSize: 1, shards: [], stopWords: [] } : (type === 'terms' ? {} : []));
+        };
+        document.head.appendChild(script);
+    }
+
+    // Loads all of the provided shards.
+    function loadShards(shards, callback) {
+        var left = shards.length;
+        if (left === 0) {
+            callback();
+            return;
+        }
+        for (var i = 0; i < shards.length; i++) {
+            loadShard(shards[i][0], shards[i][1], shards[i][2], function () {
+                if (--left === 0) {
+                    callback();
+                }
+            });
+        }
+    }
+
+    // Splits the query into terms the same way the index was built.
+    function tokenize(text) {
+        var ret = [];
+        var words = text.toLowerCase().split(/[^\p{L}\p{N}]+/u);
+        for (var i = 0; i < words.length; i++) {
+            var word = words[i].substring(0, 32);
+            if (word.length >= 2 && data.index.stopWords.indexOf(word) < 0 && ret.indexOf(word) < 0) {
+                ret.push(word);
+            }
+        }
+        return ret;
+    }
+
+    function shardKey(term) {
+        return term.substring(0, 2).replace(/[^a-z0-9]/g, '_');
+    }
+
+    // Scores the entries that match every term, either exactly or as a
+    // prefix. Name matches score higher than comment matches.
+    function score(terms) {
+        var scores = null;
+        for (var i = 0; i < terms.length; i++) {
+            var shard = data.terms[shardKey(terms[i])] || {};
+            var matches = {};
+            for (var term in shard) {
+                if (term.indexOf(terms[i]) !== 0) {
+                    continue;
+                }
+                var postings = shard[term];
+                var id = 0;
+                for (var j = 0; j < postings.length; j++) {
+                    id += Math.floor(postings[j] / 4);
+                    var s = (postings[j] % 4 + 1) * (term === terms[i] ? 2 : 1);
+                    if (!matches[id] || matches[id] < s) {
+                        matches[id] = s;
+                    }
+                }
+            }
+            if (scores === null) {
+                scores = matches;
+            } else {
+                for (var key in scores) {
+                    if (matches[key]) {
+                        scores[key] += matches[key];
+                    } else {
+                        delete scores[key];
+                    }
+                }
+            }
+        }
+        var ret = [];
+        for (var k in scores) {
+            ret.push([Number(k), scores[k]]);
+        }
+        ret.sort(function (a, b) { return b[1] - a[1] || a[0] - b[0]; });
+        return ret;
+    }
+
+    // Searches for the provided text and calls back with the top entries.
+    function search(text, limit, callback) {
+        var terms = tokenize(text);
+        if (terms.length === 0) {
+            callback([], 0);
+            return;
+        }
+        var shards = [];
+        for (var i = 0; i < terms.length; i++) {
+            var key = shardKey(terms[i]);
+            if (data.index.shards.indexOf(key) < 0) {
+                callback([], 0);
+                return;
+            }
+            shards.push(['terms', key, 't-' + key + '.js']);
+        }
+        loadShards(shards, function () {
+            var ranked = score(terms);
+            var top = ranked.slice(0, limit);
+            var docShards = [];
+            for (var j = 0; j < top.length; j++) {
+                var num = String(Math.floor(top[j][0] / data.index.docShardSize));
+                docShards.push(['docs', num, 'd-' + num + '.js']);
+            }
+            loadShards(docShards, function () {
+                var docs = [];
+                for (var k = 0; k < top.length; k++) {
+                    var num = Math.floor(top[k][0] / data.index.docShardSize);
+                    docs.push(data.docs[num][top[k][0] - num * data.index.docShardSize]);
+                }
+                callback(docs, ranked.length);
+            });
+        });
+    }
+
+    function link(href) {
+        return href.charAt(0) === '#' ? href : root + href;
+    }
+
+    function render(results, docs, total) {
+        results.innerHTML = '';
+        for (var i = 0; i < docs.length; i++) {
+            var doc = docs[i];
+            var row = document.createElement('div');
+            row.className = 'knit-search-result';
+            var kind = document.createElement('span');
+            kind.className = 'knit-search-kind';
+            kind.textContent = doc[0];
+            var a = document.createElement('a');
+            a.href = link(doc[3]);
+            a.textContent = doc[1];
+            var module = document.createElement('span');
+            module.className = 'knit-search-module';
+            module.textContent = doc[2];
+            var summary = document.createElement('div');
+            summary.className = 'knit-search-summary';
+            summary.textContent = doc[4];
+            row.appendChild(kind);
+            row.appendChild(a);
+            row.appendChild(module);
+            row.appendChild(summary);
+            results.appendChild(row);
+        }
+        if (total > docs.length) {
+            var more = document.createElement('div');
+            more.className = 'knit-search-more';
+            more.textContent = (total - docs.length) + ' more';
+            results.appendChild(more);
+        }
+    }
+
+    var input = document.getElementById('knit-search-input');
+    var results = document.getElementById('knit-search-results');
+    if (!input || !results) {
+        return;
+    }
+    var timer = null;
+    input.addEventListener('input', function () {
+        clearTimeout(timer);
+        timer = setTimeout(function () {
+            var current = ++seq;
+            loadShard('index', '', 'index.js', function () {
+                search(input.value, 20, function (docs, total) {
+                    if (current === seq) {
+                        render(results, docs, total);
+                    }
+                });
+            });
+        }, 100);
+    });
+    input.addEventListener('keydown', function (e) {
+        var first = results.querySelector('a');
+        if (e.key === 'Enter' && first) {
+            window.location.href = first.href;
+        }
+    });
+})();
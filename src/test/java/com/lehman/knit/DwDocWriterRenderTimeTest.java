@@ -0,0 +1,98 @@
+/*
+ * Copyright 2021 Roseville Code Inc. (austin@rosevillecode.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.lehman.knit;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Guards the linear rendering of the Markdown and HTML writers. A module
+ * with 50,000 documented functions renders in about a second, while
+ * rendering it with repeated String concatenation takes hours, so the
+ * time limits leave plenty of room for slow build agents.
+ */
+public class DwDocWriterRenderTimeTest {
+    /**
+     * The number of functions of the synthetic module.
+     */
+    private static final int FUNCTIONS = 50000;
+
+    /**
+     * The time limit of rendering the module in milliseconds.
+     */
+    private static final long TIME_LIMIT = 30000;
+
+    @ClassRule
+    public static TemporaryFolder folder = new TemporaryFolder();
+
+    private static List<DwFile> files = null;
+
+    /**
+     * Writes and parses the synthetic module.
+     * @throws Exception on failure.
+     */
+    @BeforeClass
+    public static void parseCorpus() throws Exception {
+        StringBuilder sb = new StringBuilder();
+        sb.append("/**\n * Module with many functions.\n */\n\n%dw 2.0\n\n");
+        for (int i = 0; i < FUNCTIONS; i++) {
+            sb.append("/**\n");
+            sb.append(" * Maps the provided record to the result object number ").append(i).append(".\n");
+            sb.append(" * @p data is the input record.\n");
+            sb.append(" * @r the mapped result.\n");
+            sb.append(" */\n");
+            sb.append("fun mapRecord").append(i).append("(data: Object, options) = data\n\n");
+        }
+        sb.append("---\n{}\n");
+
+        File dir = folder.newFolder("dw");
+        File file = new File(dir, "large.dwl");
+        Files.write(file.toPath(), sb.toString().getBytes(StandardCharsets.UTF_8));
+        files = Collections.singletonList(new KnitParser().parseFile(dir.getPath(), file.getPath(), "dwl"));
+        assertTrue(files.get(0).getFunctions().size() == FUNCTIONS);
+    }
+
+    /**
+     * Renders the module with the Markdown writer within the time limit.
+     */
+    @Test(timeout = TIME_LIMIT)
+    public void markdownRendersInLinearTime() {
+        String doc = new String(DwDocWriterRegistry.create(OutputFormat.MARKDOWN.getVal()).writeDoc(files, new ArrayList<String>()), StandardCharsets.UTF_8);
+        assertTrue(doc.contains("mapRecord" + (FUNCTIONS - 1)));
+    }
+
+    /**
+     * Renders the module with the HTML writer within the time limit.
+     */
+    @Test(timeout = TIME_LIMIT)
+    public void htmlRendersInLinearTime() {
+        String doc = new String(DwDocWriterRegistry.create(OutputFormat.HTML.getVal()).writeDoc(files, new ArrayList<String>()), StandardCharsets.UTF_8);
+        assertTrue(doc.contains("mapRecord" + (FUNCTIONS - 1)));
+    }
+}
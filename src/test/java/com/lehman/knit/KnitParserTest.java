@@ -0,0 +1,134 @@
+/*
+ * Copyright 2021 Roseville Code Inc. (austin@rosevillecode.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.lehman.knit;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that quotes within regex literals don't throw the lexer off. A
+ * quote taken for the start of a string skips every doc comment up to
+ * the next matching quote, so the functions after it are lost.
+ */
+public class KnitParserTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * A regex with a double quote is skipped as a regex.
+     * @throws Exception on failure.
+     */
+    @Test
+    public void regexWithDoubleQuote() throws Exception {
+        DwFile file = this.parse("fun strip(s: String) = s replace /\"/ with \"\"");
+        assertEquals(names("strip", "second", "third"), functionNames(file));
+    }
+
+    /**
+     * Regexes with apostrophes are skipped as regexes.
+     * @throws Exception on failure.
+     */
+    @Test
+    public void regexWithApostrophe() throws Exception {
+        DwFile file = this.parse(
+            "fun words(s: String) = s splitBy /'/\n" +
+            "fun quoted(s: String) = if (s matches /^'.*'$/) s else \"'\" ++ s ++ \"'\""
+        );
+        assertEquals(names("words", "quoted", "second", "third"), functionNames(file));
+    }
+
+    /**
+     * Escaped slashes and slashes in a character class don't close a regex.
+     * @throws Exception on failure.
+     */
+    @Test
+    public void regexWithSlashes() throws Exception {
+        DwFile file = this.parse(
+            "fun path(s: String) = s scan /[\\/\"]+/\n" +
+            "fun unquote(s: String) = s match {\n" +
+            "    case m matches /^\\/\"(.*)\"\\/$/ -> m[1]\n" +
+            "    else -> s\n" +
+            "}"
+        );
+        assertEquals(names("path", "unquote", "second", "third"), functionNames(file));
+    }
+
+    /**
+     * A division isn't taken for the start of a regex.
+     * @throws Exception on failure.
+     */
+    @Test
+    public void divisionIsNotARegex() throws Exception {
+        DwFile file = this.parse(
+            "fun half(a: Number) = a / 2 ++ \" / \"\n" +
+            "fun ratio(a: Number, b: Number) = (a + 1) / (b + 1)"
+        );
+        assertEquals(names("half", "ratio", "second", "third"), functionNames(file));
+    }
+
+    /**
+     * Writes a module with the provided code followed by two documented
+     * functions and parses it.
+     * @param code is a String with the code under test.
+     * @return The parsed DwFile object.
+     * @throws Exception on failure.
+     */
+    private DwFile parse(String code) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        sb.append("%dw 2.0\n\n");
+        for (String line : code.split("\n")) {
+            if (line.startsWith("fun ")) {
+                sb.append("/**\n * Function under test.\n */\n");
+            }
+            sb.append(line).append("\n");
+        }
+        sb.append("\n/**\n * Second function.\n */\nfun second(a) = a\n");
+        sb.append("\n/**\n * Third function.\n */\nfun third(b) = b\n");
+        sb.append("---\n{}\n");
+
+        File dir = this.folder.newFolder("dw");
+        File file = new File(dir, "module.dwl");
+        Files.write(file.toPath(), sb.toString().getBytes(StandardCharsets.UTF_8));
+        return new KnitParser().parseFile(dir.getPath(), file.getPath(), "dwl");
+    }
+
+    private static List<String> functionNames(DwFile file) {
+        List<String> ret = new ArrayList<String>();
+        for (DwFunction fun : file.getFunctions()) {
+            ret.add(fun.getName());
+        }
+        return ret;
+    }
+
+    private static List<String> names(String... names) {
+        List<String> ret = new ArrayList<String>();
+        for (String name : names) {
+            ret.add(name);
+        }
+        return ret;
+    }
+}